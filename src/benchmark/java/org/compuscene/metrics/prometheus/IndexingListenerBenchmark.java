@@ -0,0 +1,133 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.mapper.LuceneDocument;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.SeqNoFieldMapper;
+import org.elasticsearch.index.shard.IndexingOperationListener;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Indexing throughput with and without the indexing listener of the per index histograms.
+ * <p>
+ * Every operation indexes a document of about 1KB with a Lucene index writer, then hands the operation and its result
+ * to the listeners of the shard, like the index shard does after the engine indexed a document. The listeners are
+ * empty when disabled, so the difference between the two runs is the whole cost of the recording. Run it on as many
+ * threads as there are write threads, e.g. {@code gradle jmh -PjmhArgs="IndexingListenerBenchmark -t 4"}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class IndexingListenerBenchmark {
+
+    private static final int FIELDS = 40;
+    private static final ShardId SHARD_ID = new ShardId("benchmark", "_na_", 0);
+
+    @Param({"false", "true"})
+    public boolean listener;
+
+    private final AtomicLong seqNo = new AtomicLong();
+    private IndexWriter writer;
+    private IndexingOperationListener listeners;
+
+    @Setup
+    public void setUp() throws IOException {
+        writer = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        IndexOperationHistograms.Histograms histograms = new IndexOperationHistograms.Histograms(System.nanoTime());
+        List<IndexingOperationListener> enabled = listener
+                ? List.of(new IndexOperationHistograms.IndexingListener(histograms))
+                : List.of();
+        listeners = new IndexingOperationListener.CompositeListener(enabled, LogManager.getLogger(getClass()));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        writer.close();
+    }
+
+    @Benchmark
+    public Engine.IndexResult index() throws IOException {
+        long seq = seqNo.getAndIncrement();
+        String id = Long.toString(seq);
+        StringBuilder source = new StringBuilder(1024).append("{\"doc\":").append(seq);
+        LuceneDocument doc = new LuceneDocument();
+        doc.add(new StringField("_id", id, Field.Store.YES));
+        doc.add(new LongPoint("doc", seq));
+        for (int f = 0; f < FIELDS; f++) {
+            String value = "value " + seq * f;
+            source.append(",\"field_").append(f).append("\":\"").append(value).append('"');
+            doc.add(new TextField("field_" + f, value, Field.Store.NO));
+        }
+        source.append('}');
+        BytesArray sourceBytes = new BytesArray(source.toString().getBytes(StandardCharsets.UTF_8));
+        doc.add(new StoredField("_source", sourceBytes.toBytesRef()));
+
+        ParsedDocument parsed = new ParsedDocument(
+                new NumericDocValuesField("_version", 1),
+                SeqNoFieldMapper.SequenceIDFields.emptySeqID(SeqNoFieldMapper.SeqNoIndexOptions.POINTS_AND_DOC_VALUES),
+                id,
+                null,
+                List.of(doc),
+                sourceBytes,
+                XContentType.JSON,
+                null,
+                sourceBytes.length()
+        );
+        Engine.Index operation = listeners.preIndex(SHARD_ID, new Engine.Index(new BytesRef(id), 1, parsed));
+        writer.addDocuments(parsed.docs());
+        Engine.IndexResult result = new Engine.IndexResult(1, 1, seq, true, id);
+        listeners.postIndex(SHARD_ID, operation, result);
+        return result;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.support.ActionFilter;
+import org.elasticsearch.action.support.ActionFilterChain;
+import org.elasticsearch.tasks.Task;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Action filter timing the actions executed on this node, from the filter chain to the response.
+ * <p>
+ * Only the actions of an allow-list are recorded, which bounds the number of series. The allow-list is kept in an
+ * immutable map which is swapped on update, so the recording path is a map lookup, two adder increments and a
+ * listener wrapper, without any lock. Actions not in the list are passed on untouched.
+ */
+public class ActionLatencyFilter implements ActionFilter {
+
+    /**
+     * Bucket upper bounds, in seconds, from a millisecond to about a minute.
+     */
+    public static final double[] BOUNDS = FixedBucketHistogram.exponentialBounds(0.001, 2, 16);
+
+    private volatile Map<String, ActionStats> actions = Collections.emptyMap();
+
+    /**
+     * Replace the allow-list of actions. Stats of the actions still in the list are kept.
+     */
+    public synchronized void setActions(List<String> names) {
+        Map<String, ActionStats> current = actions;
+        Map<String, ActionStats> updated = new HashMap<>();
+        for (String name : names) {
+            ActionStats stats = current.get(name);
+            updated.put(name, stats != null ? stats : new ActionStats());
+        }
+        actions = Collections.unmodifiableMap(updated);
+    }
+
+    /**
+     * Stats of every action of the allow-list, sorted by action name.
+     */
+    public Map<String, ActionStats> getActions() {
+        return Collections.unmodifiableMap(new TreeMap<>(actions));
+    }
+
+    @Override
+    public int order() {
+        // First, so that the time spent in the other filters is included.
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public <Request extends ActionRequest, Response extends ActionResponse> void apply(
+            Task task, String action, Request request, ActionListener<Response> listener,
+            ActionFilterChain<Request, Response> chain) {
+        ActionStats stats = actions.get(action);
+        if (stats == null) {
+            chain.proceed(task, action, request, listener);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        stats.current.increment();
+        ActionListener<Response> timed = ActionListener.notifyOnce(ActionListener.runAfter(listener, () -> {
+            stats.current.decrement();
+            stats.time.observeSince(startNanos);
+        }));
+        try {
+            chain.proceed(task, action, request, timed);
+        } catch (Exception e) {
+            // Like the filter chain itself does, so that the execution is not left in flight.
+            timed.onFailure(e);
+        }
+    }
+
+    /**
+     * Latency histogram and number of in-flight executions of an action.
+     */
+    public static class ActionStats {
+        private final FixedBucketHistogram time = new FixedBucketHistogram(BOUNDS);
+        private final LongAdder current = new LongAdder();
+
+        public FixedBucketHistogram getTime() {
+            return time;
+        }
+
+        public long getCurrent() {
+            return current.sum();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import io.prometheus.client.Collector;
+import io.prometheus.client.Counter;
+
+/**
+ * A metric family which reads its values from the current stats snapshot only when the registry is walked.
+ * <p>
+ * Simpleclient gauges and counters need every value to be copied into a labelled child first. For the big per-index
+ * sections this doubles both the work and the memory, while the values already live in the stats response. A
+ * callback family instead keeps an extractor function, and all families sharing the same rows point to a single
+ * {@link Source}. Updating the family is then a matter of swapping the rows of the source.
+ * <p>
+ * Counters also expose the {@code _created} series of the simpleclient counters. As the catalog is built for every
+ * collection, the children of those counters are created when the values are set, so the creation time of a row is
+ * the time its snapshot was swapped in.
+ *
+ * @param <T> type of a row of the snapshot, e.g. the stats of one index
+ */
+class CallbackCollector<T> extends Collector {
+
+    // The simpleclient counters leave the created series out when PROMETHEUS_DISABLE_CREATED_SERIES is set, the check
+    // is not public so a counter is asked instead.
+    private static final boolean CREATED_SERIES =
+            Counter.build("created_series", "Created series check").create().collect().get(0).samples.size() > 1;
+
+    private final String name;
+    private final String unit;
+    private final Type type;
+    private final String help;
+    private final Source<T> source;
+    private final String extraLabelName;
+    private final Map<String, ToDoubleFunction<T>> extractors;
+
+    /**
+     * @param extraLabelName optional label placed in front of the source labels, {@code null} when not used
+     * @param extractors     one extractor per value of the extra label, or a single extractor keyed by {@code null}
+     */
+    CallbackCollector(String name, String unit, Type type, String help, Source<T> source,
+                      String extraLabelName, Map<String, ToDoubleFunction<T>> extractors) {
+        if (type != Type.GAUGE && type != Type.COUNTER) {
+            throw new IllegalArgumentException("Callback families can only be gauges or counters: " + name);
+        }
+        this.name = unit.isEmpty() || name.endsWith("_" + unit) ? name : name + "_" + unit;
+        this.unit = unit;
+        this.type = type;
+        this.help = help;
+        this.source = source;
+        this.extraLabelName = extraLabelName;
+        this.extractors = new LinkedHashMap<>(extractors);
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        Source.Snapshot<T> snapshot = source.snapshot;
+        List<Source.Row<T>> rows = snapshot.rows;
+        boolean created = CREATED_SERIES && type == Type.COUNTER;
+        String sampleName = type == Type.COUNTER ? name + "_total" : name;
+        List<String> labelNames = source.labelNames;
+        if (extraLabelName != null) {
+            labelNames = new ArrayList<>(labelNames.size() + 1);
+            labelNames.add(extraLabelName);
+            labelNames.addAll(source.labelNames);
+        }
+
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>(rows.size() * extractors.size() * (created ? 2 : 1));
+        for (Map.Entry<String, ToDoubleFunction<T>> extractor : extractors.entrySet()) {
+            for (Source.Row<T> row : rows) {
+                double value = extractor.getValue().applyAsDouble(row.value);
+                // NaN marks a value which is not available in this snapshot.
+                // Counters can not go negative, the value is skipped just like when setting a simpleclient counter.
+                if (Double.isNaN(value) || (type == Type.COUNTER && value < 0)) {
+                    continue;
+                }
+                List<String> labelValues = row.labelValues;
+                if (extraLabelName != null) {
+                    labelValues = new ArrayList<>(labelValues.size() + 1);
+                    labelValues.add(extractor.getKey());
+                    labelValues.addAll(row.labelValues);
+                }
+                samples.add(new MetricFamilySamples.Sample(sampleName, labelNames, labelValues, value));
+                if (created) {
+                    samples.add(new MetricFamilySamples.Sample(name + "_created", labelNames, labelValues,
+                            snapshot.createdSeconds));
+                }
+            }
+        }
+        return Collections.singletonList(new MetricFamilySamples(name, unit, type, help, samples));
+    }
+
+    /**
+     * Rows of the current snapshot shared by several callback families, each row with its label values.
+     *
+     * @param <T> type of a row
+     */
+    static final class Source<T> {
+        private final List<String> labelNames;
+        private final Function<T, List<String>> labelValues;
+        private volatile Snapshot<T> snapshot = new Snapshot<>(Collections.emptyList());
+
+        Source(List<String> labelNames, Function<T, List<String>> labelValues) {
+            this.labelNames = List.copyOf(labelNames);
+            this.labelValues = labelValues;
+        }
+
+        /**
+         * Replace the rows of the snapshot. Label values are computed once here rather than by every family.
+         */
+        void swap(Collection<T> values) {
+            List<Row<T>> newRows = new ArrayList<>(values.size());
+            for (T value : values) {
+                newRows.add(new Row<>(labelValues.apply(value), value));
+            }
+            snapshot = new Snapshot<>(newRows);
+        }
+
+        private static final class Snapshot<T> {
+            private final List<Row<T>> rows;
+            private final double createdSeconds = System.currentTimeMillis() / 1E3;
+
+            private Snapshot(List<Row<T>> rows) {
+                this.rows = rows;
+            }
+        }
+
+        private static final class Row<T> {
+            private final List<String> labelValues;
+            private final T value;
+
+            private Row(List<String> labelValues, T value) {
+                this.labelValues = labelValues;
+                this.value = value;
+            }
+        }
+    }
+}
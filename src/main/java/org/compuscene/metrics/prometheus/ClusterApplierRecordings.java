@@ -0,0 +1,141 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.cluster.service.ClusterApplierRecordingService;
+import org.elasticsearch.common.Strings;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Selection of the cluster state appliers and listeners the applier thread of the node spent the most time in.
+ * <p>
+ * The recordings are read from the stats as rendered by the nodes stats API, the count and the time of a recording
+ * having no getters. Besides the appliers and listeners, the applier thread records its own steps, e.g. connecting to
+ * the new nodes, which are always kept as {@value #STEP_KIND}. Elasticsearch records the appliers and the listeners
+ * alike, after the object they are, so they share the {@value #COMPONENT_KIND} kind. Their names are stripped of the
+ * identity hash code and of the hidden class suffix of lambdas to keep them stable across restarts, and recordings
+ * ending up with the same name are summed up. Only the top K of them by cumulative time are kept, which rarely changes
+ * as the times only grow.
+ */
+final class ClusterApplierRecordings {
+
+    // e.g. "org.elasticsearch.Foo$$Lambda/0x00007f3c1c4a6b10@5c8e1a2"
+    private static final Pattern INSTANCE_SUFFIX = Pattern.compile("(/0x\\p{XDigit}+)?@\\p{XDigit}+$");
+
+    private static final Comparator<Recording> ORDER = Comparator.comparing(Recording::getKind)
+            .thenComparing(Recording::getName);
+
+    static final String STEP_KIND = "step";
+    static final String COMPONENT_KIND = "applier_or_listener";
+    // Steps recorded by the cluster applier service itself rather than by an applier or listener.
+    private static final Set<String> STEPS = Set.of("connecting to new nodes", "applying settings");
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private ClusterApplierRecordings() {
+    }
+
+    /**
+     * @return the steps and the top K appliers and listeners by cumulative time, sorted by kind and name
+     */
+    static List<Recording> top(ClusterApplierRecordingService.Stats stats, int k) {
+        List<Recording> steps = new ArrayList<>();
+        Map<String, Recording> components = new LinkedHashMap<>();
+        for (Recording recording : read(stats)) {
+            if (recording.getKind().equals(STEP_KIND)) {
+                steps.add(recording);
+            } else {
+                components.merge(recording.getName(), recording, Recording::add);
+            }
+        }
+        List<Recording> top = ShardTopK.top(new ArrayList<>(components.values()), k, Recording::getMillis);
+        top.addAll(steps);
+        top.sort(ORDER);
+        return top;
+    }
+
+    static String normalize(String name) {
+        return INSTANCE_SUFFIX.matcher(name).replaceFirst("");
+    }
+
+    private static List<Recording> read(ClusterApplierRecordingService.Stats stats) {
+        String json = Strings.toString(stats);
+        try {
+            List<Recording> recordings = new ArrayList<>();
+            for (JsonNode recording : MAPPER.readTree(json).path("cluster_applier_stats").path("recordings")) {
+                String name = recording.path("name").asText();
+                boolean step = STEPS.contains(name);
+                recordings.add(new Recording(
+                        step ? STEP_KIND : COMPONENT_KIND,
+                        step ? name : normalize(name),
+                        recording.path("cumulative_execution_count").asLong(),
+                        recording.path("cumulative_execution_time_millis").asLong()));
+            }
+            return recordings;
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cumulative executions of an applier or listener since the node started.
+     */
+    static final class Recording {
+        private final String kind;
+        private final String name;
+        private final long count;
+        private final long millis;
+
+        Recording(String kind, String name, long count, long millis) {
+            this.kind = kind;
+            this.name = name;
+            this.count = count;
+            this.millis = millis;
+        }
+
+        String getKind() {
+            return kind;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getMillis() {
+            return millis;
+        }
+
+        private Recording add(Recording other) {
+            return new Recording(kind, name, count + other.count, millis + other.millis);
+        }
+    }
+}
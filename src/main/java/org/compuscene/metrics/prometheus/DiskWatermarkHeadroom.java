@@ -0,0 +1,150 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.cluster.ClusterInfo;
+import org.elasticsearch.cluster.ClusterInfoService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.DiskUsage;
+import org.elasticsearch.cluster.routing.RoutingNode;
+import org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings;
+import org.elasticsearch.cluster.routing.allocation.decider.DiskThresholdDecider;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.snapshots.SnapshotShardSizeInfo;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Distance of every data node to the disk watermarks, as seen by the disk threshold decider.
+ * <p>
+ * The disk usage of the least available path of every node comes from the cluster info, which is only refreshed by
+ * the elected master, so other nodes return no rows. The size of the shards still being recovered on a node is taken
+ * off its free bytes, like the decider does, and the watermarks are resolved against the total size of the path,
+ * percentages and max headroom included.
+ */
+public class DiskWatermarkHeadroom {
+
+    private static final Comparator<NodeHeadroom> ORDER = Comparator.comparing(NodeHeadroom::getNode)
+            .thenComparing(NodeHeadroom::getPath);
+
+    private final ClusterService clusterService;
+    private final ClusterInfoService clusterInfoService;
+    private final DiskThresholdSettings diskThresholdSettings;
+
+    /**
+     * @param diskThresholdSettings watermarks following the dynamic cluster settings
+     */
+    public DiskWatermarkHeadroom(ClusterService clusterService, ClusterInfoService clusterInfoService,
+                                 DiskThresholdSettings diskThresholdSettings) {
+        this.clusterService = clusterService;
+        this.clusterInfoService = clusterInfoService;
+        this.diskThresholdSettings = diskThresholdSettings;
+    }
+
+    /**
+     * @return the headroom of every data node known to the cluster info, sorted by node name
+     */
+    public List<NodeHeadroom> compute() {
+        ClusterState state = clusterService.state();
+        if (state.nodes().isLocalNodeElectedMaster() == false) {
+            return List.of();
+        }
+        ClusterInfo info = clusterInfoService.getClusterInfo();
+        List<NodeHeadroom> rows = new ArrayList<>();
+        for (Map.Entry<String, DiskUsage> e : info.getNodeLeastAvailableDiskUsages().entrySet()) {
+            RoutingNode routingNode = state.getRoutingNodes().node(e.getKey());
+            if (routingNode == null) {
+                // The node left since the cluster info was refreshed.
+                continue;
+            }
+            DiskUsage usage = e.getValue();
+            // Shards moving away are not subtracted, as for new allocations: their space is only freed once moved.
+            long unaccounted = DiskThresholdDecider.sizeOfUnaccountedShards(routingNode, false, usage.path(), info,
+                    SnapshotShardSizeInfo.EMPTY, state.metadata(), state.globalRoutingTable(), 0L);
+            rows.add(headroom(usage, unaccounted, diskThresholdSettings));
+        }
+        rows.sort(ORDER);
+        return rows;
+    }
+
+    static NodeHeadroom headroom(DiskUsage usage, long unaccountedBytes, DiskThresholdSettings settings) {
+        ByteSizeValue total = ByteSizeValue.ofBytes(usage.totalBytes());
+        long free = usage.freeBytes() - unaccountedBytes;
+        return new NodeHeadroom(
+                usage.nodeName(),
+                usage.path(),
+                unaccountedBytes,
+                free - settings.getFreeBytesThresholdLowStage(total).getBytes(),
+                free - settings.getFreeBytesThresholdHighStage(total).getBytes(),
+                free - settings.getFreeBytesThresholdFloodStage(total).getBytes()
+        );
+    }
+
+    /**
+     * Headroom of a node, in bytes which can still be written before reaching each watermark. Negative once the
+     * watermark is exceeded.
+     */
+    public static class NodeHeadroom {
+        private final String node;
+        private final String path;
+        private final long unaccountedBytes;
+        private final long lowBytes;
+        private final long highBytes;
+        private final long floodStageBytes;
+
+        NodeHeadroom(String node, String path, long unaccountedBytes, long lowBytes, long highBytes,
+                     long floodStageBytes) {
+            this.node = node;
+            this.path = path;
+            this.unaccountedBytes = unaccountedBytes;
+            this.lowBytes = lowBytes;
+            this.highBytes = highBytes;
+            this.floodStageBytes = floodStageBytes;
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * Expected size of the shards recovering on the node which is not yet on its disk.
+         */
+        public long getUnaccountedBytes() {
+            return unaccountedBytes;
+        }
+
+        public long getLowBytes() {
+            return lowBytes;
+        }
+
+        public long getHighBytes() {
+            return highBytes;
+        }
+
+        public long getFloodStageBytes() {
+            return floodStageBytes;
+        }
+    }
+}
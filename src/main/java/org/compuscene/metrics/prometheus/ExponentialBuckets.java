@@ -0,0 +1,68 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.common.network.HandlingTimeTracker;
+import org.elasticsearch.http.HttpRouteStatsTracker;
+import org.elasticsearch.transport.TransportActionStatsTracker;
+
+/**
+ * Conversion of the exponential bucket histograms of Elasticsearch to Prometheus buckets.
+ * <p>
+ * Elasticsearch counts the values below each upper bound, plus an unbounded last bucket, where Prometheus counts the
+ * values up to and including each bound. Values are integers and bounds are powers of two, so a value equal to a
+ * bound is only counted by the next bound, within the resolution of the histograms anyway.
+ * <p>
+ * The bounds are converted once, and the counts are accumulated in an array given by the caller, which can be
+ * reused for every series since the histogram collector copies it.
+ */
+final class ExponentialBuckets {
+
+    // Handling times are tracked in milliseconds.
+    static final double[] HANDLING_TIME_SECONDS = bounds(HandlingTimeTracker.getBucketUpperBounds(), 0.001);
+    static final double[] TRANSPORT_SIZE_BYTES = bounds(TransportActionStatsTracker.getBucketUpperBounds(), 1);
+    static final double[] HTTP_SIZE_BYTES = bounds(HttpRouteStatsTracker.getBucketUpperBounds(), 1);
+
+    private ExponentialBuckets() {
+    }
+
+    static double[] bounds(int[] upperBounds, double scale) {
+        double[] bounds = new double[upperBounds.length];
+        for (int i = 0; i < upperBounds.length; i++) {
+            bounds[i] = upperBounds[i] * scale;
+        }
+        return bounds;
+    }
+
+    /**
+     * Accumulate the frequencies of the buckets into the given array.
+     *
+     * @return the cumulative counts, or {@code null} when the frequencies do not match the bounds, e.g. when sent by
+     *         a node of another version
+     */
+    static long[] cumulative(double[] bounds, long[] frequencies, long[] counts) {
+        if (frequencies.length != bounds.length + 1 || counts.length != frequencies.length) {
+            return null;
+        }
+        long total = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            total += frequencies[i];
+            counts[i] = total;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An encoded scrape response which can be served to several scrapers.
+ * <p>
+ * The gzip compressed body is computed on first use only, and then shared by all the requests accepting it. The entity
+ * tag is derived from the body, so that a scraper is only told the response did not change when it really did not.
+ */
+public class ExpositionSnapshot {
+
+    private final String eTag;
+    private final String contentType;
+    private final BytesReference body;
+    private volatile BytesReference gzipBody;
+
+    public ExpositionSnapshot(String contentType, BytesReference body) {
+        this(eTagOf(body), contentType, body);
+    }
+
+    /**
+     * @param eTag        entity tag of the body
+     * @param contentType content type of the body
+     * @param body        encoded metrics
+     */
+    ExpositionSnapshot(String eTag, String contentType, BytesReference body) {
+        this.eTag = eTag;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    /**
+     * Strong entity tag of a body, the first 128 bits of its SHA-256 digest.
+     */
+    static String eTagOf(BytesReference body) {
+        return "\"" + MessageDigests.toHexString(MessageDigests.digest(body, MessageDigests.sha256())).substring(0, 32)
+                + "\"";
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public BytesReference getBody() {
+        return body;
+    }
+
+    public BytesReference getGzipBody() throws IOException {
+        BytesReference gzip = gzipBody;
+        if (gzip == null) {
+            synchronized (this) {
+                gzip = gzipBody;
+                if (gzip == null) {
+                    BytesStreamOutput out = new BytesStreamOutput(body.length() / 4);
+                    try (OutputStream gzipOut = new GZIPOutputStream(out, 8192)) {
+                        body.writeTo(gzipOut);
+                    }
+                    gzip = out.bytes();
+                    gzipBody = gzip;
+                }
+            }
+        }
+        return gzip;
+    }
+
+    /**
+     * Does the {@code If-None-Match} header of a request match this snapshot.
+     */
+    public boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            // Weak validators are fine, the body does not change once the snapshot is taken.
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Does the {@code Accept-Encoding} header of a request allow for a gzip compressed body.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip") || name.equals("x-gzip") || name.equals("*")) {
+                for (int i = 1; i < parts.length; i++) {
+                    if (parts[i].trim().replace(" ", "").matches("q=0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
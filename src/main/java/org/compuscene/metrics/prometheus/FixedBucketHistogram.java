@@ -0,0 +1,116 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram with fixed bucket upper bounds that outlives a single scrape.
+ * <p>
+ * Recording is lock-free: every bucket is a {@link LongAdder}, so concurrent writers only contend on
+ * striped cells. Readers take a best effort view of the buckets, which is good enough for monitoring.
+ */
+public class FixedBucketHistogram {
+
+    /**
+     * Default bucket upper bounds, in seconds, for timing the exporter itself.
+     */
+    public static final double[] DURATION_SECONDS_BOUNDS = {
+        0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30
+    };
+
+    private final double[] upperBounds;
+    private final LongAdder[] counts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    public FixedBucketHistogram(double... upperBounds) {
+        for (int i = 1; i < upperBounds.length; i++) {
+            if (upperBounds[i] <= upperBounds[i - 1]) {
+                throw new IllegalArgumentException("Histogram bucket bounds must be strictly increasing");
+            }
+        }
+        this.upperBounds = Arrays.copyOf(upperBounds, upperBounds.length);
+        // The last bucket is the implicit +Inf bucket.
+        this.counts = new LongAdder[upperBounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Build exponentially growing bucket upper bounds.
+     *
+     * @param start  upper bound of the first bucket
+     * @param factor growth factor between two consecutive buckets
+     * @param count  number of buckets, the +Inf bucket excluded
+     * @return bucket upper bounds
+     */
+    public static double[] exponentialBounds(double start, double factor, int count) {
+        if (start <= 0 || factor <= 1 || count < 1) {
+            throw new IllegalArgumentException("Invalid exponential bucket definition");
+        }
+        double[] bounds = new double[count];
+        bounds[0] = start;
+        for (int i = 1; i < count; i++) {
+            bounds[i] = bounds[i - 1] * factor;
+        }
+        return bounds;
+    }
+
+    public void observe(double value) {
+        counts[bucketIndex(value)].increment();
+        sum.add(value);
+    }
+
+    /**
+     * Record the time elapsed since the given {@link System#nanoTime()} reading, in seconds.
+     */
+    public void observeSince(long startNanos) {
+        observe((System.nanoTime() - startNanos) / 1E9);
+    }
+
+    private int bucketIndex(double value) {
+        int idx = Arrays.binarySearch(upperBounds, value);
+        // Upper bounds are inclusive, an exact match belongs to the bucket itself.
+        return idx >= 0 ? idx : -idx - 1;
+    }
+
+    public double[] getUpperBounds() {
+        return upperBounds;
+    }
+
+    /**
+     * Cumulative bucket counts as expected by Prometheus. The last element is the +Inf bucket,
+     * i.e. the total number of observations.
+     */
+    public long[] getCumulativeCounts() {
+        long[] cumulative = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            total += counts[i].sum();
+            cumulative[i] = total;
+        }
+        return cumulative;
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+}
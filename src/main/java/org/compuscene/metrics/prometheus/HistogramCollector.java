@@ -0,0 +1,115 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import io.prometheus.client.Collector;
+
+/**
+ * A histogram family whose buckets are computed outside of the registry.
+ * <p>
+ * Simpleclient histograms can only be fed one observation at a time. The histograms we export are either
+ * recorded by long living {@link FixedBucketHistogram} instances or already bucketed by Elasticsearch,
+ * so this collector simply renders the given cumulative bucket counts.
+ * <p>
+ * Elasticsearch does not track the sum of some of its histograms, e.g. the transport handling times. Their sum is given
+ * as {@code NaN} and the {@code _sum} sample is left out rather than exposed as {@code NaN}, which would turn every
+ * average computed from it into {@code NaN}. Only their buckets and count are exposed.
+ * <p>
+ * A gauge histogram is the distribution of a current state, e.g. the age of the running tasks, whose buckets can
+ * go down between two scrapes.
+ */
+class HistogramCollector extends Collector {
+
+    private final String name;
+    private final String unit;
+    private final String help;
+    private final List<String> labelNames;
+    private final Type type;
+    private final Map<List<String>, Buckets> children = new LinkedHashMap<>();
+
+    HistogramCollector(String name, String unit, String help, String... labelNames) {
+        this(Type.HISTOGRAM, name, unit, help, labelNames);
+    }
+
+    HistogramCollector(Type type, String name, String unit, String help, String... labelNames) {
+        this.type = type;
+        this.name = unit.isEmpty() || name.endsWith("_" + unit) ? name : name + "_" + unit;
+        this.unit = unit;
+        this.help = help;
+        this.labelNames = List.of(labelNames);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    synchronized void set(double[] upperBounds, long[] cumulativeCounts, double sum, String... labelValues) {
+        if (labelValues.length != labelNames.size()) {
+            throw new IllegalArgumentException("Incorrect number of labels for histogram " + name);
+        }
+        if (cumulativeCounts.length != upperBounds.length + 1) {
+            throw new IllegalArgumentException("Histogram " + name + " expects one count per bucket plus +Inf");
+        }
+        children.put(List.of(labelValues), new Buckets(upperBounds, cumulativeCounts, sum));
+    }
+
+    @Override
+    public synchronized List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples.Sample> samples = new ArrayList<>();
+        boolean gauge = type == Type.GAUGE_HISTOGRAM;
+        List<String> bucketLabelNames = new ArrayList<>(labelNames);
+        bucketLabelNames.add("le");
+        for (Map.Entry<List<String>, Buckets> child : children.entrySet()) {
+            List<String> labelValues = child.getKey();
+            Buckets buckets = child.getValue();
+            for (int i = 0; i < buckets.cumulativeCounts.length; i++) {
+                List<String> bucketLabelValues = new ArrayList<>(labelValues);
+                bucketLabelValues.add(i < buckets.upperBounds.length
+                        ? doubleToGoString(buckets.upperBounds[i]) : "+Inf");
+                samples.add(new MetricFamilySamples.Sample(
+                        name + "_bucket", bucketLabelNames, bucketLabelValues, buckets.cumulativeCounts[i]));
+            }
+            long count = buckets.cumulativeCounts[buckets.cumulativeCounts.length - 1];
+            samples.add(new MetricFamilySamples.Sample(
+                    name + (gauge ? "_gcount" : "_count"), labelNames, labelValues, count));
+            if (Double.isNaN(buckets.sum) == false) {
+                samples.add(new MetricFamilySamples.Sample(
+                        name + (gauge ? "_gsum" : "_sum"), labelNames, labelValues, buckets.sum));
+            }
+        }
+        return Collections.singletonList(new MetricFamilySamples(name, unit, type, help, samples));
+    }
+
+    private static final class Buckets {
+        private final double[] upperBounds;
+        private final long[] cumulativeCounts;
+        private final double sum;
+
+        private Buckets(double[] upperBounds, long[] cumulativeCounts, double sum) {
+            this.upperBounds = upperBounds;
+            this.cumulativeCounts = Arrays.copyOf(cumulativeCounts, cumulativeCounts.length);
+            this.sum = sum;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.http.HttpRouteStats;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Grouping of the REST route statistics by endpoint.
+ * <p>
+ * Elasticsearch keeps statistics for every path pattern of the REST routes, e.g. {@code /_bulk} and
+ * {@code /{index}/_bulk} separately. Path parameters are dropped to group them under their endpoint, {@code _bulk},
+ * so that the number of series is bounded by the number of endpoints whatever the indices are. Routes which were
+ * never called are left out.
+ */
+final class HttpRoutes {
+
+    private HttpRoutes() {
+    }
+
+    /**
+     * The endpoint of a route, its path without the path parameters, e.g. {@code _nodes/stats} for
+     * {@code /_nodes/{nodeId}/stats/{metric}}.
+     */
+    static String normalize(String route) {
+        StringBuilder endpoint = new StringBuilder(route.length());
+        for (String segment : route.split("/")) {
+            if (segment.isEmpty() || segment.startsWith("{")) {
+                continue;
+            }
+            if (endpoint.length() > 0) {
+                endpoint.append('/');
+            }
+            endpoint.append(segment);
+        }
+        return endpoint.length() == 0 ? "/" : endpoint.toString();
+    }
+
+    static Map<String, Endpoint> group(Map<String, HttpRouteStats> routes) {
+        Map<String, Endpoint> endpoints = new TreeMap<>();
+        for (Map.Entry<String, HttpRouteStats> e : routes.entrySet()) {
+            HttpRouteStats stats = e.getValue();
+            if (stats.requestCount() == 0 && stats.responseCount() == 0) {
+                continue;
+            }
+            endpoints.computeIfAbsent(normalize(e.getKey()), k -> new Endpoint()).add(stats);
+        }
+        return endpoints;
+    }
+
+    /**
+     * The sum of the statistics of the routes of an endpoint.
+     */
+    static final class Endpoint {
+        private final long[] requestSizes = new long[ExponentialBuckets.HTTP_SIZE_BYTES.length + 1];
+        private final long[] responseSizes = new long[ExponentialBuckets.HTTP_SIZE_BYTES.length + 1];
+        private final long[] responseTimes = new long[ExponentialBuckets.HANDLING_TIME_SECONDS.length + 1];
+        private long requestSize;
+        private long responseSize;
+
+        private void add(HttpRouteStats stats) {
+            // The totals are only added with their histogram, to keep the sums in line with the counts.
+            if (addTo(requestSizes, stats.requestSizeHistogram())) {
+                requestSize += stats.totalRequestSize();
+            }
+            if (addTo(responseSizes, stats.responseSizeHistogram())) {
+                responseSize += stats.totalResponseSize();
+            }
+            addTo(responseTimes, stats.responseTimeHistogram());
+        }
+
+        private static boolean addTo(long[] frequencies, long[] route) {
+            // Histograms of another version of the node, or empty ones, are left out.
+            if (route.length != frequencies.length) {
+                return false;
+            }
+            for (int i = 0; i < route.length; i++) {
+                frequencies[i] += route[i];
+            }
+            return true;
+        }
+
+        long[] getRequestSizes() {
+            return requestSizes;
+        }
+
+        long[] getResponseSizes() {
+            return responseSizes;
+        }
+
+        long[] getResponseTimes() {
+            return responseTimes;
+        }
+
+        long getRequestSize() {
+            return requestSize;
+        }
+
+        long getResponseSize() {
+            return responseSize;
+        }
+    }
+}
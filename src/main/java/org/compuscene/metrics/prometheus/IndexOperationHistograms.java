@@ -0,0 +1,208 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.IndexModule;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexEventListener;
+import org.elasticsearch.index.shard.IndexingOperationListener;
+import org.elasticsearch.index.shard.SearchOperationListener;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.cluster.IndexRemovalReason;
+import org.elasticsearch.search.internal.SearchContext;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Latency histograms of the operations executed by the shards of every index allocated to this node.
+ * <p>
+ * Listeners are added to every {@link IndexModule} the node creates. They resolve the histograms of their index once,
+ * so recording an operation is a bucket lookup and two adder increments, without any allocation on the search or
+ * write thread. The histograms of an index are dropped once
+ * the index is removed from the node.
+ * <p>
+ * Elasticsearch also creates short living index modules, e.g. to validate a mapping update. These share the
+ * histograms of the index but are closed without any removal event, so histograms of an index which is not
+ * allocated to the node are dropped too once they are older than a grace period.
+ */
+public class IndexOperationHistograms {
+
+    /**
+     * Bucket upper bounds, in seconds, from half a millisecond to about 16 seconds.
+     */
+    public static final double[] BOUNDS = FixedBucketHistogram.exponentialBounds(0.0005, 2, 16);
+
+    /**
+     * Bucket upper bounds, in bytes, of the document source sizes, from 64B to 16MiB.
+     */
+    public static final double[] SIZE_BOUNDS = FixedBucketHistogram.exponentialBounds(64, 4, 10);
+
+    /**
+     * Shard level operations with a latency histogram.
+     */
+    public enum Operation {
+        QUERY,
+        FETCH,
+        DFS,
+        INDEX,
+        DELETE;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final long GRACE_PERIOD_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // Keyed by index name and UUID, an index deleted and created again gets new histograms.
+    private final Map<Index, Histograms> indices = new ConcurrentHashMap<>();
+    private final Predicate<Index> isAllocated;
+
+    /**
+     * @param isAllocated whether an index is currently allocated to this node
+     */
+    public IndexOperationHistograms(Predicate<Index> isAllocated) {
+        this.isAllocated = isAllocated;
+    }
+
+    /**
+     * Add the recording listeners to a newly created index module.
+     */
+    public void onIndexModule(IndexModule indexModule) {
+        Index index = indexModule.getIndex();
+        Histograms histograms = indices.computeIfAbsent(index, k -> new Histograms(System.nanoTime()));
+        indexModule.addSearchOperationListener(new SearchListener(histograms));
+        indexModule.addIndexOperationListener(new IndexingListener(histograms));
+        indexModule.addIndexEventListener(new IndexEventListener() {
+            @Override
+            public void afterIndexRemoved(Index removed, IndexSettings indexSettings, IndexRemovalReason reason) {
+                indices.remove(index, histograms);
+            }
+        });
+    }
+
+    /**
+     * Histograms of every index allocated to this node, sorted by index name.
+     */
+    public Map<String, Histograms> getIndices() {
+        long now = System.nanoTime();
+        Map<String, Histograms> byName = new TreeMap<>();
+        for (Map.Entry<Index, Histograms> e : indices.entrySet()) {
+            if (isAllocated.test(e.getKey())) {
+                byName.put(e.getKey().getName(), e.getValue());
+            } else if (now - e.getValue().createdNanos > GRACE_PERIOD_NANOS) {
+                indices.remove(e.getKey(), e.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(byName);
+    }
+
+    /**
+     * Histograms of a single index.
+     */
+    public static class Histograms {
+        private final Map<Operation, FixedBucketHistogram> operations = new EnumMap<>(Operation.class);
+        private final FixedBucketHistogram sourceSize = new FixedBucketHistogram(SIZE_BOUNDS);
+        private final long createdNanos;
+
+        Histograms(long createdNanos) {
+            this.createdNanos = createdNanos;
+            for (Operation operation : Operation.values()) {
+                operations.put(operation, new FixedBucketHistogram(BOUNDS));
+            }
+        }
+
+        public FixedBucketHistogram get(Operation operation) {
+            return operations.get(operation);
+        }
+
+        /**
+         * Source sizes of the indexed documents.
+         */
+        public FixedBucketHistogram getSourceSize() {
+            return sourceSize;
+        }
+    }
+
+    private static final class SearchListener implements SearchOperationListener {
+        private final FixedBucketHistogram query;
+        private final FixedBucketHistogram fetch;
+        private final FixedBucketHistogram dfs;
+
+        private SearchListener(Histograms histograms) {
+            this.query = histograms.get(Operation.QUERY);
+            this.fetch = histograms.get(Operation.FETCH);
+            this.dfs = histograms.get(Operation.DFS);
+        }
+
+        @Override
+        public void onQueryPhase(SearchContext searchContext, long tookInNanos) {
+            query.observe(tookInNanos / 1E9);
+        }
+
+        @Override
+        public void onFetchPhase(SearchContext searchContext, long tookInNanos) {
+            fetch.observe(tookInNanos / 1E9);
+        }
+
+        @Override
+        public void onDfsPhase(SearchContext context, long tookInNanos) {
+            dfs.observe(tookInNanos / 1E9);
+        }
+    }
+
+    static final class IndexingListener implements IndexingOperationListener {
+        private final FixedBucketHistogram index;
+        private final FixedBucketHistogram delete;
+        private final FixedBucketHistogram sourceSize;
+
+        IndexingListener(Histograms histograms) {
+            this.index = histograms.get(Operation.INDEX);
+            this.delete = histograms.get(Operation.DELETE);
+            this.sourceSize = histograms.getSourceSize();
+        }
+
+        @Override
+        public void postIndex(ShardId shardId, Engine.Index operation, Engine.IndexResult result) {
+            // Operations replayed by a recovery would skew the latencies of the live traffic.
+            if (result.getResultType() == Engine.Result.Type.SUCCESS && operation.origin().isRecovery() == false) {
+                recordIndex(result.getTook(), operation.source().estimatedSizeInBytes());
+            }
+        }
+
+        @Override
+        public void postDelete(ShardId shardId, Engine.Delete operation, Engine.DeleteResult result) {
+            if (result.getResultType() == Engine.Result.Type.SUCCESS && operation.origin().isRecovery() == false) {
+                delete.observe(result.getTook() / 1E9);
+            }
+        }
+
+        void recordIndex(long tookInNanos, int sourceBytes) {
+            index.observe(tookInNanos / 1E9);
+            sourceSize.observe(sourceBytes);
+        }
+    }
+}
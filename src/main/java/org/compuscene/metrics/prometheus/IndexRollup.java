@@ -0,0 +1,192 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.cluster.health.ClusterIndexHealth;
+import org.elasticsearch.core.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Grouping of the indices whose stats are summed up and exported as a single index.
+ * <p>
+ * Backing indices of a data stream are grouped under the name of the data stream. Other indices are grouped by the
+ * first pattern they match: under the value of the first capturing group of the pattern when it has one, under the
+ * pattern itself otherwise. Indices matching no pattern are not grouped.
+ * <p>
+ * The data streams are resolved from a single view of the cluster state for the whole collection, see
+ * {@link #grouping()}, rather than from the current cluster state for every index.
+ */
+public class IndexRollup {
+
+    private final Supplier<UnaryOperator<String>> dataStreams;
+    private volatile List<Pattern> patterns = List.of();
+
+    /**
+     * @param dataStreams gives, as of the current cluster state, the function resolving the name of the data stream
+     *                    of a backing index, {@code null} for other indices
+     */
+    public IndexRollup(Supplier<UnaryOperator<String>> dataStreams) {
+        this.dataStreams = dataStreams;
+    }
+
+    /**
+     * Replace the patterns grouping the indices which are not part of a data stream.
+     */
+    public void setPatterns(List<String> regexes) {
+        List<Pattern> compiled = new ArrayList<>(regexes.size());
+        for (String regex : regexes) {
+            compiled.add(Pattern.compile(regex));
+        }
+        patterns = List.copyOf(compiled);
+    }
+
+    /**
+     * The grouping of the indices as of now, to be used for a whole collection: gives the name of the group an index
+     * belongs to, the index name itself when it is not grouped.
+     */
+    public UnaryOperator<String> grouping() {
+        UnaryOperator<String> dataStreamOf = dataStreams.get();
+        List<Pattern> current = patterns;
+        return index -> groupOf(index, dataStreamOf, current);
+    }
+
+    private static String groupOf(String index, UnaryOperator<String> dataStreamOf, List<Pattern> patterns) {
+        String dataStream = dataStreamOf.apply(index);
+        if (dataStream != null) {
+            return dataStream;
+        }
+        for (Pattern pattern : patterns) {
+            Matcher matcher = pattern.matcher(index);
+            if (matcher.matches()) {
+                return matcher.groupCount() > 0 && matcher.group(1) != null ? matcher.group(1) : pattern.pattern();
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Health and stats of the indices of a group, summed up.
+     */
+    public static class Group {
+        private int indices;
+        private int healthIndices;
+        private int status;
+        private int replicas;
+        private int shards;
+        private int activeShards;
+        private int activePrimaryShards;
+        private int initializingShards;
+        private int relocatingShards;
+        private int unassignedShards;
+        private CommonStats total;
+        private CommonStats primaries;
+
+        /**
+         * @param health health of the index, {@code null} when the index was created or deleted between the health and
+         *               the stats requests, its stats are then summed up but its health is unknown
+         */
+        public void add(@Nullable ClusterIndexHealth health, CommonStats indexTotal, CommonStats indexPrimaries) {
+            if (health != null) {
+                // The group is as healthy as its worst index.
+                status = Math.max(status, health.getStatus().value());
+                replicas = Math.max(replicas, health.getNumberOfReplicas());
+                shards += health.getNumberOfShards();
+                activeShards += health.getActiveShards();
+                activePrimaryShards += health.getActivePrimaryShards();
+                initializingShards += health.getInitializingShards();
+                relocatingShards += health.getRelocatingShards();
+                unassignedShards += health.getUnassignedShards();
+                healthIndices++;
+            }
+            total = sum(total, indexTotal);
+            primaries = sum(primaries, indexPrimaries);
+            indices++;
+        }
+
+        private CommonStats sum(CommonStats sum, CommonStats stats) {
+            // The stats of a single index are exported as they are, they are only copied once a second one comes.
+            if (indices == 0) {
+                return stats;
+            }
+            if (indices == 1) {
+                CommonStats copy = new CommonStats();
+                copy.add(sum);
+                sum = copy;
+            }
+            sum.add(stats);
+            return sum;
+        }
+
+        public int getIndices() {
+            return indices;
+        }
+
+        /**
+         * Whether the health of at least one index of the group is known, the health values are meaningless otherwise.
+         */
+        public boolean hasHealth() {
+            return healthIndices > 0;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public int getReplicas() {
+            return replicas;
+        }
+
+        public int getShards() {
+            return shards;
+        }
+
+        public int getActiveShards() {
+            return activeShards;
+        }
+
+        public int getActivePrimaryShards() {
+            return activePrimaryShards;
+        }
+
+        public int getInitializingShards() {
+            return initializingShards;
+        }
+
+        public int getRelocatingShards() {
+            return relocatingShards;
+        }
+
+        public int getUnassignedShards() {
+            return unassignedShards;
+        }
+
+        public CommonStats getTotal() {
+            return total;
+        }
+
+        public CommonStats getPrimaries() {
+            return primaries;
+        }
+    }
+}
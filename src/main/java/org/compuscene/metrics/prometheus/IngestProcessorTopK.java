@@ -0,0 +1,159 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Selection of the ingest processors of the node which are exported one by one, the others being summed up by pipeline.
+ * <p>
+ * Processors are ranked by the time spent since a baseline of their counters, renewed once per
+ * {@link ShardTopK#RANKING_WINDOW_NANOS} like the one of the shard copies, so that processors which were only hot
+ * after the node started do not stay selected forever. The selection only changes when the baseline is renewed, the
+ * scrapes of a window all export the same series. Processors which are not selected, those added since included, are
+ * exported as the {@link #OTHER_PROCESSOR} processor of their pipeline.
+ */
+public class IngestProcessorTopK {
+
+    static final String OTHER_PROCESSOR = "other";
+
+    // Ingest time, in milliseconds, the ranking is computed against, and the next ones, by processor key.
+    private Map<String, Long> baseline = Map.of();
+    private Map<String, Long> next;
+    private long nextNanos;
+    private Set<String> selected = Set.of();
+
+    /**
+     * Select the processors exported one by one.
+     *
+     * @param processors stats of every processor of every pipeline
+     * @param k          number of processors exported one by one, all of them when negative
+     * @return the selected processors, then the others summed up by pipeline
+     */
+    public List<ProcessorRow> select(List<ProcessorRow> processors, int k) {
+        return select(processors, k, System.nanoTime());
+    }
+
+    synchronized List<ProcessorRow> select(List<ProcessorRow> processors, int k, long nowNanos) {
+        if (k < 0) {
+            return processors;
+        }
+        boolean renewed = false;
+        if (next == null || nowNanos - nextNanos >= ShardTopK.RANKING_WINDOW_NANOS) {
+            if (next != null) {
+                baseline = next;
+            }
+            next = new HashMap<>();
+            nextNanos = nowNanos;
+            renewed = true;
+        }
+        for (ProcessorRow row : processors) {
+            // Processors which are gone are forgotten with the baseline they were last seen in.
+            next.putIfAbsent(row.key(), row.getTimeMillis());
+        }
+        if (renewed) {
+            // Processors missing from the baseline are new, their counters started from zero.
+            Set<String> top = new HashSet<>();
+            for (ProcessorRow row : ShardTopK.top(processors, k,
+                    r -> Math.max(0, r.getTimeMillis() - baseline.getOrDefault(r.key(), 0L)))) {
+                top.add(row.key());
+            }
+            selected = top;
+        }
+        List<ProcessorRow> rows = new ArrayList<>();
+        Map<String, ProcessorRow> others = new TreeMap<>();
+        for (ProcessorRow row : processors) {
+            if (selected.contains(row.key())) {
+                rows.add(row);
+            } else {
+                others.merge(row.getPipeline(), row.asOther(), ProcessorRow::sum);
+            }
+        }
+        rows.addAll(others.values());
+        return rows;
+    }
+
+    /**
+     * Stats of a single processor of a pipeline, or of several processors summed up.
+     */
+    public static class ProcessorRow {
+        private final String pipeline;
+        private final int position;
+        private final String processor;
+        private final long count;
+        private final long timeMillis;
+        private final long current;
+        private final long failed;
+
+        /**
+         * @param position position of the processor in the pipeline, processor names need not be unique
+         */
+        public ProcessorRow(String pipeline, int position, String processor, long count, long timeMillis, long current,
+                            long failed) {
+            this.pipeline = pipeline;
+            this.position = position;
+            this.processor = processor;
+            this.count = count;
+            this.timeMillis = timeMillis;
+            this.current = current;
+            this.failed = failed;
+        }
+
+        private String key() {
+            return pipeline + "#" + position;
+        }
+
+        private ProcessorRow asOther() {
+            return new ProcessorRow(pipeline, -1, OTHER_PROCESSOR, count, timeMillis, current, failed);
+        }
+
+        private static ProcessorRow sum(ProcessorRow a, ProcessorRow b) {
+            return new ProcessorRow(a.pipeline, -1, OTHER_PROCESSOR, a.count + b.count, a.timeMillis + b.timeMillis,
+                    a.current + b.current, a.failed + b.failed);
+        }
+
+        public String getPipeline() {
+            return pipeline;
+        }
+
+        public String getProcessor() {
+            return processor;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public long getCurrent() {
+            return current;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import io.prometheus.client.Collector;
+
+/**
+ * Encoder of metric families to OTLP/HTTP {@code ExportMetricsServiceRequest} protobuf messages.
+ * <p>
+ * Counters become cumulative monotonic sums, gauges become gauges, histograms and summaries keep their buckets and
+ * quantiles. Gauge histograms have no OTLP equivalent and are left out. The labels shared by every series of the node,
+ * the cluster, node and node id, are the attributes of the resource of each batch instead of being repeated by every
+ * data point. Data points are spread over shards by the hash of their attributes, like remote write series, and
+ * batches are compressed with gzip. The subset of the OTLP messages written here:
+ * <pre>
+ * message ExportMetricsServiceRequest { repeated ResourceMetrics resource_metrics = 1; }
+ * message ResourceMetrics { Resource resource = 1; repeated ScopeMetrics scope_metrics = 2; }
+ * message Resource { repeated KeyValue attributes = 1; }
+ * message ScopeMetrics { InstrumentationScope scope = 1; repeated Metric metrics = 2; }
+ * message Metric { string name = 1; string description = 2; string unit = 3;
+ *                  oneof data { Gauge gauge = 5; Sum sum = 7; Histogram histogram = 9; Summary summary = 11; } }
+ * message Sum { repeated NumberDataPoint data_points = 1; AggregationTemporality temporality = 2; bool monotonic = 3; }
+ * message NumberDataPoint { fixed64 start_time_unix_nano = 2; fixed64 time_unix_nano = 3; double as_double = 4;
+ *                           repeated KeyValue attributes = 7; }
+ * message HistogramDataPoint { fixed64 start_time_unix_nano = 2; fixed64 time_unix_nano = 3; fixed64 count = 4;
+ *                              double sum = 5; repeated fixed64 bucket_counts = 6; repeated double explicit_bounds = 7;
+ *                              repeated KeyValue attributes = 9; }
+ * message SummaryDataPoint { fixed64 start_time_unix_nano = 2; fixed64 time_unix_nano = 3; fixed64 count = 4;
+ *                            double sum = 5; repeated ValueAtQuantile quantile_values = 6;
+ *                            repeated KeyValue attributes = 7; }
+ * </pre>
+ */
+final class OtlpEncoder {
+
+    static final Map<String, String> HEADERS = Map.of(
+            "Content-Type", "application/x-protobuf",
+            "Content-Encoding", "gzip");
+
+    private static final String SCOPE_NAME = "elasticsearch-prometheus-exporter";
+    private static final int CUMULATIVE = 2;
+    private static final int GAUGE = 5;
+    private static final int SUM = 7;
+    private static final int HISTOGRAM = 9;
+    private static final int SUMMARY = 11;
+
+    private OtlpEncoder() {
+    }
+
+    /**
+     * Encode the samples of the given families, all stamped with the same timestamp.
+     *
+     * @param resource      labels moved to the resource attributes, when their value is the same
+     * @param startMs       time since which the counters, histograms and summaries are counting
+     * @param shards        number of shards the data points are spread over
+     * @param maxDataPoints maximum number of data points of a batch
+     * @return the batches of every shard
+     */
+    static List<List<RemoteWriteSender.Batch>> encode(List<Collector.MetricFamilySamples> families,
+                                                      Map<String, String> resource, long startMs, long timestampMs,
+                                                      int shards, int maxDataPoints) {
+        long startNanos = TimeUnit.MILLISECONDS.toNanos(startMs);
+        long timeNanos = TimeUnit.MILLISECONDS.toNanos(timestampMs);
+        RemoteWriteEncoder.Buffer resourceMessage = new RemoteWriteEncoder.Buffer(256);
+        RemoteWriteEncoder.Buffer scratch = new RemoteWriteEncoder.Buffer(256);
+        for (Map.Entry<String, String> attribute : resource.entrySet()) {
+            resourceMessage.writeTag(1, 2);
+            writeKeyValue(resourceMessage, scratch, attribute.getKey(), attribute.getValue());
+        }
+        Shard[] states = new Shard[shards];
+        List<List<RemoteWriteSender.Batch>> batches = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            states[shard] = new Shard();
+            batches.add(new ArrayList<>());
+        }
+
+        RemoteWriteEncoder.Buffer point = new RemoteWriteEncoder.Buffer(256);
+        for (Collector.MetricFamilySamples family : families) {
+            int kind = kindOf(family.type);
+            if (kind < 0) {
+                continue;
+            }
+            for (Map.Entry<List<String>, Point> e : group(family, resource).entrySet()) {
+                int shard = Math.floorMod(31 * family.name.hashCode() + e.getKey().hashCode(), shards);
+                Shard state = states[shard];
+                e.getValue().encode(kind, e.getKey(), startNanos, timeNanos, point, scratch);
+                state.points.writeTag(1, 2);
+                state.points.writeBytes(point);
+                if (++state.count == maxDataPoints) {
+                    state.flushMetric(family, kind, scratch);
+                    batches.get(shard).add(state.flushBatch(resourceMessage, scratch));
+                }
+            }
+            for (Shard state : states) {
+                state.flushMetric(family, kind, scratch);
+            }
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            if (states[shard].count > 0) {
+                batches.get(shard).add(states[shard].flushBatch(resourceMessage, scratch));
+            }
+        }
+        return batches;
+    }
+
+    private static int kindOf(Collector.Type type) {
+        if (type == Collector.Type.COUNTER) {
+            return SUM;
+        } else if (type == Collector.Type.HISTOGRAM) {
+            return HISTOGRAM;
+        } else if (type == Collector.Type.SUMMARY) {
+            return SUMMARY;
+        } else if (type == Collector.Type.GAUGE_HISTOGRAM) {
+            return -1;
+        }
+        // Gauges, info, state sets and untyped metrics.
+        return GAUGE;
+    }
+
+    /**
+     * Group the samples of a family into data points, keyed by their attributes as a list of names and values.
+     */
+    private static Map<List<String>, Point> group(Collector.MetricFamilySamples family, Map<String, String> resource) {
+        Map<List<String>, Point> points = new LinkedHashMap<>();
+        for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+            String suffix = sample.name.substring(Math.min(family.name.length(), sample.name.length()));
+            if (suffix.equals("_created")) {
+                continue;
+            }
+            List<String> attributes = new ArrayList<>(2 * sample.labelNames.size());
+            double bound = Double.NaN;
+            for (int i = 0; i < sample.labelNames.size(); i++) {
+                String name = sample.labelNames.get(i);
+                String value = sample.labelValues.get(i);
+                if (name.equals("le") || name.equals("quantile")) {
+                    bound = value.equals("+Inf") ? Double.POSITIVE_INFINITY : Double.parseDouble(value);
+                } else if (value.equals(resource.get(name)) == false) {
+                    attributes.add(name);
+                    attributes.add(value);
+                }
+            }
+            Point point = points.computeIfAbsent(attributes, k -> new Point());
+            if (suffix.equals("_count")) {
+                point.count = sample.value;
+            } else if (suffix.equals("_sum")) {
+                point.sum = sample.value;
+            } else if (Double.isNaN(bound) == false) {
+                point.bounds.add(bound);
+                point.values.add(sample.value);
+            } else {
+                point.value = sample.value;
+            }
+        }
+        return points;
+    }
+
+    private static void writeKeyValue(RemoteWriteEncoder.Buffer out, RemoteWriteEncoder.Buffer scratch, String key,
+                                      String value) {
+        scratch.reset();
+        scratch.writeTag(1, 2);
+        scratch.writeString(value);
+        int valueSize = scratch.size();
+        RemoteWriteEncoder.Buffer keyValue = new RemoteWriteEncoder.Buffer(valueSize + key.length() + 16);
+        keyValue.writeTag(1, 2);
+        keyValue.writeString(key);
+        keyValue.writeTag(2, 2);
+        keyValue.writeBytes(scratch);
+        out.writeBytes(keyValue);
+    }
+
+    /**
+     * The samples of a family sharing the same attributes.
+     */
+    private static final class Point {
+        private double value;
+        private double count;
+        // The sum is optional, and left out of the histograms which do not track it.
+        private double sum = Double.NaN;
+        // Bucket upper bounds and cumulative counts of histograms, quantiles and values of summaries.
+        private final List<Double> bounds = new ArrayList<>();
+        private final List<Double> values = new ArrayList<>();
+
+        private void encode(int kind, List<String> attributes, long startNanos, long timeNanos,
+                            RemoteWriteEncoder.Buffer out, RemoteWriteEncoder.Buffer scratch) {
+            out.reset();
+            if (kind != GAUGE) {
+                out.writeTag(2, 1);
+                out.writeFixed64(startNanos);
+            }
+            out.writeTag(3, 1);
+            out.writeFixed64(timeNanos);
+            int attributesField = 7;
+            if (kind == HISTOGRAM) {
+                out.writeTag(4, 1);
+                out.writeFixed64((long) count);
+                if (Double.isNaN(sum) == false) {
+                    out.writeTag(5, 1);
+                    out.writeDouble(sum);
+                }
+                // Prometheus buckets are cumulative and end with +Inf, OTLP ones are not and have an implicit last bound.
+                scratch.reset();
+                double previous = 0;
+                for (double bucket : values) {
+                    scratch.writeFixed64((long) (bucket - previous));
+                    previous = bucket;
+                }
+                out.writeTag(6, 2);
+                out.writeBytes(scratch);
+                scratch.reset();
+                for (int i = 0; i < bounds.size() - 1; i++) {
+                    scratch.writeDouble(bounds.get(i));
+                }
+                out.writeTag(7, 2);
+                out.writeBytes(scratch);
+                attributesField = 9;
+            } else if (kind == SUMMARY) {
+                out.writeTag(4, 1);
+                out.writeFixed64((long) count);
+                out.writeTag(5, 1);
+                out.writeDouble(sum);
+                for (int i = 0; i < bounds.size(); i++) {
+                    scratch.reset();
+                    scratch.writeTag(1, 1);
+                    scratch.writeDouble(bounds.get(i));
+                    scratch.writeTag(2, 1);
+                    scratch.writeDouble(values.get(i));
+                    out.writeTag(6, 2);
+                    out.writeBytes(scratch);
+                }
+            } else {
+                out.writeTag(4, 1);
+                out.writeDouble(value);
+            }
+            for (int i = 0; i < attributes.size(); i += 2) {
+                out.writeTag(attributesField, 2);
+                writeKeyValue(out, scratch, attributes.get(i), attributes.get(i + 1));
+            }
+        }
+    }
+
+    /**
+     * The batch being encoded for a shard.
+     */
+    private static final class Shard {
+        // Data points of the current family, and metrics of the current batch.
+        private final RemoteWriteEncoder.Buffer points = new RemoteWriteEncoder.Buffer(1 << 12);
+        private final RemoteWriteEncoder.Buffer metrics = new RemoteWriteEncoder.Buffer(1 << 16);
+        private int count;
+
+        private void flushMetric(Collector.MetricFamilySamples family, int kind, RemoteWriteEncoder.Buffer scratch) {
+            if (points.size() == 0) {
+                return;
+            }
+            scratch.reset();
+            scratch.append(points);
+            if (kind == SUM || kind == HISTOGRAM) {
+                scratch.writeTag(2, 0);
+                scratch.writeVarint(CUMULATIVE);
+            }
+            if (kind == SUM) {
+                scratch.writeTag(3, 0);
+                scratch.writeVarint(1);
+            }
+            RemoteWriteEncoder.Buffer metric = new RemoteWriteEncoder.Buffer(scratch.size() + 256);
+            metric.writeTag(1, 2);
+            metric.writeString(family.name);
+            metric.writeTag(2, 2);
+            metric.writeString(family.help);
+            String unit = unitOf(family.unit);
+            if (unit.isEmpty() == false) {
+                metric.writeTag(3, 2);
+                metric.writeString(unit);
+            }
+            metric.writeTag(kind, 2);
+            metric.writeBytes(scratch);
+            metrics.writeTag(2, 2);
+            metrics.writeBytes(metric);
+            points.reset();
+        }
+
+        private RemoteWriteSender.Batch flushBatch(RemoteWriteEncoder.Buffer resource, RemoteWriteEncoder.Buffer scratch) {
+            RemoteWriteEncoder.Buffer scopeMetrics = new RemoteWriteEncoder.Buffer(metrics.size() + 64);
+            scratch.reset();
+            scratch.writeTag(1, 2);
+            scratch.writeString(SCOPE_NAME);
+            scopeMetrics.writeTag(1, 2);
+            scopeMetrics.writeBytes(scratch);
+            scopeMetrics.append(metrics);
+            RemoteWriteEncoder.Buffer resourceMetrics = new RemoteWriteEncoder.Buffer(scopeMetrics.size() + 256);
+            resourceMetrics.writeTag(1, 2);
+            resourceMetrics.writeBytes(resource);
+            resourceMetrics.writeTag(2, 2);
+            resourceMetrics.writeBytes(scopeMetrics);
+            RemoteWriteEncoder.Buffer request = new RemoteWriteEncoder.Buffer(resourceMetrics.size() + 16);
+            request.writeTag(1, 2);
+            request.writeBytes(resourceMetrics);
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream(request.size() / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(body)) {
+                request.writeTo(gzip);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            RemoteWriteSender.Batch batch = new RemoteWriteSender.Batch(body.toByteArray(), count);
+            metrics.reset();
+            count = 0;
+            return batch;
+        }
+    }
+
+    /**
+     * The UCUM unit of a Prometheus unit, as expected by OTLP.
+     */
+    private static String unitOf(String unit) {
+        if (unit == null) {
+            return "";
+        } else if (unit.equals("seconds")) {
+            return "s";
+        } else if (unit.equals("bytes")) {
+            return "By";
+        }
+        return unit;
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NoLockFactory;
+import org.apache.lucene.store.ReadAdvice;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Background estimation of the part of the Lucene files of the node which is resident in the page cache.
+ * <p>
+ * Every round lists the files of the local shards and probes a fixed number of small regions, whatever the number of
+ * files. The probes are evenly spaced over all the files laid end to end, from a random phase, so that a file gets a
+ * probe with a probability proportional to its size and small files are probed in some rounds only. A file is mapped
+ * and {@link IndexInput#isLoaded()} of a slice asks the kernel whether all the pages of the region are resident, which
+ * reads nothing from the disk. Every probe found loaded stands for the bytes between two probes, summed by index and
+ * file type. The phase changes every round, so that the estimation does not stick to the same pages.
+ * <p>
+ * The files are opened like Lucene reads its own read once files, with an {@link MMapDirectory} and
+ * {@link IOContext#READONCE}: the file is mapped in a confined arena, which is closed, and the file unmapped, as soon
+ * as its regions are probed. Nothing is preloaded and no read advice is given, so probing does not change what is
+ * in the page cache.
+ */
+public class PageCacheSampler implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(PageCacheSampler.class);
+
+    // Size of a probed region, 16 pages of 4KiB
+    static final int REGION_BYTES = 64 * 1024;
+    static final String OTHER_TYPE = "other";
+    private static final String SEGMENTS_PREFIX = "segments";
+    private static final Pattern FILE_TYPE = Pattern.compile("[a-z0-9]{1,10}");
+
+    private final IndicesService indicesService;
+    private final ThreadPool threadPool;
+    private final TimeValue interval;
+    private final int probes;
+
+    private volatile Map<String, Map<String, Residency>> residency = Collections.emptyMap();
+    private volatile Scheduler.Cancellable scheduled;
+
+    /**
+     * @param interval time between two rounds
+     * @param probes   number of regions probed every round, over all the files of the node
+     */
+    public PageCacheSampler(IndicesService indicesService, ThreadPool threadPool, TimeValue interval, int probes) {
+        this.indicesService = indicesService;
+        this.threadPool = threadPool;
+        this.interval = interval;
+        this.probes = probes;
+    }
+
+    public void start() {
+        logger.debug("Sampling page cache residency every {} with {} probes", interval, probes);
+        scheduled = threadPool.scheduleWithFixedDelay(this::sample, interval, threadPool.generic());
+    }
+
+    @Override
+    public void close() {
+        Scheduler.Cancellable s = scheduled;
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    void sample() {
+        try {
+            List<ShardFiles> shards = new ArrayList<>();
+            long totalBytes = 0;
+            for (IndexService indexService : indicesService) {
+                for (IndexShard shard : indexService) {
+                    ShardFiles files = listFiles(indexService.index().getName(), shard.shardPath().resolveIndex());
+                    if (files != null) {
+                        shards.add(files);
+                        totalBytes += files.sizeBytes;
+                    }
+                }
+            }
+            double step = (double) totalBytes / probes;
+            double phase = ThreadLocalRandom.current().nextDouble();
+            Map<String, Map<String, Residency>> sampled = new TreeMap<>();
+            long start = 0;
+            for (ShardFiles shard : shards) {
+                probe(shard, start, step, phase, sampled);
+                start += shard.sizeBytes;
+            }
+            residency = sampled;
+        } catch (Exception e) {
+            logger.warn("Failed to sample page cache residency", e);
+        }
+    }
+
+    private static ShardFiles listFiles(String index, Path directory) {
+        ShardFiles files = new ShardFiles(index, directory);
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                long size = Files.size(path);
+                // Empty files, e.g. the write lock, have no page to probe.
+                if (size > 0) {
+                    String name = path.getFileName().toString();
+                    files.add(new IndexFile(name, fileType(name), size));
+                }
+            }
+            return files;
+        } catch (IOException e) {
+            // The shard is being closed or relocated, or a file was merged away in the meantime.
+            logger.debug("Failed to list the files of [{}]", directory);
+            return null;
+        }
+    }
+
+    private static void probe(ShardFiles shard, long start, double step, double phase,
+                              Map<String, Map<String, Residency>> sampled) {
+        try (MMapDirectory directory = new MMapDirectory(shard.directory, NoLockFactory.INSTANCE)) {
+            directory.setPreload((name, context) -> false);
+            directory.setReadAdvice((name, context) -> Optional.of(ReadAdvice.NORMAL));
+            long fileStart = start;
+            for (IndexFile file : shard.files) {
+                long[] offsets = probeOffsets(fileStart, file.size, step, phase);
+                fileStart += file.size;
+                int loaded = offsets.length == 0 ? 0 : probe(directory, file, offsets);
+                if (loaded >= 0) {
+                    sampled.computeIfAbsent(shard.index, i -> new TreeMap<>())
+                            .computeIfAbsent(file.type, t -> new Residency())
+                            .add(file.size, Math.round(loaded * step));
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to probe the files of [{}]", shard.directory);
+        }
+    }
+
+    private static int probe(Directory directory, IndexFile file, long[] offsets) {
+        try (IndexInput input = directory.openInput(file.name, IOContext.READONCE)) {
+            return loadedRegions(input, Math.min(file.size, input.length()), offsets);
+        } catch (IOException e) {
+            logger.debug("Failed to probe [{}]", file.name);
+            return -1;
+        }
+    }
+
+    /**
+     * Lucene file extension, e.g. {@code tim} or {@code dvd}, or {@code segments} for the commit points.
+     */
+    static String fileType(String fileName) {
+        if (fileName.startsWith(SEGMENTS_PREFIX)) {
+            return SEGMENTS_PREFIX;
+        }
+        int dot = fileName.lastIndexOf('.');
+        if (dot < 0) {
+            return OTHER_TYPE;
+        }
+        String type = fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return FILE_TYPE.matcher(type).matches() ? type : OTHER_TYPE;
+    }
+
+    /**
+     * Offset of the regions of a file hit by the probes of a round. The probes are spaced by the given step over all the
+     * files laid end to end and shifted by the given phase, in [0, 1), the file starting at the given position.
+     */
+    static long[] probeOffsets(long start, long size, double step, double phase) {
+        long first = (long) Math.ceil(start / step - phase);
+        long end = (long) Math.ceil((start + size) / step - phase);
+        long[] offsets = new long[(int) Math.max(0, end - first)];
+        long last = Math.max(0, size - REGION_BYTES);
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = Math.min(last, Math.max(0, (long) ((first + i + phase) * step) - start));
+        }
+        return offsets;
+    }
+
+    /**
+     * @param input a mapped input of the file
+     * @return the number of regions at the given offsets which are in the page cache, or -1 if the input is not mapped
+     */
+    static int loadedRegions(IndexInput input, long size, long[] offsets) throws IOException {
+        int loaded = 0;
+        for (long offset : offsets) {
+            Optional<Boolean> isLoaded = input.slice("probe", offset, Math.min(REGION_BYTES, size - offset)).isLoaded();
+            if (isLoaded.isEmpty()) {
+                return -1;
+            }
+            if (isLoaded.get()) {
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Residency of the files of every index allocated to the node, by file type, as of the last round.
+     */
+    public Map<String, Map<String, Residency>> getResidency() {
+        return residency;
+    }
+
+    private static final class ShardFiles {
+        private final String index;
+        private final Path directory;
+        private final List<IndexFile> files = new ArrayList<>();
+        private long sizeBytes;
+
+        private ShardFiles(String index, Path directory) {
+            this.index = index;
+            this.directory = directory;
+        }
+
+        private void add(IndexFile file) {
+            files.add(file);
+            sizeBytes += file.size;
+        }
+    }
+
+    private static final class IndexFile {
+        private final String name;
+        private final String type;
+        private final long size;
+
+        private IndexFile(String name, String type, long size) {
+            this.name = name;
+            this.type = type;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Size of the files of an index and type, and the estimation of how much of them is in the page cache. Files too
+     * small to be probed every round make the estimation of a small index noisy, yet right on average over the rounds.
+     */
+    public static class Residency {
+        private long sizeBytes;
+        private long residentBytes;
+
+        private void add(long size, long resident) {
+            sizeBytes += size;
+            residentBytes += resident;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getResidentBytes() {
+            return Math.min(sizeBytes, residentBytes);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.cluster.service.PendingClusterTask;
+import org.elasticsearch.common.Priority;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Count and time in queue of the cluster state update tasks pending on the elected master, by source.
+ * <p>
+ * The tasks are read from the master service of the node, no pending tasks request is sent. Task sources carry the
+ * names of indices, nodes or shards, e.g. {@code put-mapping [logs/uuid][_doc]}, so only their leading word is kept,
+ * which is the kind of update. The number of sources is bounded on top of that, the least frequent ones are counted
+ * as {@value #OTHER_SOURCE}.
+ */
+public class PendingClusterTasks {
+
+    /**
+     * Bucket upper bounds, in seconds, from 10 milliseconds to about 45 minutes.
+     */
+    public static final double[] TIME_IN_QUEUE_BOUNDS = FixedBucketHistogram.exponentialBounds(0.01, 4, 10);
+
+    static final int MAX_SOURCES = 30;
+    static final String OTHER_SOURCE = "other";
+    private static final int MAX_SOURCE_LENGTH = 64;
+    private static final Pattern SOURCE_KIND = Pattern.compile("^[A-Za-z0-9_.-]+");
+
+    private final Map<String, SourceTasks> sources = new TreeMap<>();
+    private final FixedBucketHistogram timesInQueue = new FixedBucketHistogram(TIME_IN_QUEUE_BOUNDS);
+
+    /**
+     * Aggregate the tasks pending on the master service, none unless the node is the elected master.
+     */
+    public static PendingClusterTasks of(ClusterService clusterService) {
+        if (clusterService.state().nodes().isLocalNodeElectedMaster() == false) {
+            return new PendingClusterTasks();
+        }
+        return of(clusterService.getMasterService().pendingTasks());
+    }
+
+    static PendingClusterTasks of(List<PendingClusterTask> tasks) {
+        Map<String, SourceTasks> bySource = new HashMap<>();
+        PendingClusterTasks pending = new PendingClusterTasks();
+        for (PendingClusterTask task : tasks) {
+            double timeInQueue = task.getTimeInQueueInMillis() / 1E3;
+            pending.timesInQueue.observe(timeInQueue);
+            bySource.computeIfAbsent(normalize(task.getSource().string()), s -> new SourceTasks())
+                    .add(task.getPriority(), timeInQueue);
+        }
+        List<Map.Entry<String, SourceTasks>> ranked = new ArrayList<>(bySource.entrySet());
+        ranked.sort(Map.Entry.<String, SourceTasks>comparingByValue((a, b) -> Long.compare(b.getTotal(), a.getTotal()))
+                .thenComparing(Map.Entry.comparingByKey()));
+        for (int i = 0; i < ranked.size(); i++) {
+            String source = ranked.size() <= MAX_SOURCES || i < MAX_SOURCES - 1 ? ranked.get(i).getKey() : OTHER_SOURCE;
+            pending.sources.merge(source, ranked.get(i).getValue(), SourceTasks::merge);
+        }
+        return pending;
+    }
+
+    static String normalize(String source) {
+        Matcher matcher = SOURCE_KIND.matcher(source);
+        if (matcher.find() == false) {
+            return OTHER_SOURCE;
+        }
+        String kind = matcher.group();
+        return kind.length() > MAX_SOURCE_LENGTH ? kind.substring(0, MAX_SOURCE_LENGTH) : kind;
+    }
+
+    /**
+     * Tasks of every source with at least one pending task, sorted by source.
+     */
+    public Map<String, SourceTasks> getSources() {
+        return Collections.unmodifiableMap(sources);
+    }
+
+    /**
+     * Time in queue distribution of all the pending tasks, in seconds.
+     */
+    public FixedBucketHistogram getTimesInQueue() {
+        return timesInQueue;
+    }
+
+    /**
+     * Pending tasks of a single source.
+     */
+    public static class SourceTasks {
+        private final long[] byPriority = new long[Priority.values().length];
+        private double maxTimeInQueue;
+
+        private void add(Priority priority, double timeInQueue) {
+            byPriority[priority.ordinal()]++;
+            maxTimeInQueue = Math.max(maxTimeInQueue, timeInQueue);
+        }
+
+        private SourceTasks merge(SourceTasks other) {
+            for (int i = 0; i < byPriority.length; i++) {
+                byPriority[i] += other.byPriority[i];
+            }
+            maxTimeInQueue = Math.max(maxTimeInQueue, other.maxTimeInQueue);
+            return this;
+        }
+
+        public long getPending(Priority priority) {
+            return byPriority[priority.ordinal()];
+        }
+
+        public long getTotal() {
+            long total = 0;
+            for (long count : byPriority) {
+                total += count;
+            }
+            return total;
+        }
+
+        /**
+         * Time in queue of the oldest pending task, in seconds.
+         */
+        public double getMaxTimeInQueue() {
+            return maxTimeInQueue;
+        }
+    }
+}
@@ -19,10 +19,21 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.rest.prometheus.RestPrometheusMetricsAction;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Enumeration;
@@ -45,8 +56,11 @@ public class PrometheusMetricsCatalog {
     private final String metricPrefix;
 
     private final HashMap<String, Object> metrics;
+    private final HashMap<String, CallbackCollector.Source<?>> sources;
     private final CollectorRegistry registry;
 
+    private Map<String, Integer> lastSeriesCounts = Collections.emptyMap();
+
     public PrometheusMetricsCatalog(String clusterName, String nodeName, String nodeId, String metricPrefix) {
         this.clusterName = clusterName;
         this.nodeName = nodeName;
@@ -55,10 +69,23 @@ public class PrometheusMetricsCatalog {
         this.metricPrefix = metricPrefix;
 
         metrics = new HashMap<>();
+        sources = new HashMap<>();
         registry = new CollectorRegistry();
         DefaultExports.register(registry);
     }
 
+    public String getClusterName() {
+        return clusterName;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
     private String[] getExtendedClusterLabelNames(String... labelNames) {
         String[] extended = new String[labelNames.length + 1];
         extended[0] = "cluster";
@@ -183,6 +210,76 @@ public class PrometheusMetricsCatalog {
         counter.labels(getExtendedClusterLabelValues(labelValues)).inc(value);
     }
 
+    /**
+     * Register rows of a stats snapshot that callback families can read from.
+     *
+     * @param source      name of the source, referenced by the callback families
+     * @param labelValues label values of a row, in the same order as {@code labels}
+     * @param labels      label names of every row, the cluster label excluded
+     */
+    public <T> void registerClusterSource(String source, Function<T, String[]> labelValues, String... labels) {
+        sources.put(source, new CallbackCollector.Source<T>(
+                List.of(getExtendedClusterLabelNames(labels)),
+                row -> List.of(getExtendedClusterLabelValues(labelValues.apply(row)))
+        ));
+
+        logger.debug(String.format(Locale.ENGLISH, "Registered new cluster source %s", source));
+    }
+
+    /**
+     * Point all the callback families of the source to a new snapshot.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> void setSource(String source, Collection<T> rows) {
+        ((CallbackCollector.Source<T>) sources.get(source)).swap(rows);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void registerCallback(String metric, String unit, Collector.Type type, String help, String source,
+                                      String label, Map<String, ToDoubleFunction<T>> values) {
+        CallbackCollector<T> collector = new CallbackCollector<>(
+                metricPrefix + metric,
+                unit,
+                type,
+                help,
+                (CallbackCollector.Source<T>) sources.get(source),
+                label,
+                values
+        );
+        registry.register(collector);
+
+        metrics.put(metric, collector);
+
+        logger.debug(String.format(Locale.ENGLISH, "Registered new callback %s %s", type, metric));
+    }
+
+    public <T> void registerClusterCallbackGaugeUnit(String metric, String unit, String help, String source,
+                                                     ToDoubleFunction<T> value) {
+        registerCallback(metric, unit, Collector.Type.GAUGE, help, source, null, Collections.singletonMap(null, value));
+    }
+
+    public <T> void registerClusterCallbackGauge(String metric, String help, String source, ToDoubleFunction<T> value) {
+        registerClusterCallbackGaugeUnit(metric, "", help, source, value);
+    }
+
+    /**
+     * Register a callback gauge with an additional label in front of the source labels, one value per extractor.
+     */
+    public <T> void registerClusterCallbackGaugeUnit(String metric, String unit, String help, String source,
+                                                     String label, Map<String, ToDoubleFunction<T>> values) {
+        registerCallback(metric, unit, Collector.Type.GAUGE, help, source, label, values);
+    }
+
+    public <T> void registerClusterCallbackCounterUnit(String metric, String unit, String help, String source,
+                                                       ToDoubleFunction<T> value) {
+        registerCallback(metric, unit, Collector.Type.COUNTER, help, source, null, Collections.singletonMap(null, value));
+    }
+
+    public <T> void registerClusterCallbackCounter(String metric, String help, String source,
+                                                   ToDoubleFunction<T> value) {
+        registerClusterCallbackCounterUnit(metric, "", help, source, value);
+    }
+
     public void registerClusterGaugeUnit(String metric, String unit, String help, String... labels) {
         Gauge gauge = Gauge.build().
                 name(metricPrefix + metric).
@@ -288,13 +385,93 @@ public class PrometheusMetricsCatalog {
         return summary.labels(getExtendedNodeLabelValues(labelValues)).startTimer();
     }
 
+    public void registerNodeHistogramUnit(String metric, String unit, String help, String... labels) {
+        HistogramCollector histogram = new HistogramCollector(
+                metricPrefix + metric,
+                unit,
+                help,
+                getExtendedNodeLabelNames(labels)
+        );
+        registry.register(histogram);
+
+        metrics.put(metric, histogram);
+
+        logger.debug(String.format(Locale.ENGLISH, "Registered new node histogram %s", metric));
+    }
+
+    public void registerNodeGaugeHistogramUnit(String metric, String unit, String help, String... labels) {
+        HistogramCollector histogram = new HistogramCollector(
+                Collector.Type.GAUGE_HISTOGRAM,
+                metricPrefix + metric,
+                unit,
+                help,
+                getExtendedNodeLabelNames(labels)
+        );
+        registry.register(histogram);
+
+        metrics.put(metric, histogram);
+
+        logger.debug(String.format(Locale.ENGLISH, "Registered new node gauge histogram %s", metric));
+    }
+
+    public void registerNodeHistogram(String metric, String help, String... labels) {
+        registerNodeHistogramUnit(metric, "", help, labels);
+    }
+
+    public void setNodeHistogram(String metric, FixedBucketHistogram value, String... labelValues) {
+        setNodeHistogram(metric, value.getUpperBounds(), value.getCumulativeCounts(), value.getSum(), labelValues);
+    }
+
+    public void setNodeHistogram(String metric, double[] upperBounds, long[] cumulativeCounts, double sum,
+                                 String... labelValues) {
+        HistogramCollector histogram = (HistogramCollector) metrics.get(metric);
+        histogram.set(upperBounds, cumulativeCounts, sum, getExtendedNodeLabelValues(labelValues));
+    }
+
     public String getContentType(String acceptHeader) {
         return TextFormat.chooseContentType(acceptHeader);
     }
 
     public String toTextFormat(String contentType) throws IOException {
+        List<Collector.MetricFamilySamples> families = Collections.list(registry.metricFamilySamples());
+
+        Map<String, Integer> seriesCounts = new LinkedHashMap<>();
+        for (Collector.MetricFamilySamples family : families) {
+            seriesCounts.put(family.name, family.samples.size());
+        }
+        lastSeriesCounts = seriesCounts;
+
         Writer writer = new StringWriter();
-        TextFormat.writeFormat(contentType, writer, registry.metricFamilySamples());
+        TextFormat.writeFormat(contentType, writer, Collections.enumeration(families));
         return writer.toString();
     }
+
+    /**
+     * Write the metrics to the given stream. The text format 0.0.4 is written by the given long living encoder,
+     * any other format by the simpleclient.
+     */
+    public void writeTo(String contentType, OutputStream out, TextExpositionEncoder encoder) throws IOException {
+        if (TextFormat.CONTENT_TYPE_004.equals(contentType)) {
+            lastSeriesCounts = encoder.write(out, Collections.list(registry.metricFamilySamples()));
+            return;
+        }
+
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write(toTextFormat(contentType));
+        writer.flush();
+    }
+
+    /**
+     * Current samples of every registered family.
+     */
+    public List<Collector.MetricFamilySamples> collect() {
+        return Collections.list(registry.metricFamilySamples());
+    }
+
+    /**
+     * Number of samples of every family written by the last call to {@link #toTextFormat(String)}.
+     */
+    public Map<String, Integer> getLastSeriesCounts() {
+        return lastSeriesCounts;
+    }
 }
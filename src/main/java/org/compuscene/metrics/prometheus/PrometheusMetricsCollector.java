@@ -29,16 +29,21 @@ import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
 import org.elasticsearch.action.admin.indices.stats.CommonStats;
 import org.elasticsearch.action.admin.indices.stats.IndexStats;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
+import org.elasticsearch.cluster.coordination.ClusterStateSerializationStats;
 import org.elasticsearch.cluster.health.ClusterHealthStatus;
 import org.elasticsearch.cluster.health.ClusterIndexHealth;
-import org.elasticsearch.cluster.metadata.ProjectId;
 import org.elasticsearch.cluster.node.DiscoveryNodeRole;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.cluster.service.ClusterStateUpdateStats;
+import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.util.concurrent.TaskExecutionTimeTrackingEsThreadPoolExecutor;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.common.xcontent.ChunkedToXContent;
 import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.http.HttpStats;
+import org.elasticsearch.index.shard.DenseVectorStats;
 import org.elasticsearch.index.stats.IndexingPressureStats;
 import org.elasticsearch.indices.NodeIndicesStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
@@ -52,9 +57,15 @@ import org.elasticsearch.node.AdaptiveSelectionStats;
 import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.rest.prometheus.RestPrometheusMetricsAction;
 import org.elasticsearch.script.ScriptStats;
+import org.elasticsearch.tasks.TaskManager;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.threadpool.ThreadPoolStats;
+import org.elasticsearch.transport.TransportActionStats;
 import org.elasticsearch.transport.TransportStats;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
 import io.prometheus.client.Summary;
 
 /**
@@ -66,23 +77,106 @@ public class PrometheusMetricsCollector {
     private final boolean isPrometheusClusterSettings;
     private final boolean isPrometheusIndices;
     private final PrometheusMetricsCatalog catalog;
+    private final PrometheusSelfMetrics selfMetrics;
+    private final PrometheusSampler sampler;
+    private final IndexOperationHistograms indexOperationHistograms;
+    private final ActionLatencyFilter actionLatencyFilter;
+    private final TaskManager taskManager;
+    private final ThreadPool threadPool;
+    private final ClusterService clusterService;
+    private final ShardTopK shardTopK;
+    private final IndexRollup indexRollup;
+    private final RemoteWriteSender remoteWriteSender;
+    private final DiskWatermarkHeadroom diskWatermarkHeadroom;
+    private final PageCacheSampler pageCacheSampler;
+    private final int shardsTopK;
+    private final List<String> transportActions;
+    private final int clusterApplierTopK;
+    private final int ingestProcessorsTopK;
+    private final IngestProcessorTopK ingestProcessorTopK;
+
+    private static final String INDEX_CONTEXT_SOURCE = "index_context";
+    private static final String SHARD_SOURCE = "shard";
+    private static final String DISK_HEADROOM_SOURCE = "disk_headroom";
+
+    // Off-heap components of the dense vectors, by file extension of the Lucene vector formats.
+    private static final Map<String, String> DENSE_VECTOR_COMPONENTS = Map.of(
+        "vec", "vectors",
+        "vex", "graph",
+        "veq", "quantized",
+        "veb", "quantized",
+        "cenivf", "ivf",
+        "clivf", "ivf"
+    );
+    private static final String[] DENSE_VECTOR_COMPONENT_LABELS = {"vectors", "graph", "quantized", "ivf", "other"};
+
+    private static final IndexOperationHistograms.Operation[] SEARCH_PHASES = {
+        IndexOperationHistograms.Operation.QUERY,
+        IndexOperationHistograms.Operation.FETCH,
+        IndexOperationHistograms.Operation.DFS
+    };
+    private static final IndexOperationHistograms.Operation[] INDEXING_OPERATIONS = {
+        IndexOperationHistograms.Operation.INDEX,
+        IndexOperationHistograms.Operation.DELETE
+    };
+
+    /**
+     * Stats of an index, either summed over all its shards or over its primary shards only.
+     */
+    private static final class IndexContextStats {
+        private final String index;
+        private final String context;
+        private final CommonStats stats;
+
+        private IndexContextStats(String index, String context, CommonStats stats) {
+            this.index = index;
+            this.context = context;
+            this.stats = stats;
+        }
+    }
 
-    public PrometheusMetricsCollector(PrometheusMetricsCatalog catalog,
-                                      boolean isPrometheusIndices,
-                                      boolean isPrometheusClusterSettings) {
-        this.isPrometheusClusterSettings = isPrometheusClusterSettings;
-        this.isPrometheusIndices = isPrometheusIndices;
+    /**
+     * @param settings dynamic settings, read once for the whole collection
+     */
+    public PrometheusMetricsCollector(PrometheusMetricsCatalog catalog, PrometheusMetricsSources sources,
+                                      PrometheusSettings settings) {
+        this.isPrometheusClusterSettings = settings.getPrometheusClusterSettings();
+        this.isPrometheusIndices = settings.getPrometheusIndices();
         this.catalog = catalog;
+        this.selfMetrics = sources.getSelfMetrics();
+        this.sampler = sources.getSampler();
+        this.indexOperationHistograms = sources.getIndexOperationHistograms();
+        this.actionLatencyFilter = sources.getActionLatencyFilter();
+        this.taskManager = sources.getTaskManager();
+        this.threadPool = sources.getThreadPool();
+        this.clusterService = sources.getClusterService();
+        this.shardTopK = sources.getShardTopK();
+        this.ingestProcessorTopK = sources.getIngestProcessorTopK();
+        this.shardsTopK = settings.getPrometheusShardsTopK();
+        this.indexRollup = settings.getPrometheusIndicesRollup() ? sources.getIndexRollup() : null;
+        this.remoteWriteSender = sources.getRemoteWriteSender();
+        this.diskWatermarkHeadroom = sources.getDiskWatermarkHeadroom();
+        this.pageCacheSampler = sources.getPageCacheSampler();
+        this.transportActions = settings.getPrometheusTransportActions();
+        this.clusterApplierTopK = settings.getPrometheusClusterApplierTopK();
+        this.ingestProcessorsTopK = settings.getPrometheusIngestProcessorsTopK();
     }
 
     public void registerMetrics() {
         catalog.registerSummaryTimer("metrics_generate_time_seconds", "Time spent while generating metrics");
+        registerSelfMetrics();
 
         registerClusterMetrics();
         registerNodeMetrics();
         registerIndicesMetrics();
         registerPerIndexMetrics();
+        registerIndexOperationMetrics();
+        if (isShardMetrics()) {
+            registerShardMetrics();
+        }
         registerTransportMetrics();
+        registerActionMetrics();
+        registerTaskMetrics();
         registerHTTPMetrics();
         registerThreadPoolMetrics();
         registerIngestMetrics();
@@ -93,9 +187,57 @@ public class PrometheusMetricsCollector {
         registerOsMetrics();
         registerFsMetrics();
         registerESSettings();
+        registerDiskWatermarkHeadroom();
         registerIndexingPressure();
         registerAdaptiveSelection();
         registerDiscovery();
+        if (sampler != null) {
+            registerSampledMetrics();
+        }
+        if (pageCacheSampler != null) {
+            registerPageCacheMetrics();
+        }
+    }
+
+    @SuppressWarnings("checkstyle:LineLength")
+    private void registerSelfMetrics() {
+        catalog.registerNodeHistogramUnit("metrics_request_time", "seconds", "Time spent by the exporter waiting for each internal statistics request", "request");
+        catalog.registerNodeHistogramUnit("metrics_phase_time", "seconds", "Time spent by the exporter in each phase of a scrape", "phase");
+        catalog.registerNodeCounterUnit("metrics_exposition", "bytes", "Total size, in bytes, of the metrics responses produced by the exporter");
+        catalog.registerNodeGauge("metrics_family_series_number", "Number of series written for the metric family by the previous scrape", "family");
+        catalog.registerNodeCounter("metrics_scrape_failures", "Total number of scrapes which failed to produce metrics", "cause");
+        if (remoteWriteSender != null) {
+            catalog.registerNodeCounter("remote_write_samples", "Total number of samples pushed to the remote write receiver, by outcome", "result");
+            catalog.registerNodeCounter("remote_write_retries", "Total number of remote write requests sent again after a failure");
+            catalog.registerNodeCounter("remote_write_dropped_pushes", "Total number of pushes dropped as a whole while the remote write receiver was falling behind");
+            catalog.registerNodeGauge("remote_write_queue_batches", "Number of remote write batches waiting to be sent", "shard");
+        }
+    }
+
+    private void updateSelfMetrics() {
+        for (PrometheusSelfMetrics.Request r : PrometheusSelfMetrics.Request.values()) {
+            catalog.setNodeHistogram("metrics_request_time", selfMetrics.getRequestHistogram(r), r.label());
+        }
+        for (PrometheusSelfMetrics.Phase p : PrometheusSelfMetrics.Phase.values()) {
+            catalog.setNodeHistogram("metrics_phase_time", selfMetrics.getPhaseHistogram(p), p.label());
+        }
+        catalog.setNodeCounter("metrics_exposition", selfMetrics.getExpositionBytes());
+        for (Map.Entry<String, Integer> e : selfMetrics.getSeriesPerFamily().entrySet()) {
+            catalog.setNodeGauge("metrics_family_series_number", e.getValue(), e.getKey());
+        }
+        for (PrometheusSelfMetrics.Failure f : PrometheusSelfMetrics.Failure.values()) {
+            catalog.setNodeCounter("metrics_scrape_failures", selfMetrics.getFailureCount(f), f.label());
+        }
+        if (remoteWriteSender != null) {
+            for (RemoteWriteSender.Result r : RemoteWriteSender.Result.values()) {
+                catalog.setNodeCounter("remote_write_samples", remoteWriteSender.getSamples(r), r.label());
+            }
+            catalog.setNodeCounter("remote_write_retries", remoteWriteSender.getRetries());
+            catalog.setNodeCounter("remote_write_dropped_pushes", remoteWriteSender.getDroppedPushes());
+            for (int shard = 0; shard < remoteWriteSender.getShards(); shard++) {
+                catalog.setNodeGauge("remote_write_queue_batches", remoteWriteSender.getQueued(shard), String.valueOf(shard));
+            }
+        }
     }
 
     @SuppressWarnings("checkstyle:LineLength")
@@ -117,6 +259,10 @@ public class PrometheusMetricsCollector {
         catalog.registerClusterGauge("cluster_pending_tasks_number", "Number of pending tasks");
         catalog.registerClusterGaugeUnit("cluster_task_max_waiting_time", "seconds", "The time expressed in seconds since the earliest initiated task is waiting for being performed");
 
+        catalog.registerNodeGauge("master_pending_tasks_number", "Number of cluster state update tasks pending on the elected master, by source and priority", "source", "priority");
+        catalog.registerNodeGaugeUnit("master_pending_tasks_max_time_in_queue", "seconds", "Time in queue of the oldest cluster state update task pending on the elected master, by source", "source");
+        catalog.registerNodeGaugeHistogramUnit("master_pending_tasks_time_in_queue", "seconds", "Time in queue of the cluster state update tasks pending on the elected master");
+
         catalog.registerClusterGauge("cluster_is_timedout_bool", "If false the response returned within the period of time that is specified by the timeout parameter (30s by default)");
         catalog.registerClusterGauge("cluster_inflight_fetch_number", "The number of unfinished fetches");
     }
@@ -148,6 +294,21 @@ public class PrometheusMetricsCollector {
         }
     }
 
+    private void updatePendingClusterTasks() {
+        PendingClusterTasks tasks = PendingClusterTasks.of(clusterService);
+        for (Map.Entry<String, PendingClusterTasks.SourceTasks> e : tasks.getSources().entrySet()) {
+            for (Priority priority : Priority.values()) {
+                long pending = e.getValue().getPending(priority);
+                if (pending > 0) {
+                    catalog.setNodeGauge("master_pending_tasks_number", pending, e.getKey(),
+                            priority.name().toLowerCase(Locale.ROOT));
+                }
+            }
+            catalog.setNodeGauge("master_pending_tasks_max_time_in_queue", e.getValue().getMaxTimeInQueue(), e.getKey());
+        }
+        catalog.setNodeHistogram("master_pending_tasks_time_in_queue", tasks.getTimesInQueue());
+    }
+
     private void registerNodeMetrics() {
         catalog.registerNodeGauge("node_role_bool", "Node role", "role");
         catalog.registerNodeInfo(
@@ -301,6 +462,7 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGaugeUnit("indices_node_mapping_total_estimated_overhead", "bytes", "Estimated heap overhead, in bytes, of mappings on this node, which allows for 1kiB of heap for every mapped field.");
 
         catalog.registerNodeGauge("indices_node_dense_vector_total_count", "Number of dense vector indexed across all shards assigned to the node.");
+        catalog.registerNodeGaugeUnit("indices_node_dense_vector_off_heap", "bytes", "Size of the off-heap dense vector data of the shards assigned to the node, by component, which should fit in the page cache for fast vector search", "component");
     }
 
     @SuppressWarnings("checkstyle:LineLength")
@@ -422,6 +584,9 @@ public class PrometheusMetricsCollector {
             catalog.setNodeGauge("indices_node_mapping_total_estimated_overhead", idx.getNodeMappingStats().getTotalEstimatedOverhead().getBytes());
 
             catalog.setNodeGauge("indices_node_dense_vector_total_count", idx.getDenseVectorStats().getValueCount());
+            for (String component : DENSE_VECTOR_COMPONENT_LABELS) {
+                catalog.setNodeGauge("indices_node_dense_vector_off_heap", denseVectorOffHeap(idx.getDenseVectorStats(), component), component);
+            }
         }
     }
 
@@ -430,246 +595,285 @@ public class PrometheusMetricsCollector {
         catalog.registerClusterGauge("index_status", "Index status", "index");
         catalog.registerClusterGauge("index_replicas_number", "Number of replicas", "index");
         catalog.registerClusterGauge("index_shards_number", "Number of shards", "type", "index");
+        if (indexRollup != null) {
+            catalog.registerClusterGauge("index_rollup_indices_number", "Number of indices summed up in the rolled up index", "index");
+        }
+
+        catalog.registerClusterSource(INDEX_CONTEXT_SOURCE, (IndexContextStats ics) -> new String[]{ics.index, ics.context}, "index", "context");
 
-        catalog.registerClusterGauge("index_doc_number", "The number of documents as reported by Lucene. This excludes deleted documents and counts any nested documents separately from their parents. It also excludes documents which were indexed recently and do not yet belong to a segment", "index", "context");
-        catalog.registerClusterGauge("index_doc_deleted_number", "The number of deleted documents as reported by Lucene, which may be higher or lower than the number of delete operations you have performed. This number excludes deletes that were performed recently and do not yet belong to a segment", "index", "context");
+        registerIndexContextGauge("index_doc_number", "The number of documents as reported by Lucene. This excludes deleted documents and counts any nested documents separately from their parents. It also excludes documents which were indexed recently and do not yet belong to a segment", idx -> idx.getDocs().getCount());
+        registerIndexContextGauge("index_doc_deleted_number", "The number of deleted documents as reported by Lucene, which may be higher or lower than the number of delete operations you have performed. This number excludes deletes that were performed recently and do not yet belong to a segment", idx -> idx.getDocs().getDeleted());
 
-        catalog.registerClusterGaugeUnit("index_store_size", "bytes", "Store size of the indices in bytes", "index", "context");
+        registerIndexContextGaugeUnit("index_store_size", "bytes", "Store size of the indices in bytes", idx -> idx.getStore().sizeInBytes());
         // 'total_data_set_size' and 'reserved' seem to be relevant only for nodes
 
-        catalog.registerClusterGauge("index_indexing_delete_count", "Total number of deletion operations", "index", "context");
-        catalog.registerClusterGauge("index_indexing_delete_current_number", "Number of deletion operations currently running", "index", "context");
-        catalog.registerClusterGaugeUnit("index_indexing_delete_time", "seconds", "Time in seconds spent performing deletion operations", "index", "context");
-        catalog.registerClusterGauge("index_indexing_index_count", "Total number of indexing operations", "index", "context");
-        catalog.registerClusterGauge("index_indexing_index_current_number", "Number of indexing operations currently running", "index", "context");
-        catalog.registerClusterGauge("index_indexing_index_failed_count", "Total number of failed indexing operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_indexing_index_time", "seconds", "Total time in seconds spent performing indexing operations", "index", "context");
-        catalog.registerClusterGauge("index_indexing_noop_update_count", "Total number of noop operations", "index", "context");
-        catalog.registerClusterGauge("index_indexing_is_throttled_bool", "Is indexing throttling ?", "index", "context");
-        catalog.registerClusterGaugeUnit("index_indexing_throttle_time", "seconds", "Total time in seconds spent throttling operations", "index", "context");
-
-        catalog.registerClusterGauge("index_get_count", "Total number of get operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_get_time", "seconds", "Time in seconds spent performing get operations", "index", "context");
-        catalog.registerClusterGauge("index_get_exists_count", "Total number of successful get operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_get_exists_time", "seconds", "Time in seconds spent performing successful get operations", "index", "context");
-        catalog.registerClusterGauge("index_get_missing_count", "Total number of failed get operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_get_missing_time", "seconds", "Time in seconds spent performing failed get operations", "index", "context");
-        catalog.registerClusterGauge("index_get_current_number", "Number of get operations currently running", "index", "context");
-
-        catalog.registerClusterGauge("index_search_open_contexts_number", "Number of open search contexts", "index", "context");
-        catalog.registerClusterGauge("index_search_fetch_count", "Total number of fetch operations", "index", "context");
-        catalog.registerClusterGauge("index_search_fetch_current_number", "Number of fetch operations currently running", "index", "context");
-        catalog.registerClusterGaugeUnit("index_search_fetch_time", "seconds", "Time in seconds spent performing fetch operations", "index", "context");
-        catalog.registerClusterGauge("index_search_query_count", "Total number of query operations", "index", "context");
-        catalog.registerClusterGauge("index_search_query_current_number", "Number of query operations currently running", "index", "context");
-        catalog.registerClusterGaugeUnit("index_search_query_time", "seconds", "Time in seconds spent performing query operations", "index", "context");
-        catalog.registerClusterGauge("index_search_scroll_count", "Total number of scroll operations", "index", "context");
-        catalog.registerClusterGauge("index_search_scroll_current_number", "Number of scroll operations currently running", "index", "context");
-        catalog.registerClusterGaugeUnit("index_search_scroll_time", "seconds", "Time in seconds spent performing scroll operations", "index", "context");
-        catalog.registerClusterCounter("index_search_suggest", "Total number of suggest operations", "index", "context");
-        catalog.registerClusterGauge("index_search_suggest_current", "Number of suggest operations currently running", "index", "context");
-        catalog.registerClusterCounterUnit("index_search_suggest_time", "seconds", "Time in seconds spent performing suggest operations", "index", "context");
-
-        catalog.registerClusterGauge("index_merges_current_number", "Number of merge operations currently running", "index", "context");
-        catalog.registerClusterGauge("index_merges_current_docs_number", "Number of document merges currently running", "index", "context");
-        catalog.registerClusterGaugeUnit("index_merges_current_size", "bytes", "Memory, in bytes, used performing current document merges", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_number", "Total number of merge operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_merges_total_time", "seconds", "Total time in seconds spent performing merge operations", "index", "context");
-        catalog.registerClusterGauge("index_merges_total_docs_count", "Total number of merged documents", "index", "context");
-        catalog.registerClusterGaugeUnit("index_merges_total_size", "bytes", "Total size of document merges in bytes", "index", "context");
-        catalog.registerClusterGaugeUnit("index_merges_total_stopped_time", "seconds", "Total time in milliseconds spent stopping merge operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_merges_total_throttled_time", "seconds", "Total time in seconds spent throttling merge operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_merges_total_auto_throttle", "bytes", "Size, in bytes, of automatically throttled merge operations", "index", "context");
-
-        catalog.registerClusterGauge("index_refresh_total_count", "Total number of refresh operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_refresh_total_time", "seconds", "Time spent while refreshes", "index", "context");
-        catalog.registerClusterCounter("index_refresh_external", "Total number of external refresh operations", "index", "context");
-        catalog.registerClusterCounterUnit("index_refresh_external_time", "seconds", "Total time in seconds spent performing external operations", "index", "context");
-        catalog.registerClusterGauge("index_refresh_listeners_number", "Number of refresh listeners", "index", "context");
-
-        catalog.registerClusterGauge("index_flush_total_count", "Total number of flush operations", "index", "context");
-        catalog.registerClusterCounter("index_flush_periodic", "Total number of flush periodic operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_flush_total_time", "seconds", "Total time in seconds spent performing flush operations", "index", "context");
-
-        catalog.registerClusterGauge("index_querycache_cache_count", "Count of queries in the query cache", "index", "context");
-        catalog.registerClusterGaugeUnit("index_querycache_cache_size", "bytes", "Size, in bytes, of the query cache", "index", "context");
-        catalog.registerClusterGauge("index_querycache_evictions_count", "Number of query cache evictions", "index", "context");
-        catalog.registerClusterGauge("index_querycache_hit_count", "Number of query cache hits", "index", "context");
-        catalog.registerClusterGaugeUnit("index_querycache_memory_size", "bytes", "Total amount of memory, in bytes, used for the query cache", "index", "context");
-        catalog.registerClusterGauge("index_querycache_miss_number", "Number of query cache misses", "index", "context");
-        catalog.registerClusterGauge("index_querycache_total_number", "Total count of hits, misses, and cached queries in the query cache", "index", "context");
-
-        catalog.registerClusterGaugeUnit("index_fielddata_memory_size", "bytes", "Total amount of memory, in bytes, used for the field data cache", "index", "context");
-        catalog.registerClusterGauge("index_fielddata_evictions_count", "Total number of fielddata evictions", "index", "context");
-
-        catalog.registerClusterGaugeUnit("index_completion_size", "bytes", "Total amount of memory, in bytes, used for completion for this index", "index", "context");
-
-        catalog.registerClusterGauge("index_segments_number", "Current number of this type of segments", "index", "context");
-        catalog.registerClusterGaugeUnit("index_segments_memory", "bytes", "al amount of memory, in bytes, used for segments of this type ", "type", "index", "context");
-        catalog.registerClusterGauge("index_segments_max_unsafe_auto_id_timestamp", "Time of the most recently retried indexing request. Recorded in seconds since the Unix Epoch.", "index", "context");
-
-        catalog.registerClusterGauge("index_suggest_current_number", "DEPRECATED: Current rate of suggests", "index", "context");
-        catalog.registerClusterGauge("index_suggest_count", "DEPRECATED: Count of suggests", "index", "context");
-        catalog.registerClusterGaugeUnit("index_suggest_time", "seconds", "DEPRECATED: Time spent while making suggests", "index", "context");
-
-        catalog.registerClusterGaugeUnit("index_requestcache_memory_size", "bytes", "Memory, in bytes, used by the request cache", "index", "context");
-        catalog.registerClusterGauge("index_requestcache_hit_count", "Number of request cache hits", "index", "context");
-        catalog.registerClusterGauge("index_requestcache_miss_count", "Number of request cache misses", "index", "context");
-        catalog.registerClusterGauge("index_requestcache_evictions_count", "Number of request cache evictions", "index", "context");
-
-        catalog.registerClusterGauge("index_recovery_current_number", "Number of recoveries that used an index shard as source or target", "type", "index", "context");
-        catalog.registerClusterGaugeUnit("index_recovery_throttle_time", "seconds", "Time in seconds recovery operations were delayed due to throttling", "index", "context");
-
-        catalog.registerClusterGauge("index_translog_operations_number", "Current number of transaction log operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_translog_size", "bytes", "Size, in bytes, of the transaction log", "index", "context");
-        catalog.registerClusterGauge("index_translog_uncommitted_operations_number", "Current number of uncommitted transaction log operations", "index", "context");
-        catalog.registerClusterGaugeUnit("index_translog_uncommitted_size", "bytes", "Size, in bytes, of uncommitted transaction log operations", "index", "context");
-        catalog.registerClusterGauge("index_translog_earliest_last_modified_age", "Earliest last modified age in seconds for the transaction log", "index", "context");
-
-        catalog.registerClusterGauge("index_warmer_current_number", "Number of active index warmers", "index", "context");
-        catalog.registerClusterGaugeUnit("index_warmer_time", "seconds", "Total time in seconds spent performing index warming operations", "index", "context");
-        catalog.registerClusterGauge("index_warmer_count", "Total number of index warmers", "index", "context");
-
-        catalog.registerClusterGauge("index_node_mapping_total_count", "Number of mappings, including <<runtime,runtime>> and <<object,object>> fields");
-        catalog.registerClusterGaugeUnit("index_node_mapping_total_estimated_overhead", "bytes", "Estimated heap overhead, in bytes, of mappings on this node, which allows for 1kiB of heap for every mapped field.");
+        registerIndexContextGauge("index_indexing_delete_count", "Total number of deletion operations", idx -> idx.getIndexing().getTotal().getDeleteCount());
+        registerIndexContextGauge("index_indexing_delete_current_number", "Number of deletion operations currently running", idx -> idx.getIndexing().getTotal().getDeleteCurrent());
+        registerIndexContextGaugeUnit("index_indexing_delete_time", "seconds", "Time in seconds spent performing deletion operations", idx -> idx.getIndexing().getTotal().getDeleteTime().millis() / 1E3);
+        registerIndexContextGauge("index_indexing_index_count", "Total number of indexing operations", idx -> idx.getIndexing().getTotal().getIndexCount());
+        registerIndexContextGauge("index_indexing_index_current_number", "Number of indexing operations currently running", idx -> idx.getIndexing().getTotal().getIndexCurrent());
+        registerIndexContextGauge("index_indexing_index_failed_count", "Total number of failed indexing operations", idx -> idx.getIndexing().getTotal().getIndexFailedCount());
+        registerIndexContextGaugeUnit("index_indexing_index_time", "seconds", "Total time in seconds spent performing indexing operations", idx -> idx.getIndexing().getTotal().getIndexTime().millis() / 1E3);
+        registerIndexContextGauge("index_indexing_noop_update_count", "Total number of noop operations", idx -> idx.getIndexing().getTotal().getNoopUpdateCount());
+        registerIndexContextGauge("index_indexing_is_throttled_bool", "Is indexing throttling ?", idx -> idx.getIndexing().getTotal().isThrottled() ? 1 : 0);
+        registerIndexContextGaugeUnit("index_indexing_throttle_time", "seconds", "Total time in seconds spent throttling operations", idx -> idx.getIndexing().getTotal().getThrottleTime().millis() / 1E3);
+        registerIndexContextGauge("index_indexing_write_load", "Average number of indexing threads busy with the index since its shards started, as used by the allocation forecasts", idx -> idx.getIndexing().getTotal().getWriteLoad());
+        registerIndexContextGauge("index_indexing_recent_write_load", "Exponentially weighted average number of indexing threads recently busy with the index", idx -> idx.getIndexing().getTotal().getRecentWriteLoad());
+        registerIndexContextGauge("index_indexing_peak_write_load", "Peak of the recent write load of the index since its shards started", idx -> idx.getIndexing().getTotal().getPeakWriteLoad());
+
+        registerIndexContextGauge("index_get_count", "Total number of get operations", idx -> idx.getGet().getCount());
+        registerIndexContextGaugeUnit("index_get_time", "seconds", "Time in seconds spent performing get operations", idx -> idx.getGet().getTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_get_exists_count", "Total number of successful get operations", idx -> idx.getGet().getExistsCount());
+        registerIndexContextGaugeUnit("index_get_exists_time", "seconds", "Time in seconds spent performing successful get operations", idx -> idx.getGet().getExistsTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_get_missing_count", "Total number of failed get operations", idx -> idx.getGet().getMissingCount());
+        registerIndexContextGaugeUnit("index_get_missing_time", "seconds", "Time in seconds spent performing failed get operations", idx -> idx.getGet().getMissingTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_get_current_number", "Number of get operations currently running", idx -> idx.getGet().current());
+
+        registerIndexContextGauge("index_search_open_contexts_number", "Number of open search contexts", idx -> idx.getSearch().getOpenContexts());
+        registerIndexContextGauge("index_search_fetch_count", "Total number of fetch operations", idx -> idx.getSearch().getTotal().getFetchCount());
+        registerIndexContextGauge("index_search_fetch_current_number", "Number of fetch operations currently running", idx -> idx.getSearch().getTotal().getFetchCurrent());
+        registerIndexContextGaugeUnit("index_search_fetch_time", "seconds", "Time in seconds spent performing fetch operations", idx -> idx.getSearch().getTotal().getFetchTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_search_query_count", "Total number of query operations", idx -> idx.getSearch().getTotal().getQueryCount());
+        registerIndexContextGauge("index_search_query_current_number", "Number of query operations currently running", idx -> idx.getSearch().getTotal().getQueryCurrent());
+        registerIndexContextGaugeUnit("index_search_query_time", "seconds", "Time in seconds spent performing query operations", idx -> idx.getSearch().getTotal().getQueryTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_search_scroll_count", "Total number of scroll operations", idx -> idx.getSearch().getTotal().getScrollCount());
+        registerIndexContextGauge("index_search_scroll_current_number", "Number of scroll operations currently running", idx -> idx.getSearch().getTotal().getScrollCurrent());
+        registerIndexContextGaugeUnit("index_search_scroll_time", "seconds", "Time in seconds spent performing scroll operations", idx -> idx.getSearch().getTotal().getScrollTimeInMillis() / 1E3);
+        registerIndexContextCounter("index_search_suggest", "Total number of suggest operations", idx -> idx.getSearch().getTotal().getSuggestCount());
+        registerIndexContextGauge("index_search_suggest_current", "Number of suggest operations currently running", idx -> idx.getSearch().getTotal().getSuggestCurrent());
+        registerIndexContextCounterUnit("index_search_suggest_time", "seconds", "Time in seconds spent performing suggest operations", idx -> idx.getSearch().getTotal().getSuggestTimeInMillis() / 1E3);
+
+        registerIndexContextGauge("index_merges_current_number", "Number of merge operations currently running", idx -> idx.getMerge().getCurrent());
+        registerIndexContextGauge("index_merges_current_docs_number", "Number of document merges currently running", idx -> idx.getMerge().getCurrentNumDocs());
+        registerIndexContextGaugeUnit("index_merges_current_size", "bytes", "Memory, in bytes, used performing current document merges", idx -> idx.getMerge().getCurrentSizeInBytes());
+        registerIndexContextGauge("index_merges_total_number", "Total number of merge operations", idx -> idx.getMerge().getTotal());
+        registerIndexContextGaugeUnit("index_merges_total_time", "seconds", "Total time in seconds spent performing merge operations", idx -> idx.getMerge().getTotalTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_merges_total_docs_count", "Total number of merged documents", idx -> idx.getMerge().getTotalNumDocs());
+        registerIndexContextGaugeUnit("index_merges_total_size", "bytes", "Total size of document merges in bytes", idx -> idx.getMerge().getTotalSizeInBytes());
+        registerIndexContextGaugeUnit("index_merges_total_stopped_time", "seconds", "Total time in milliseconds spent stopping merge operations", idx -> idx.getMerge().getTotalStoppedTimeInMillis() / 1E3);
+        registerIndexContextGaugeUnit("index_merges_total_throttled_time", "seconds", "Total time in seconds spent throttling merge operations", idx -> idx.getMerge().getTotalThrottledTimeInMillis() / 1E3);
+        registerIndexContextGaugeUnit("index_merges_total_auto_throttle", "bytes", "Size, in bytes, of automatically throttled merge operations", idx -> idx.getMerge().getTotalBytesPerSecAutoThrottle());
+
+        registerIndexContextGauge("index_refresh_total_count", "Total number of refresh operations", idx -> idx.getRefresh().getTotal());
+        registerIndexContextGaugeUnit("index_refresh_total_time", "seconds", "Time spent while refreshes", idx -> idx.getRefresh().getTotalTimeInMillis() / 1E3);
+        registerIndexContextCounter("index_refresh_external", "Total number of external refresh operations", idx -> idx.getRefresh().getExternalTotal());
+        registerIndexContextCounterUnit("index_refresh_external_time", "seconds", "Total time in seconds spent performing external operations", idx -> idx.getRefresh().getExternalTotalTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_refresh_listeners_number", "Number of refresh listeners", idx -> idx.getRefresh().getListeners());
+
+        registerIndexContextGauge("index_flush_total_count", "Total number of flush operations", idx -> idx.getFlush().getTotal());
+        registerIndexContextCounter("index_flush_periodic", "Total number of flush periodic operations", idx -> idx.getFlush().getPeriodic());
+        registerIndexContextGaugeUnit("index_flush_total_time", "seconds", "Total time in seconds spent performing flush operations", idx -> idx.getFlush().getTotalTimeInMillis() / 1E3);
+
+        registerIndexContextGauge("index_querycache_cache_count", "Count of queries in the query cache", idx -> idx.getQueryCache().getCacheCount());
+        registerIndexContextGaugeUnit("index_querycache_cache_size", "bytes", "Size, in bytes, of the query cache", idx -> idx.getQueryCache().getCacheSize());
+        registerIndexContextGauge("index_querycache_evictions_count", "Number of query cache evictions", idx -> idx.getQueryCache().getEvictions());
+        registerIndexContextGauge("index_querycache_hit_count", "Number of query cache hits", idx -> idx.getQueryCache().getHitCount());
+        registerIndexContextGaugeUnit("index_querycache_memory_size", "bytes", "Total amount of memory, in bytes, used for the query cache", idx -> idx.getQueryCache().getMemorySizeInBytes());
+        registerIndexContextGauge("index_querycache_miss_number", "Number of query cache misses", idx -> idx.getQueryCache().getMissCount());
+        registerIndexContextGauge("index_querycache_total_number", "Total count of hits, misses, and cached queries in the query cache", idx -> idx.getQueryCache().getTotalCount());
+
+        registerIndexContextGaugeUnit("index_fielddata_memory_size", "bytes", "Total amount of memory, in bytes, used for the field data cache", idx -> idx.getFieldData().getMemorySizeInBytes());
+        registerIndexContextGauge("index_fielddata_evictions_count", "Total number of fielddata evictions", idx -> idx.getFieldData().getEvictions());
+
+        registerIndexContextGaugeUnit("index_completion_size", "bytes", "Total amount of memory, in bytes, used for completion for this index", idx -> idx.getCompletion().getSizeInBytes());
+
+        registerIndexContextGauge("index_segments_number", "Current number of this type of segments", idx -> idx.getSegments().getCount());
+        Map<String, ToDoubleFunction<CommonStats>> segmentsMemory = new LinkedHashMap<>();
+        segmentsMemory.put("all", idx -> 0);
+        segmentsMemory.put("bitset", idx -> idx.getSegments().getBitsetMemoryInBytes());
+        segmentsMemory.put("docvalues", idx -> 0);
+        segmentsMemory.put("indexwriter", idx -> idx.getSegments().getIndexWriterMemoryInBytes());
+        segmentsMemory.put("norms", idx -> 0);
+        segmentsMemory.put("storefields", idx -> 0);
+        segmentsMemory.put("terms", idx -> 0);
+        segmentsMemory.put("termvectors", idx -> 0);
+        segmentsMemory.put("versionmap", idx -> idx.getSegments().getVersionMapMemoryInBytes());
+        segmentsMemory.put("points", idx -> 0);
+        registerIndexContextGaugeUnit("index_segments_memory", "bytes", "al amount of memory, in bytes, used for segments of this type ", "type", segmentsMemory);
+        registerIndexContextGauge("index_segments_max_unsafe_auto_id_timestamp", "Time of the most recently retried indexing request. Recorded in seconds since the Unix Epoch.", idx -> idx.getSegments().getMaxUnsafeAutoIdTimestamp() / 1E3);
+
+        registerIndexContextGauge("index_suggest_current_number", "DEPRECATED: Current rate of suggests", idx -> idx.getSearch().getTotal().getSuggestCurrent());
+        registerIndexContextGauge("index_suggest_count", "DEPRECATED: Count of suggests", idx -> idx.getSearch().getTotal().getSuggestCount());
+        registerIndexContextGaugeUnit("index_suggest_time", "seconds", "DEPRECATED: Time spent while making suggests", idx -> idx.getSearch().getTotal().getSuggestTimeInMillis() / 1E3);
+
+        registerIndexContextGaugeUnit("index_requestcache_memory_size", "bytes", "Memory, in bytes, used by the request cache", idx -> idx.getRequestCache().getMemorySizeInBytes());
+        registerIndexContextGauge("index_requestcache_hit_count", "Number of request cache hits", idx -> idx.getRequestCache().getHitCount());
+        registerIndexContextGauge("index_requestcache_miss_count", "Number of request cache misses", idx -> idx.getRequestCache().getMissCount());
+        registerIndexContextGauge("index_requestcache_evictions_count", "Number of request cache evictions", idx -> idx.getRequestCache().getEvictions());
+
+        Map<String, ToDoubleFunction<CommonStats>> recoveries = new LinkedHashMap<>();
+        recoveries.put("source", idx -> idx.getRecoveryStats().currentAsSource());
+        recoveries.put("target", idx -> idx.getRecoveryStats().currentAsTarget());
+        registerIndexContextGaugeUnit("index_recovery_current_number", "", "Number of recoveries that used an index shard as source or target", "type", recoveries);
+        registerIndexContextGaugeUnit("index_recovery_throttle_time", "seconds", "Time in seconds recovery operations were delayed due to throttling", idx -> idx.getRecoveryStats().throttleTime().millis() / 1E3);
+
+        registerIndexContextGauge("index_dense_vector_number", "Number of dense vectors indexed", idx -> idx.getDenseVectorStats() == null ? 0 : idx.getDenseVectorStats().getValueCount());
+        Map<String, ToDoubleFunction<CommonStats>> denseVectorOffHeap = new LinkedHashMap<>();
+        for (String component : DENSE_VECTOR_COMPONENT_LABELS) {
+            denseVectorOffHeap.put(component, idx -> denseVectorOffHeap(idx.getDenseVectorStats(), component));
+        }
+        registerIndexContextGaugeUnit("index_dense_vector_off_heap", "bytes", "Size of the off-heap dense vector data of the index, by component, which should fit in the page cache for fast vector search", "component", denseVectorOffHeap);
+
+        registerIndexContextGauge("index_translog_operations_number", "Current number of transaction log operations", idx -> idx.getTranslog().estimatedNumberOfOperations());
+        registerIndexContextGaugeUnit("index_translog_size", "bytes", "Size, in bytes, of the transaction log", idx -> idx.getTranslog().getTranslogSizeInBytes());
+        registerIndexContextGauge("index_translog_uncommitted_operations_number", "Current number of uncommitted transaction log operations", idx -> idx.getTranslog().getUncommittedOperations());
+        registerIndexContextGaugeUnit("index_translog_uncommitted_size", "bytes", "Size, in bytes, of uncommitted transaction log operations", idx -> idx.getTranslog().getUncommittedSizeInBytes());
+        registerIndexContextGauge("index_translog_earliest_last_modified_age", "Earliest last modified age in seconds for the transaction log", idx -> idx.getTranslog().getEarliestLastModifiedAge() / 1E3);
+
+        registerIndexContextGauge("index_warmer_current_number", "Number of active index warmers", idx -> idx.getWarmer().current());
+        registerIndexContextGaugeUnit("index_warmer_time", "seconds", "Total time in seconds spent performing index warming operations", idx -> idx.getWarmer().totalTimeInMillis() / 1E3);
+        registerIndexContextGauge("index_warmer_count", "Total number of index warmers", idx -> idx.getWarmer().total());
+
+        registerIndexContextGauge("index_node_mapping_total_count", "Number of mappings, including <<runtime,runtime>> and <<object,object>> fields", idx -> idx.getNodeMappings() != null ? idx.getNodeMappings().getTotalCount() : Double.NaN);
+        registerIndexContextGaugeUnit("index_node_mapping_total_estimated_overhead", "bytes", "Estimated heap overhead, in bytes, of mappings on this node, which allows for 1kiB of heap for every mapped field.", idx -> idx.getNodeMappings() != null ? idx.getNodeMappings().getTotalEstimatedOverhead().getBytes() : Double.NaN);
 
     }
 
     private void updatePerIndexMetrics(ClusterHealthResponse chr, IndicesStatsResponse isr) {
 
-        if (chr != null && isr != null) {
+        if (chr != null && isr != null && indexRollup != null) {
+            updateRollupIndexMetrics(chr, isr);
+        } else if (chr != null && isr != null) {
+            List<IndexContextStats> indexContextStats = new ArrayList<>(isr.getIndices().size() * 2);
             for (Map.Entry<String, IndexStats> entry : isr.getIndices().entrySet()) {
                 String indexName = entry.getKey();
                 ClusterIndexHealth cih = chr.getIndices().get(indexName);
-                catalog.setClusterGauge("index_status", cih.getStatus().value(), indexName);
-                catalog.setClusterGauge("index_replicas_number", cih.getNumberOfReplicas(), indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getActiveShards(), "active", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getNumberOfShards(), "shards", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getActivePrimaryShards(), "active_primary", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getInitializingShards(), "initializing", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getRelocatingShards(), "relocating", indexName);
-                catalog.setClusterGauge("index_shards_number", cih.getUnassignedShards(), "unassigned", indexName);
+                // The index may have been created or deleted between the health and the stats requests.
+                if (cih != null) {
+                    catalog.setClusterGauge("index_status", cih.getStatus().value(), indexName);
+                    catalog.setClusterGauge("index_replicas_number", cih.getNumberOfReplicas(), indexName);
+                    catalog.setClusterGauge("index_shards_number", cih.getActiveShards(), "active", indexName);
+                    catalog.setClusterGauge("index_shards_number", cih.getNumberOfShards(), "shards", indexName);
+                    catalog.setClusterGauge("index_shards_number", cih.getActivePrimaryShards(), "active_primary", indexName);
+                    catalog.setClusterGauge("index_shards_number", cih.getInitializingShards(), "initializing", indexName);
+                    catalog.setClusterGauge("index_shards_number", cih.getRelocatingShards(), "relocating", indexName);
+                    catalog.setClusterGauge("index_shards_number", cih.getUnassignedShards(), "unassigned", indexName);
+                }
                 IndexStats indexStats = entry.getValue();
-                updatePerIndexContextMetrics(indexName, "total", indexStats.getTotal());
-                updatePerIndexContextMetrics(indexName, "primaries", indexStats.getPrimaries());
+                indexContextStats.add(new IndexContextStats(indexName, "total", indexStats.getTotal()));
+                indexContextStats.add(new IndexContextStats(indexName, "primaries", indexStats.getPrimaries()));
+            }
+            // Values of the per index context families are read from the stats response when the metrics are written.
+            catalog.setSource(INDEX_CONTEXT_SOURCE, indexContextStats);
+        }
+    }
+
+    private void updateRollupIndexMetrics(ClusterHealthResponse chr, IndicesStatsResponse isr) {
+        // Stats of the indices of a group are summed up in a single pass, the group is exported as an index.
+        Map<String, IndexRollup.Group> groups = new TreeMap<>();
+        UnaryOperator<String> groupOf = indexRollup.grouping();
+        for (Map.Entry<String, IndexStats> entry : isr.getIndices().entrySet()) {
+            IndexRollup.Group group = groups.computeIfAbsent(groupOf.apply(entry.getKey()), g -> new IndexRollup.Group());
+            group.add(chr.getIndices().get(entry.getKey()), entry.getValue().getTotal(), entry.getValue().getPrimaries());
+        }
+        List<IndexContextStats> indexContextStats = new ArrayList<>(groups.size() * 2);
+        for (Map.Entry<String, IndexRollup.Group> entry : groups.entrySet()) {
+            String groupName = entry.getKey();
+            IndexRollup.Group group = entry.getValue();
+            if (group.hasHealth()) {
+                catalog.setClusterGauge("index_status", group.getStatus(), groupName);
+                catalog.setClusterGauge("index_replicas_number", group.getReplicas(), groupName);
+                catalog.setClusterGauge("index_shards_number", group.getActiveShards(), "active", groupName);
+                catalog.setClusterGauge("index_shards_number", group.getShards(), "shards", groupName);
+                catalog.setClusterGauge("index_shards_number", group.getActivePrimaryShards(), "active_primary", groupName);
+                catalog.setClusterGauge("index_shards_number", group.getInitializingShards(), "initializing", groupName);
+                catalog.setClusterGauge("index_shards_number", group.getRelocatingShards(), "relocating", groupName);
+                catalog.setClusterGauge("index_shards_number", group.getUnassignedShards(), "unassigned", groupName);
+            }
+            catalog.setClusterGauge("index_rollup_indices_number", group.getIndices(), groupName);
+            indexContextStats.add(new IndexContextStats(groupName, "total", group.getTotal()));
+            indexContextStats.add(new IndexContextStats(groupName, "primaries", group.getPrimaries()));
+        }
+        catalog.setSource(INDEX_CONTEXT_SOURCE, indexContextStats);
+    }
+
+    private boolean isShardMetrics() {
+        return isPrometheusIndices && shardTopK != null && shardsTopK > 0;
+    }
+
+    @SuppressWarnings("checkstyle:LineLength")
+    private void registerShardMetrics() {
+        catalog.registerClusterSource(SHARD_SOURCE, (ShardTopK.ShardRow row) -> new String[]{row.getIndex(), String.valueOf(row.getShard()), String.valueOf(row.isPrimary()), row.getNode()}, "index", "shard", "primary", "node");
+        catalog.registerClusterCallbackCounter("shard_indexing_index", "Total number of documents indexed by the shard copy, for the hottest shard copies only", SHARD_SOURCE, (ShardTopK.ShardRow row) -> row.getIndexCount());
+        catalog.registerClusterCallbackCounter("shard_search_query", "Total number of search queries executed by the shard copy, for the hottest shard copies only", SHARD_SOURCE, (ShardTopK.ShardRow row) -> row.getQueryCount());
+        catalog.registerClusterCallbackGauge("shard_indexing_write_load", "Average number of indexing threads busy with the shard copy since it started, for the hottest shard copies only", SHARD_SOURCE, ShardTopK.ShardRow::getWriteLoad);
+        catalog.registerClusterCallbackGaugeUnit("shard_store_size", "bytes", "Store size of the shard copy, for the hottest shard copies only", SHARD_SOURCE, (ShardTopK.ShardRow row) -> row.getStoreBytes());
+        catalog.registerClusterCallbackGauge("shard_doc_number", "Number of documents of the shard copy, for the hottest shard copies only", SHARD_SOURCE, (ShardTopK.ShardRow row) -> row.getDocs());
+    }
+
+    private void updateShardMetrics(IndicesStatsResponse isr) {
+        if (isr != null) {
+            catalog.setSource(SHARD_SOURCE, shardTopK.select(isr.getShards(), shardsTopK));
+        }
+    }
+
+    /**
+     * Off-heap bytes of a dense vector component, summed over all the vector fields.
+     */
+    static double denseVectorOffHeap(DenseVectorStats stats, String component) {
+        if (stats == null || stats.offHeapStats() == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Map<String, Long> field : stats.offHeapStats().values()) {
+            for (Map.Entry<String, Long> e : field.entrySet()) {
+                if (component.equals(DENSE_VECTOR_COMPONENTS.getOrDefault(e.getKey(), "other"))) {
+                    bytes += e.getValue();
+                }
             }
         }
+        return bytes;
+    }
+
+    private void registerIndexContextGaugeUnit(String metric, String unit, String help, ToDoubleFunction<CommonStats> value) {
+        catalog.registerClusterCallbackGaugeUnit(metric, unit, help, INDEX_CONTEXT_SOURCE,
+                (IndexContextStats ics) -> value.applyAsDouble(ics.stats));
+    }
+
+    private void registerIndexContextGauge(String metric, String help, ToDoubleFunction<CommonStats> value) {
+        registerIndexContextGaugeUnit(metric, "", help, value);
+    }
+
+    private void registerIndexContextGaugeUnit(String metric, String unit, String help, String label,
+                                               Map<String, ToDoubleFunction<CommonStats>> values) {
+        Map<String, ToDoubleFunction<IndexContextStats>> extractors = new LinkedHashMap<>();
+        for (Map.Entry<String, ToDoubleFunction<CommonStats>> e : values.entrySet()) {
+            ToDoubleFunction<CommonStats> value = e.getValue();
+            extractors.put(e.getKey(), ics -> value.applyAsDouble(ics.stats));
+        }
+        catalog.registerClusterCallbackGaugeUnit(metric, unit, help, INDEX_CONTEXT_SOURCE, label, extractors);
+    }
+
+    private void registerIndexContextCounterUnit(String metric, String unit, String help, ToDoubleFunction<CommonStats> value) {
+        catalog.registerClusterCallbackCounterUnit(metric, unit, help, INDEX_CONTEXT_SOURCE,
+                (IndexContextStats ics) -> value.applyAsDouble(ics.stats));
+    }
+
+    private void registerIndexContextCounter(String metric, String help, ToDoubleFunction<CommonStats> value) {
+        registerIndexContextCounterUnit(metric, "", help, value);
     }
 
     @SuppressWarnings("checkstyle:LineLength")
-    private void updatePerIndexContextMetrics(String indexName, String context, CommonStats idx) {
-        catalog.setClusterGauge("index_doc_number", idx.getDocs().getCount(), indexName, context);
-        catalog.setClusterGauge("index_doc_deleted_number", idx.getDocs().getDeleted(), indexName, context);
-
-        catalog.setClusterGauge("index_store_size", idx.getStore().sizeInBytes(), indexName, context);
-
-        var idxTotal = idx.getIndexing().getTotal();
-        catalog.setClusterGauge("index_indexing_delete_count", idxTotal.getDeleteCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_delete_current_number", idxTotal.getDeleteCurrent(), indexName, context);
-        catalog.setClusterGauge("index_indexing_delete_time", idxTotal.getDeleteTime().millis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_indexing_index_count", idxTotal.getIndexCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_index_current_number", idxTotal.getIndexCurrent(), indexName, context);
-        catalog.setClusterGauge("index_indexing_index_failed_count", idxTotal.getIndexFailedCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_index_time", idxTotal.getIndexTime().millis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_indexing_noop_update_count", idxTotal.getNoopUpdateCount(), indexName, context);
-        catalog.setClusterGauge("index_indexing_is_throttled_bool", idxTotal.isThrottled() ? 1 : 0, indexName, context);
-        catalog.setClusterGauge("index_indexing_throttle_time", idxTotal.getThrottleTime().millis() / 1E3, indexName, context);
-
-        catalog.setClusterGauge("index_get_count", idx.getGet().getCount(), indexName, context);
-        catalog.setClusterGauge("index_get_time", idx.getGet().getTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_get_exists_count", idx.getGet().getExistsCount(), indexName, context);
-        catalog.setClusterGauge("index_get_exists_time", idx.getGet().getExistsTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_get_missing_count", idx.getGet().getMissingCount(), indexName, context);
-        catalog.setClusterGauge("index_get_missing_time", idx.getGet().getMissingTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_get_current_number", idx.getGet().current(), indexName, context);
-
-        catalog.setClusterGauge("index_search_open_contexts_number", idx.getSearch().getOpenContexts(), indexName, context);
-        catalog.setClusterGauge("index_search_fetch_count", idx.getSearch().getTotal().getFetchCount(), indexName, context);
-        catalog.setClusterGauge("index_search_fetch_current_number", idx.getSearch().getTotal().getFetchCurrent(), indexName, context);
-        catalog.setClusterGauge("index_search_fetch_time", idx.getSearch().getTotal().getFetchTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_search_query_count", idx.getSearch().getTotal().getQueryCount(), indexName, context);
-        catalog.setClusterGauge("index_search_query_current_number", idx.getSearch().getTotal().getQueryCurrent(), indexName, context);
-        catalog.setClusterGauge("index_search_query_time", idx.getSearch().getTotal().getQueryTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_search_scroll_count", idx.getSearch().getTotal().getScrollCount(), indexName, context);
-        catalog.setClusterGauge("index_search_scroll_current_number", idx.getSearch().getTotal().getScrollCurrent(), indexName, context);
-        catalog.setClusterGauge("index_search_scroll_time", idx.getSearch().getTotal().getScrollTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterCounter("index_search_suggest", idx.getSearch().getTotal().getSuggestCount(), indexName, context);
-        catalog.setClusterGauge("index_search_suggest_current", idx.getSearch().getTotal().getSuggestCurrent(), indexName, context);
-        catalog.setClusterCounter("index_search_suggest_time", idx.getSearch().getTotal().getSuggestTimeInMillis() / 1E3, indexName, context);
-
-        catalog.setClusterGauge("index_merges_current_number", idx.getMerge().getCurrent(), indexName, context);
-        catalog.setClusterGauge("index_merges_current_docs_number", idx.getMerge().getCurrentNumDocs(), indexName, context);
-        catalog.setClusterGauge("index_merges_current_size", idx.getMerge().getCurrentSizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_number", idx.getMerge().getTotal(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_time", idx.getMerge().getTotalTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_merges_total_docs_count", idx.getMerge().getTotalNumDocs(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_size", idx.getMerge().getTotalSizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_merges_total_stopped_time", idx.getMerge().getTotalStoppedTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_merges_total_throttled_time", idx.getMerge().getTotalThrottledTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_merges_total_auto_throttle", idx.getMerge().getTotalBytesPerSecAutoThrottle(), indexName, context);
-
-        catalog.setClusterGauge("index_refresh_total_count", idx.getRefresh().getTotal(), indexName, context);
-        catalog.setClusterGauge("index_refresh_total_time", idx.getRefresh().getTotalTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterCounter("index_refresh_external", idx.getRefresh().getExternalTotal(), indexName, context);
-        catalog.setClusterCounter("index_refresh_external_time", idx.getRefresh().getExternalTotalTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_refresh_listeners_number", idx.getRefresh().getListeners(), indexName, context);
-
-        catalog.setClusterGauge("index_flush_total_count", idx.getFlush().getTotal(), indexName, context);
-        catalog.setClusterCounter("index_flush_periodic", idx.getFlush().getPeriodic(), indexName, context);
-        catalog.setClusterGauge("index_flush_total_time", idx.getFlush().getTotalTimeInMillis() / 1E3, indexName, context);
-
-        catalog.setClusterGauge("index_querycache_cache_count", idx.getQueryCache().getCacheCount(), indexName, context);
-        catalog.setClusterGauge("index_querycache_cache_size", idx.getQueryCache().getCacheSize(), indexName, context);
-        catalog.setClusterGauge("index_querycache_evictions_count", idx.getQueryCache().getEvictions(), indexName, context);
-        catalog.setClusterGauge("index_querycache_hit_count", idx.getQueryCache().getHitCount(), indexName, context);
-        catalog.setClusterGauge("index_querycache_memory_size", idx.getQueryCache().getMemorySizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_querycache_miss_number", idx.getQueryCache().getMissCount(), indexName, context);
-        catalog.setClusterGauge("index_querycache_total_number", idx.getQueryCache().getTotalCount(), indexName, context);
-
-        catalog.setClusterGauge("index_fielddata_memory_size", idx.getFieldData().getMemorySizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_fielddata_evictions_count", idx.getFieldData().getEvictions(), indexName, context);
-
-        catalog.setClusterGauge("index_completion_size", idx.getCompletion().getSizeInBytes(), indexName, context);
-
-        catalog.setClusterGauge("index_segments_number", idx.getSegments().getCount(), indexName, context);
-        catalog.setClusterGauge("index_segments_memory", 0, "all", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", idx.getSegments().getBitsetMemoryInBytes(), "bitset", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", 0, "docvalues", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", idx.getSegments().getIndexWriterMemoryInBytes(), "indexwriter", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", 0, "norms", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", 0, "storefields", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", 0, "terms", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", 0, "termvectors", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", idx.getSegments().getVersionMapMemoryInBytes(), "versionmap", indexName, context);
-        catalog.setClusterGauge("index_segments_memory", 0, "points", indexName, context);
-        catalog.setClusterGauge("index_segments_max_unsafe_auto_id_timestamp", idx.getSegments().getMaxUnsafeAutoIdTimestamp() / 1E3,  indexName, context);
-
-        catalog.setClusterGauge("index_suggest_current_number", idx.getSearch().getTotal().getSuggestCurrent(), indexName, context);
-        catalog.setClusterGauge("index_suggest_count", idx.getSearch().getTotal().getSuggestCount(), indexName, context);
-        catalog.setClusterGauge("index_suggest_time", idx.getSearch().getTotal().getSuggestTimeInMillis() / 1E3, indexName, context);
-
-        catalog.setClusterGauge("index_requestcache_memory_size", idx.getRequestCache().getMemorySizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_requestcache_hit_count", idx.getRequestCache().getHitCount(), indexName, context);
-        catalog.setClusterGauge("index_requestcache_miss_count", idx.getRequestCache().getMissCount(), indexName, context);
-        catalog.setClusterGauge("index_requestcache_evictions_count", idx.getRequestCache().getEvictions(), indexName, context);
-
-        catalog.setClusterGauge("index_recovery_current_number", idx.getRecoveryStats().currentAsSource(), "source", indexName, context);
-        catalog.setClusterGauge("index_recovery_current_number", idx.getRecoveryStats().currentAsTarget(), "target", indexName, context);
-        catalog.setClusterGauge("index_recovery_throttle_time", idx.getRecoveryStats().throttleTime().millis() / 1E3, indexName, context);
-
-        catalog.setClusterGauge("index_translog_operations_number", idx.getTranslog().estimatedNumberOfOperations(), indexName, context);
-        catalog.setClusterGauge("index_translog_size", idx.getTranslog().getTranslogSizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_translog_uncommitted_operations_number", idx.getTranslog().getUncommittedOperations(), indexName, context);
-        catalog.setClusterGauge("index_translog_uncommitted_size", idx.getTranslog().getUncommittedSizeInBytes(), indexName, context);
-        catalog.setClusterGauge("index_translog_earliest_last_modified_age", idx.getTranslog().getEarliestLastModifiedAge() / 1E3, indexName, context);
-
-        catalog.setClusterGauge("index_warmer_current_number", idx.getWarmer().current(), indexName, context);
-        catalog.setClusterGauge("index_warmer_time", idx.getWarmer().totalTimeInMillis() / 1E3, indexName, context);
-        catalog.setClusterGauge("index_warmer_count", idx.getWarmer().total(), indexName, context);
-
-        if (idx.getNodeMappings() != null) {
-            catalog.setClusterGauge("index_node_mapping_total_count", idx.getNodeMappings().getTotalCount(), indexName, context);
-            catalog.setClusterGauge("index_node_mapping_total_estimated_overhead", idx.getNodeMappings().getTotalEstimatedOverhead().getBytes(), indexName, context);
+    private void registerIndexOperationMetrics() {
+        catalog.registerNodeHistogramUnit("index_search_phase_time", "seconds", "Time spent in each search phase by the shards of the index allocated to this node", "index", "phase");
+        catalog.registerNodeHistogramUnit("index_indexing_operation_time", "seconds", "Time spent indexing or deleting a document by the shards of the index allocated to this node", "index", "operation");
+        catalog.registerNodeHistogramUnit("index_indexing_source_size", "bytes", "Source size of the documents indexed by the shards of the index allocated to this node", "index");
+    }
+
+    private void updateIndexOperationMetrics() {
+        if (indexOperationHistograms == null) {
+            return;
+        }
+        for (Map.Entry<String, IndexOperationHistograms.Histograms> e : indexOperationHistograms.getIndices().entrySet()) {
+            String index = e.getKey();
+            IndexOperationHistograms.Histograms h = e.getValue();
+            for (IndexOperationHistograms.Operation op : SEARCH_PHASES) {
+                catalog.setNodeHistogram("index_search_phase_time", h.get(op), index, op.label());
+            }
+            for (IndexOperationHistograms.Operation op : INDEXING_OPERATIONS) {
+                catalog.setNodeHistogram("index_indexing_operation_time", h.get(op), index, op.label());
+            }
+            catalog.setNodeHistogram("index_indexing_source_size", h.getSourceSize(), index);
         }
     }
 
@@ -687,6 +891,11 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("transport_tx_bytes_count", "DEPRECATED: Size, in bytes, of TX packets sent by the node during internal cluster communication");
         catalog.registerNodeCounterUnit("transport_rx", "bytes", "Size, in bytes, of RX packets received by the node during internal cluster communication");
         catalog.registerNodeCounterUnit("transport_tx", "bytes", "Size, in bytes, of TX packets sent by the node during internal cluster communication");
+
+        catalog.registerNodeHistogramUnit("transport_inbound_handling_time", "seconds", "Time spent by the transport threads handling inbound messages, without sum since it is not tracked");
+        catalog.registerNodeHistogramUnit("transport_outbound_handling_time", "seconds", "Time spent by the transport threads sending outbound messages, without sum since it is not tracked");
+        catalog.registerNodeHistogramUnit("transport_action_request_size", "bytes", "Size of the requests received by the transport action", "action");
+        catalog.registerNodeHistogramUnit("transport_action_response_size", "bytes", "Size of the responses sent by the transport action", "action");
     }
 
     private void updateTransportMetrics(TransportStats ts) {
@@ -713,13 +922,89 @@ public class PrometheusMetricsCollector {
             catalog.setNodeGauge("transport_tx_bytes_count", ts.getTxSize().getBytes());
             catalog.setNodeCounter("transport_rx", ts.getRxSize().getBytes());
             catalog.setNodeCounter("transport_tx", ts.getTxSize().getBytes());
+
+            updateTransportHistograms(ts);
         }
     }
 
+    private void updateTransportHistograms(TransportStats ts) {
+        double[] timeBounds = ExponentialBuckets.HANDLING_TIME_SECONDS;
+        long[] timeCounts = new long[timeBounds.length + 1];
+        if (ExponentialBuckets.cumulative(timeBounds, ts.getInboundHandlingTimeBucketFrequencies(), timeCounts) != null) {
+            catalog.setNodeHistogram("transport_inbound_handling_time", timeBounds, timeCounts, Double.NaN);
+        }
+        if (ExponentialBuckets.cumulative(timeBounds, ts.getOutboundHandlingTimeBucketFrequencies(), timeCounts) != null) {
+            catalog.setNodeHistogram("transport_outbound_handling_time", timeBounds, timeCounts, Double.NaN);
+        }
+
+        // Every registered action has stats, shard level actions included, only the allow-listed ones are exported.
+        double[] sizeBounds = ExponentialBuckets.TRANSPORT_SIZE_BYTES;
+        long[] sizeCounts = new long[sizeBounds.length + 1];
+        for (Map.Entry<String, TransportActionStats> e : ts.getTransportActionStats().entrySet()) {
+            String action = e.getKey();
+            if (Regex.simpleMatch(transportActions, action) == false) {
+                continue;
+            }
+            TransportActionStats stats = e.getValue();
+            if (ExponentialBuckets.cumulative(sizeBounds, stats.requestSizeHistogram(), sizeCounts) != null) {
+                catalog.setNodeHistogram("transport_action_request_size", sizeBounds, sizeCounts, stats.totalRequestSize(),
+                        action);
+            }
+            if (ExponentialBuckets.cumulative(sizeBounds, stats.responseSizeHistogram(), sizeCounts) != null) {
+                catalog.setNodeHistogram("transport_action_response_size", sizeBounds, sizeCounts, stats.totalResponseSize(),
+                        action);
+            }
+        }
+    }
+
+    @SuppressWarnings("checkstyle:LineLength")
+    private void registerActionMetrics() {
+        catalog.registerNodeHistogramUnit("action_time", "seconds", "Time spent executing the action on this node, from the action filters to the response", "action");
+        catalog.registerNodeGauge("action_current_number", "Number of executions of the action in flight on this node", "action");
+    }
+
+    private void updateActionMetrics() {
+        if (actionLatencyFilter == null) {
+            return;
+        }
+        for (Map.Entry<String, ActionLatencyFilter.ActionStats> e : actionLatencyFilter.getActions().entrySet()) {
+            catalog.setNodeHistogram("action_time", e.getValue().getTime(), e.getKey());
+            catalog.setNodeGauge("action_current_number", e.getValue().getCurrent(), e.getKey());
+        }
+    }
+
+    @SuppressWarnings("checkstyle:LineLength")
+    private void registerTaskMetrics() {
+        catalog.registerNodeGauge("task_running_number", "Number of tasks running on this node", "action");
+        catalog.registerNodeGaugeUnit("task_max_age", "seconds", "Age of the oldest task running on this node", "action");
+        catalog.registerNodeGauge("task_cancellable_number", "Number of cancellable tasks running on this node", "action");
+        catalog.registerNodeGauge("task_cancelled_number", "Number of cancelled tasks still running on this node", "action");
+        catalog.registerNodeGaugeHistogramUnit("task_age", "seconds", "Age of the tasks running on this node");
+    }
+
+    private void updateTaskMetrics() {
+        if (taskManager == null) {
+            return;
+        }
+        RunningTasks tasks = RunningTasks.of(taskManager);
+        for (Map.Entry<String, RunningTasks.ActionTasks> e : tasks.getActions().entrySet()) {
+            catalog.setNodeGauge("task_running_number", e.getValue().getRunning(), e.getKey());
+            catalog.setNodeGauge("task_max_age", e.getValue().getMaxAge(), e.getKey());
+            catalog.setNodeGauge("task_cancellable_number", e.getValue().getCancellable(), e.getKey());
+            catalog.setNodeGauge("task_cancelled_number", e.getValue().getCancelled(), e.getKey());
+        }
+        catalog.setNodeHistogram("task_age", tasks.getAges());
+    }
+
+    @SuppressWarnings("checkstyle:LineLength")
     private void registerHTTPMetrics() {
         catalog.registerNodeGauge("http_open_server_number", "Current number of open HTTP connections for the node");
         catalog.registerNodeGauge("http_open_total_count", "Total number of HTTP connections opened for the node");
         catalog.registerNodeCounter("http_opened", "Total number of HTTP connections opened for the node");
+
+        catalog.registerNodeHistogramUnit("http_route_request_size", "bytes", "Size of the requests received by the REST endpoint", "route");
+        catalog.registerNodeHistogramUnit("http_route_response_size", "bytes", "Size of the responses sent by the REST endpoint", "route");
+        catalog.registerNodeHistogramUnit("http_route_response_time", "seconds", "Time taken by the REST endpoint to respond, without sum since it is not tracked", "route");
     }
 
     private void updateHTTPMetrics(HttpStats http) {
@@ -727,6 +1012,25 @@ public class PrometheusMetricsCollector {
             catalog.setNodeGauge("http_open_server_number", http.getServerOpen());
             catalog.setNodeGauge("http_open_total_count", http.getTotalOpen());
             catalog.setNodeCounter("http_opened", http.getTotalOpen());
+
+            double[] sizeBounds = ExponentialBuckets.HTTP_SIZE_BYTES;
+            double[] timeBounds = ExponentialBuckets.HANDLING_TIME_SECONDS;
+            long[] sizeCounts = new long[sizeBounds.length + 1];
+            long[] timeCounts = new long[timeBounds.length + 1];
+            for (Map.Entry<String, HttpRoutes.Endpoint> e : HttpRoutes.group(http.httpRouteStats()).entrySet()) {
+                HttpRoutes.Endpoint endpoint = e.getValue();
+                if (ExponentialBuckets.cumulative(sizeBounds, endpoint.getRequestSizes(), sizeCounts) != null) {
+                    catalog.setNodeHistogram("http_route_request_size", sizeBounds, sizeCounts, endpoint.getRequestSize(),
+                            e.getKey());
+                }
+                if (ExponentialBuckets.cumulative(sizeBounds, endpoint.getResponseSizes(), sizeCounts) != null) {
+                    catalog.setNodeHistogram("http_route_response_size", sizeBounds, sizeCounts, endpoint.getResponseSize(),
+                            e.getKey());
+                }
+                if (ExponentialBuckets.cumulative(timeBounds, endpoint.getResponseTimes(), timeCounts) != null) {
+                    catalog.setNodeHistogram("http_route_response_time", timeBounds, timeCounts, Double.NaN, e.getKey());
+                }
+            }
         }
     }
 
@@ -742,6 +1046,10 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGauge("threadpool_largest", "Highest number of active threads in the thread pool", "name");
         catalog.registerNodeCounter("threadpool_rejected", "Total number of tasks rejected by the thread pool executor", "name");
         catalog.registerNodeCounter("threadpool_completed", "Total Number of tasks completed by the thread pool executor", "name");
+
+        catalog.registerNodeGaugeUnit("threadpool_task_execution_average", "seconds", "Moving average of the execution time of the tasks of the thread pool", "name");
+        catalog.registerNodeCounterUnit("threadpool_task_execution", "seconds", "Total execution time of the tasks of the thread pool", "name");
+        catalog.registerNodeGaugeUnit("threadpool_utilization", "ratio", "Moving average of the number of active threads, as a ratio of the maximum number of threads of the thread pool", "name");
     }
 
     private void updateThreadPoolMetrics(ThreadPoolStats tps) {
@@ -761,6 +1069,16 @@ public class PrometheusMetricsCollector {
                 catalog.setNodeGauge("threadpool_largest", st.largest(), name);
                 catalog.setNodeCounter("threadpool_completed", st.completed(), name);
                 catalog.setNodeCounter("threadpool_rejected", st.rejected(), name);
+
+                // Only the thread pools tracking their task execution time, e.g. write and search, keep these.
+                ExecutorService executor = threadPool == null ? null : threadPool.executor(name);
+                if (executor instanceof TaskExecutionTimeTrackingEsThreadPoolExecutor) {
+                    TaskExecutionTimeTrackingEsThreadPoolExecutor tracking =
+                            (TaskExecutionTimeTrackingEsThreadPoolExecutor) executor;
+                    catalog.setNodeGauge("threadpool_task_execution_average", tracking.getTaskExecutionEWMA() / 1e9, name);
+                    catalog.setNodeCounter("threadpool_task_execution", tracking.getTotalTaskExecutionTime() / 1e9, name);
+                    catalog.setNodeGauge("threadpool_utilization", tracking.getAverageUtilization(), name);
+                }
             }
         }
     }
@@ -776,6 +1094,8 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeGaugeUnit("ingest_pipeline_total_time", "seconds", "Total time, in seconds, spent preprocessing documents in the ingest pipeline", "pipeline");
         catalog.registerNodeGauge("ingest_pipeline_total_current", "Number of documents currently being ingested by the ingest pipeline", "pipeline");
         catalog.registerNodeGauge("ingest_pipeline_total_failed_count", "Total number of failed operations for the ingest pipeline", "pipeline");
+        catalog.registerNodeCounterUnit("ingest_pipeline_ingested", "bytes", "Total size of the documents entering the ingest pipeline", "pipeline");
+        catalog.registerNodeCounterUnit("ingest_pipeline_produced", "bytes", "Total size of the documents produced by the ingest pipeline", "pipeline");
 
         catalog.registerNodeGauge("ingest_pipeline_processor_total_count", "Total Number of documents transformed by the processor", "pipeline", "processor");
         catalog.registerNodeGaugeUnit("ingest_pipeline_processor_total_time", "seconds", "Total time, in seconds, spent by the processor transforming documents", "pipeline", "processor");
@@ -798,20 +1118,41 @@ public class PrometheusMetricsCollector {
                         pipeline);
                 catalog.setNodeGauge("ingest_pipeline_total_current", st.stats().ingestCurrent(), pipeline);
                 catalog.setNodeGauge("ingest_pipeline_total_failed_count", st.stats().ingestFailedCount(), pipeline);
+                if (st.byteStats() != null) {
+                    catalog.setNodeCounter("ingest_pipeline_ingested", st.byteStats().bytesIngested(), pipeline);
+                    catalog.setNodeCounter("ingest_pipeline_produced", st.byteStats().bytesProduced(), pipeline);
+                }
+            }
 
-                List<IngestStats.ProcessorStat> pss = is.processorStats().get(ProjectId.DEFAULT).get(pipeline);
-                if (pss != null) {
-                    for (IngestStats.ProcessorStat ps : pss) {
-                        String processor = ps.name();
-                        catalog.setNodeGauge("ingest_pipeline_processor_total_count", ps.stats().ingestCount(), pipeline, processor);
-                        catalog.setNodeGauge("ingest_pipeline_processor_total_time", ps.stats().ingestTimeInMillis() / 1E3,
-                                pipeline, processor);
-                        catalog.setNodeGauge("ingest_pipeline_processor_total_current", ps.stats().ingestCurrent(), pipeline, processor);
-                        catalog.setNodeGauge("ingest_pipeline_processor_total_failed_count", ps.stats().ingestFailedCount(), pipeline, processor);
-                    }
+            for (IngestProcessorTopK.ProcessorRow row : selectIngestProcessors(is)) {
+                String pipeline = row.getPipeline();
+                String processor = row.getProcessor();
+                catalog.setNodeGauge("ingest_pipeline_processor_total_count", row.getCount(), pipeline, processor);
+                catalog.setNodeGauge("ingest_pipeline_processor_total_time", row.getTimeMillis() / 1E3, pipeline, processor);
+                catalog.setNodeGauge("ingest_pipeline_processor_total_current", row.getCurrent(), pipeline, processor);
+                catalog.setNodeGauge("ingest_pipeline_processor_total_failed_count", row.getFailed(), pipeline, processor);
+            }
+        }
+    }
+
+    /**
+     * Processors of every pipeline, or only the top K by recent time over all the pipelines and the others summed up.
+     */
+    private List<IngestProcessorTopK.ProcessorRow> selectIngestProcessors(IngestStats is) {
+        List<IngestProcessorTopK.ProcessorRow> processors = new ArrayList<>();
+        for (IngestStats.PipelineStat st : is.pipelineStats()) {
+            List<IngestStats.ProcessorStat> pss = is.processorStats()
+                    .getOrDefault(st.projectId(), Map.of())
+                    .get(st.pipelineId());
+            if (pss != null) {
+                for (int i = 0; i < pss.size(); i++) {
+                    IngestStats.Stats stats = pss.get(i).stats();
+                    processors.add(new IngestProcessorTopK.ProcessorRow(st.pipelineId(), i, pss.get(i).name(),
+                            stats.ingestCount(), stats.ingestTimeInMillis(), stats.ingestCurrent(), stats.ingestFailedCount()));
                 }
             }
         }
+        return ingestProcessorTopK.select(processors, ingestProcessorsTopK);
     }
 
     @SuppressWarnings("checkstyle:LineLength")
@@ -1147,6 +1488,19 @@ public class PrometheusMetricsCollector {
         }
     }
 
+    @SuppressWarnings("checkstyle:LineLength")
+    private void registerDiskWatermarkHeadroom() {
+        catalog.registerClusterSource(DISK_HEADROOM_SOURCE, (DiskWatermarkHeadroom.NodeHeadroom row) -> new String[]{row.getNode(), row.getPath()}, "node", "path");
+        catalog.registerClusterCallbackGaugeUnit("cluster_routing_allocation_disk_watermark_low_headroom", "bytes", "Bytes which can still be written to the least available path of the data node before reaching the low disk watermark, negative once exceeded", DISK_HEADROOM_SOURCE, (DiskWatermarkHeadroom.NodeHeadroom row) -> row.getLowBytes());
+        catalog.registerClusterCallbackGaugeUnit("cluster_routing_allocation_disk_watermark_high_headroom", "bytes", "Bytes which can still be written to the least available path of the data node before reaching the high disk watermark, negative once exceeded", DISK_HEADROOM_SOURCE, (DiskWatermarkHeadroom.NodeHeadroom row) -> row.getHighBytes());
+        catalog.registerClusterCallbackGaugeUnit("cluster_routing_allocation_disk_watermark_flood_stage_headroom", "bytes", "Bytes which can still be written to the least available path of the data node before reaching the flood stage disk watermark, negative once exceeded", DISK_HEADROOM_SOURCE, (DiskWatermarkHeadroom.NodeHeadroom row) -> row.getFloodStageBytes());
+        catalog.registerClusterCallbackGaugeUnit("cluster_routing_allocation_disk_unaccounted_shards", "bytes", "Expected size of the shards recovering on the data node which is not yet on its disk, taken off the headroom", DISK_HEADROOM_SOURCE, (DiskWatermarkHeadroom.NodeHeadroom row) -> row.getUnaccountedBytes());
+    }
+
+    private void updateDiskWatermarkHeadroom() {
+        catalog.setSource(DISK_HEADROOM_SOURCE, diskWatermarkHeadroom.compute());
+    }
+
     @SuppressWarnings("checkstyle:LineLength")
     private void registerIndexingPressure() {
         catalog.registerNodeGaugeUnit("indexing_pressure_memory_current_combined_coordinating_and_primary", "bytes", "Memory consumed, in bytes, by indexing requests in the coordinating or primary stage. This value is not the sum of coordinating and primary as a node can reuse the coordinating memory if the primary stage is executed locally");
@@ -1233,6 +1587,13 @@ public class PrometheusMetricsCollector {
         catalog.registerNodeCounterUnit("discovery_cluster_state_update_commit_time", "seconds", "The cumulative amount of time spent, in seconds, spent committing this state update", "state");
         catalog.registerNodeCounterUnit("discovery_cluster_state_update_completion_time", "seconds", "The cumulative amount of time spent, in seconds, spent completing this state update", "state");
         catalog.registerNodeCounterUnit("discovery_cluster_state_update_master_apply_time", "seconds", "The cumulative amount of time spent, in seconds, spent by the master applying this state update", "state");
+        catalog.registerNodeCounter("discovery_cluster_state_serialized", "Total number of cluster states serialized for publication by the master, by type", "type");
+        catalog.registerNodeCounterUnit("discovery_cluster_state_serialized_uncompressed", "bytes", "Total uncompressed size of the cluster states serialized for publication by the master, by type", "type");
+        catalog.registerNodeCounterUnit("discovery_cluster_state_serialized_compressed", "bytes", "Total compressed size of the cluster states serialized for publication by the master, by type", "type");
+        if (clusterApplierTopK > 0) {
+            catalog.registerNodeCounter("discovery_cluster_applier", "Total number of executions of the step of the cluster applier thread, or of the cluster state applier or listener, for the slowest ones only", "kind", "name");
+            catalog.registerNodeCounterUnit("discovery_cluster_applier_time", "seconds", "Total time spent in the step of the cluster applier thread, or by the cluster state applier or listener, for the slowest ones only", "kind", "name");
+        }
     }
 
     @SuppressWarnings("checkstyle:LineLength")
@@ -1245,6 +1606,23 @@ public class PrometheusMetricsCollector {
             catalog.setNodeCounter("discovery_published_cluster_states_incompatible_diffs", ds.getPublishStats().getIncompatibleClusterStateDiffReceivedCount());
             catalog.setNodeCounter("discovery_published_cluster_states_compatible_diffs", ds.getPublishStats().getCompatibleClusterStateDiffReceivedCount());
 
+            ClusterStateSerializationStats css = ds.getPublishStats().getClusterStateSerializationStats();
+            if (css != null) {
+                catalog.setNodeCounter("discovery_cluster_state_serialized", css.getFullStateCount(), "full");
+                catalog.setNodeCounter("discovery_cluster_state_serialized_uncompressed", css.getTotalUncompressedFullStateBytes(), "full");
+                catalog.setNodeCounter("discovery_cluster_state_serialized_compressed", css.getTotalCompressedFullStateBytes(), "full");
+                catalog.setNodeCounter("discovery_cluster_state_serialized", css.getDiffCount(), "diff");
+                catalog.setNodeCounter("discovery_cluster_state_serialized_uncompressed", css.getTotalUncompressedDiffBytes(), "diff");
+                catalog.setNodeCounter("discovery_cluster_state_serialized_compressed", css.getTotalCompressedDiffBytes(), "diff");
+            }
+
+            if (clusterApplierTopK > 0 && ds.getApplierRecordingStats() != null) {
+                for (ClusterApplierRecordings.Recording r : ClusterApplierRecordings.top(ds.getApplierRecordingStats(), clusterApplierTopK)) {
+                    catalog.setNodeCounter("discovery_cluster_applier", r.getCount(), r.getKind(), r.getName());
+                    catalog.setNodeCounter("discovery_cluster_applier_time", r.getMillis() / 1E3, r.getKind(), r.getName());
+                }
+            }
+
             ClusterStateUpdateStats csu = ds.getClusterStateUpdateStats();
             if (csu != null) {
                 catalog.setNodeCounter("discovery_cluster_state_update", csu.getUnchangedTaskCount(), "unchanged");
@@ -1272,17 +1650,82 @@ public class PrometheusMetricsCollector {
         }
     }
 
+    @SuppressWarnings("checkstyle:LineLength")
+    private void registerSampledMetrics() {
+        catalog.registerNodeGauge("threadpool_queue_window", "Number of tasks in queue for the thread pool, sampled over the last window", "name", "stat");
+        catalog.registerNodeHistogram("threadpool_queue_sampled", "Distribution of the sampled number of tasks in queue for the thread pool", "name");
+        catalog.registerNodeGaugeUnit("threadpool_queue_latency_window", "seconds", "Time spent in queue by the oldest queued task of the thread pool, sampled over the last window", "name", "stat");
+        catalog.registerNodeHistogramUnit("threadpool_queue_latency_sampled", "seconds", "Distribution of the sampled time spent in queue by the oldest queued task of the thread pool", "name");
+        catalog.registerNodeCounterUnit("threadpool_cpu", "seconds", "CPU time used by the threads of the thread pool, sampled", "name");
+        catalog.registerNodeGaugeUnit("circuitbreaker_estimated_window", "bytes", "Estimated memory used, in bytes, for the operation, sampled over the last window", "name", "stat");
+        catalog.registerNodeHistogramUnit("circuitbreaker_estimated_sampled", "ratio", "Distribution of the sampled estimated memory used for the operation, as a ratio of the circuit breaker limit", "name");
+        catalog.registerNodeGaugeUnit("indexing_pressure_memory_current_window", "bytes", "Memory consumed, in bytes, by indexing requests in the stage, sampled over the last window", "stage", "stat");
+        catalog.registerNodeHistogramUnit("indexing_pressure_memory_current_sampled", "bytes", "Distribution of the sampled memory consumed by indexing requests in the stage", "stage");
+    }
+
+    private void updateSampledMetrics() {
+        updateSampledSeries("threadpool_queue", sampler.getThreadPoolQueues());
+        updateSampledSeries("threadpool_queue_latency", sampler.getThreadPoolQueueLatencies(), 0.001);
+        updateSampledSeries("circuitbreaker_estimated", sampler.getBreakers());
+        updateSampledSeries("indexing_pressure_memory_current", sampler.getIndexingPressureMemory());
+        for (Map.Entry<String, Double> e : sampler.getThreadPoolCpuSeconds().entrySet()) {
+            catalog.setNodeCounter("threadpool_cpu", e.getValue(), e.getKey());
+        }
+    }
+
+    private void updateSampledSeries(String metric, Map<String, PrometheusSampler.SampledSeries> series) {
+        updateSampledSeries(metric, series, 1);
+    }
+
+    /**
+     * @param scale factor from the sampled values to the unit of the window gauges
+     */
+    private void updateSampledSeries(String metric, Map<String, PrometheusSampler.SampledSeries> series, double scale) {
+        for (Map.Entry<String, PrometheusSampler.SampledSeries> e : series.entrySet()) {
+            double[] stats = e.getValue().windowStats();
+            if (stats != null) {
+                catalog.setNodeGauge(metric + "_window", stats[0] * scale, e.getKey(), "min");
+                catalog.setNodeGauge(metric + "_window", stats[1] * scale, e.getKey(), "max");
+                catalog.setNodeGauge(metric + "_window", stats[2] * scale, e.getKey(), "avg");
+            }
+            catalog.setNodeHistogram(metric + "_sampled", e.getValue().getDistribution(), e.getKey());
+        }
+    }
+
+    @SuppressWarnings("checkstyle:LineLength")
+    private void registerPageCacheMetrics() {
+        catalog.registerNodeGaugeUnit("index_page_cache_resident", "bytes", "Estimated size of the files of the index and type which is resident in the page cache, sampled", "index", "type");
+        catalog.registerNodeGaugeUnit("index_page_cache_files", "bytes", "Size of the files of the index and type on the node, as of the last page cache sample", "index", "type");
+    }
+
+    @SuppressWarnings("checkstyle:LineLength")
+    private void updatePageCacheMetrics() {
+        for (Map.Entry<String, Map<String, PageCacheSampler.Residency>> index : pageCacheSampler.getResidency().entrySet()) {
+            for (Map.Entry<String, PageCacheSampler.Residency> type : index.getValue().entrySet()) {
+                catalog.setNodeGauge("index_page_cache_resident", type.getValue().getResidentBytes(), index.getKey(), type.getKey());
+                catalog.setNodeGauge("index_page_cache_files", type.getValue().getSizeBytes(), index.getKey(), type.getKey());
+            }
+        }
+    }
+
     public void updateMetrics(ClusterHealthResponse clusterHealthResponse, NodeStats nodeStats,
                               IndicesStatsResponse indicesStats, ClusterStatsData clusterStatsData) {
         Summary.Timer timer = catalog.startSummaryTimer("metrics_generate_time_seconds");
 
         updateClusterMetrics(clusterHealthResponse);
+        updatePendingClusterTasks();
         updateNodeMetrics(nodeStats);
         updateIndicesMetrics(nodeStats.getIndices());
         if (isPrometheusIndices) {
             updatePerIndexMetrics(clusterHealthResponse, indicesStats);
+            updateIndexOperationMetrics();
+            if (isShardMetrics()) {
+                updateShardMetrics(indicesStats);
+            }
         }
         updateTransportMetrics(nodeStats.getTransport());
+        updateActionMetrics();
+        updateTaskMetrics();
         updateHTTPMetrics(nodeStats.getHttp());
         updateThreadPoolMetrics(nodeStats.getThreadPool());
         updateIngestMetrics(nodeStats.getIngestStats());
@@ -1298,6 +1741,14 @@ public class PrometheusMetricsCollector {
         if (isPrometheusClusterSettings) {
             updateESSettings(clusterStatsData);
         }
+        updateDiskWatermarkHeadroom();
+        if (sampler != null) {
+            updateSampledMetrics();
+        }
+        if (pageCacheSampler != null && isPrometheusIndices) {
+            updatePageCacheMetrics();
+        }
+        updateSelfMetrics();
 
         timer.observeDuration();
     }
@@ -0,0 +1,156 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.action.NodePrometheusMetricsResponse;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.tasks.TaskManager;
+import org.elasticsearch.threadpool.ThreadPool;
+
+/**
+ * The node lived sources of metrics, recorded between two collections.
+ * <p>
+ * Every collection, whether scraped or pushed, builds a new catalog and collector on top of these. Optional sources
+ * are {@code null} when disabled.
+ */
+public class PrometheusMetricsSources {
+
+    private final PrometheusSelfMetrics selfMetrics;
+    private final PrometheusSampler sampler;
+    private final IndexOperationHistograms indexOperationHistograms;
+    private final ActionLatencyFilter actionLatencyFilter;
+    private final TaskManager taskManager;
+    private final ThreadPool threadPool;
+    private final ClusterService clusterService;
+    private final ShardTopK shardTopK;
+    private final IngestProcessorTopK ingestProcessorTopK;
+    private final IndexRollup indexRollup;
+    private final RemoteWriteSender remoteWriteSender;
+    private final DiskWatermarkHeadroom diskWatermarkHeadroom;
+    private final PageCacheSampler pageCacheSampler;
+
+    public PrometheusMetricsSources(PrometheusSelfMetrics selfMetrics,
+                                    PrometheusSampler sampler,
+                                    IndexOperationHistograms indexOperationHistograms,
+                                    ActionLatencyFilter actionLatencyFilter,
+                                    TaskManager taskManager,
+                                    ThreadPool threadPool,
+                                    ClusterService clusterService,
+                                    ShardTopK shardTopK,
+                                    IngestProcessorTopK ingestProcessorTopK,
+                                    IndexRollup indexRollup,
+                                    RemoteWriteSender remoteWriteSender,
+                                    DiskWatermarkHeadroom diskWatermarkHeadroom,
+                                    PageCacheSampler pageCacheSampler) {
+        this.selfMetrics = selfMetrics;
+        this.sampler = sampler;
+        this.indexOperationHistograms = indexOperationHistograms;
+        this.actionLatencyFilter = actionLatencyFilter;
+        this.taskManager = taskManager;
+        this.threadPool = threadPool;
+        this.clusterService = clusterService;
+        this.shardTopK = shardTopK;
+        this.ingestProcessorTopK = ingestProcessorTopK;
+        this.indexRollup = indexRollup;
+        this.remoteWriteSender = remoteWriteSender;
+        this.diskWatermarkHeadroom = diskWatermarkHeadroom;
+        this.pageCacheSampler = pageCacheSampler;
+    }
+
+    public PrometheusSelfMetrics getSelfMetrics() {
+        return selfMetrics;
+    }
+
+    /**
+     * @return the sampler of the node stats, {@code null} when disabled
+     */
+    public PrometheusSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * @return the per-index latency histograms, {@code null} when disabled
+     */
+    public IndexOperationHistograms getIndexOperationHistograms() {
+        return indexOperationHistograms;
+    }
+
+    public ActionLatencyFilter getActionLatencyFilter() {
+        return actionLatencyFilter;
+    }
+
+    public TaskManager getTaskManager() {
+        return taskManager;
+    }
+
+    public ThreadPool getThreadPool() {
+        return threadPool;
+    }
+
+    public ClusterService getClusterService() {
+        return clusterService;
+    }
+
+    public ShardTopK getShardTopK() {
+        return shardTopK;
+    }
+
+    public IngestProcessorTopK getIngestProcessorTopK() {
+        return ingestProcessorTopK;
+    }
+
+    public IndexRollup getIndexRollup() {
+        return indexRollup;
+    }
+
+    /**
+     * @return the sender of the remote write push, {@code null} when disabled
+     */
+    public RemoteWriteSender getRemoteWriteSender() {
+        return remoteWriteSender;
+    }
+
+    public DiskWatermarkHeadroom getDiskWatermarkHeadroom() {
+        return diskWatermarkHeadroom;
+    }
+
+    /**
+     * @return the page cache sampler, {@code null} when disabled
+     */
+    public PageCacheSampler getPageCacheSampler() {
+        return pageCacheSampler;
+    }
+
+    /**
+     * Create the catalog of the node which collected the given response.
+     */
+    public PrometheusMetricsCatalog newCatalog(NodePrometheusMetricsResponse response) {
+        return new PrometheusMetricsCatalog(
+                response.getClusterHealth().getClusterName(),
+                response.getNodeStats().getNode().getName(),
+                response.getNodeStats().getNode().getId(),
+                "es_");
+    }
+
+    /**
+     * Create a collector for a single collection, following the current value of the dynamic settings.
+     */
+    public PrometheusMetricsCollector newCollector(PrometheusMetricsCatalog catalog, PrometheusSettings settings) {
+        return new PrometheusMetricsCollector(catalog, this, settings);
+    }
+}
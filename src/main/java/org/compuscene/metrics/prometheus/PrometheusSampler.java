@@ -0,0 +1,238 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.TaskExecutionTimeTrackingEsThreadPoolExecutor;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.IndexingPressure;
+import org.elasticsearch.index.stats.IndexingPressureStats;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.CircuitBreakerStats;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPoolStats;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Background sampler of the node local values which can change a lot between two scrapes.
+ * <p>
+ * Thread pool queues and queue latencies, circuit breaker estimations and indexing pressure memory are read every
+ * sampling interval. The samples of the last window are kept in a fixed size ring buffer for each series, to export
+ * their min, max and average. Every sample is also recorded in a {@link FixedBucketHistogram}, so that bursts shorter
+ * than the scrape interval still show in the distribution.
+ * <p>
+ * The CPU time of every thread is read as well, to account for the CPU used by each thread pool.
+ */
+public class PrometheusSampler implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(PrometheusSampler.class);
+
+    // Queue sizes, in number of tasks
+    static final double[] QUEUE_BOUNDS = FixedBucketHistogram.exponentialBounds(1, 4, 9);
+    // Breaker estimations, as a ratio of the breaker limit
+    static final double[] RATIO_BOUNDS = {0.1, 0.2, 0.3, 0.4, 0.5, 0.6, 0.7, 0.8, 0.85, 0.9, 0.95, 1};
+    // Indexing pressure memory, in bytes, from 1MiB to 4GiB
+    static final double[] BYTES_BOUNDS = FixedBucketHistogram.exponentialBounds(1 << 20, 2, 13);
+    // Queue latencies, in seconds, from 1ms to 65s
+    static final double[] LATENCY_BOUNDS = FixedBucketHistogram.exponentialBounds(0.001, 4, 9);
+
+    private final ThreadPool threadPool;
+    private final CircuitBreakerService circuitBreakerService;
+    private final IndexingPressure indexingPressure;
+    private final TimeValue interval;
+    private final int windowSize;
+    private final ThreadCpuAccounting threadCpu;
+
+    private final Map<String, SampledSeries> threadPoolQueues = new ConcurrentHashMap<>();
+    private final Map<String, SampledSeries> threadPoolQueueLatencies = new ConcurrentHashMap<>();
+    private final Map<String, SampledSeries> breakers = new ConcurrentHashMap<>();
+    private final Map<String, SampledSeries> indexingPressureMemory = new ConcurrentHashMap<>();
+
+    private volatile Scheduler.Cancellable scheduled;
+
+    /**
+     * @param interval time between two samples
+     * @param window   time covered by the min, max and average values
+     */
+    public PrometheusSampler(ThreadPool threadPool, CircuitBreakerService circuitBreakerService,
+                             IndexingPressure indexingPressure, TimeValue interval, TimeValue window) {
+        this.threadPool = threadPool;
+        this.circuitBreakerService = circuitBreakerService;
+        this.indexingPressure = indexingPressure;
+        this.interval = interval;
+        this.windowSize = (int) Math.max(1, window.nanos() / interval.nanos());
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        this.threadCpu = ThreadCpuAccounting.isSupported(threadMXBean) ? new ThreadCpuAccounting(threadMXBean) : null;
+    }
+
+    public void start() {
+        logger.debug("Sampling node stats every {} over a window of {} samples", interval, windowSize);
+        scheduled = threadPool.scheduleWithFixedDelay(this::sample, interval, threadPool.generic());
+    }
+
+    @Override
+    public void close() {
+        Scheduler.Cancellable s = scheduled;
+        if (s != null) {
+            s.cancel();
+        }
+    }
+
+    void sample() {
+        try {
+            for (ThreadPoolStats.Stats stats : threadPool.stats()) {
+                series(threadPoolQueues, stats.name(), QUEUE_BOUNDS).record(stats.queue(), stats.queue());
+                TaskExecutionTimeTrackingEsThreadPoolExecutor executor = trackingExecutor(stats.name());
+                if (executor != null && executor.trackingMaxQueueLatency()) {
+                    // Peeking at the oldest queued task leaves the latency polled by the allocation decider alone.
+                    long millis = executor.peekMaxQueueLatencyInQueueMillis();
+                    series(threadPoolQueueLatencies, stats.name(), LATENCY_BOUNDS).record(millis, millis / 1000.0);
+                }
+            }
+            for (CircuitBreakerStats stats : circuitBreakerService.stats().getAllStats()) {
+                double ratio = stats.getLimit() > 0 ? (double) stats.getEstimated() / stats.getLimit() : Double.NaN;
+                series(breakers, stats.getName(), RATIO_BOUNDS).record(stats.getEstimated(), ratio);
+            }
+            IndexingPressureStats ips = indexingPressure.stats();
+            long combined = ips.getCurrentCombinedCoordinatingAndPrimaryBytes();
+            long replica = ips.getCurrentReplicaBytes();
+            series(indexingPressureMemory, "combined_coordinating_and_primary", BYTES_BOUNDS).record(combined, combined);
+            series(indexingPressureMemory, "coordinating", BYTES_BOUNDS)
+                    .record(ips.getCurrentCoordinatingBytes(), ips.getCurrentCoordinatingBytes());
+            series(indexingPressureMemory, "primary", BYTES_BOUNDS)
+                    .record(ips.getCurrentPrimaryBytes(), ips.getCurrentPrimaryBytes());
+            series(indexingPressureMemory, "replica", BYTES_BOUNDS).record(replica, replica);
+            series(indexingPressureMemory, "all", BYTES_BOUNDS).record(combined + replica, combined + replica);
+            if (threadCpu != null) {
+                threadCpu.sample();
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to sample node stats", e);
+        }
+    }
+
+    private TaskExecutionTimeTrackingEsThreadPoolExecutor trackingExecutor(String name) {
+        ExecutorService executor = threadPool.executor(name);
+        return executor instanceof TaskExecutionTimeTrackingEsThreadPoolExecutor
+                ? (TaskExecutionTimeTrackingEsThreadPoolExecutor) executor : null;
+    }
+
+    private SampledSeries series(Map<String, SampledSeries> map, String name, double[] bounds) {
+        return map.computeIfAbsent(name, n -> new SampledSeries(windowSize, bounds));
+    }
+
+    /**
+     * Sampled thread pool queue sizes, by thread pool name.
+     */
+    public Map<String, SampledSeries> getThreadPoolQueues() {
+        return Collections.unmodifiableMap(new TreeMap<>(threadPoolQueues));
+    }
+
+    /**
+     * Sampled time spent in queue by the oldest queued task, in milliseconds, by thread pool name. Only the thread
+     * pools tracking their queue latency, e.g. {@code write}, are sampled.
+     */
+    public Map<String, SampledSeries> getThreadPoolQueueLatencies() {
+        return Collections.unmodifiableMap(new TreeMap<>(threadPoolQueueLatencies));
+    }
+
+    /**
+     * Sampled circuit breaker estimations, by breaker name. The distribution is the ratio of the breaker limit.
+     */
+    public Map<String, SampledSeries> getBreakers() {
+        return Collections.unmodifiableMap(new TreeMap<>(breakers));
+    }
+
+    /**
+     * Sampled indexing pressure memory, by indexing stage.
+     */
+    public Map<String, SampledSeries> getIndexingPressureMemory() {
+        return Collections.unmodifiableMap(new TreeMap<>(indexingPressureMemory));
+    }
+
+    /**
+     * CPU time used by the threads of every thread pool, in seconds, by thread pool name. Threads outside of the
+     * thread pools are accounted for as {@value ThreadCpuAccounting#OTHER}. Empty when the JVM does not measure the
+     * CPU time of threads.
+     */
+    public Map<String, Double> getThreadPoolCpuSeconds() {
+        return threadCpu == null ? Collections.emptyMap() : threadCpu.getCpuSeconds();
+    }
+
+    /**
+     * The samples of one series over the last window, plus the distribution of all samples since the node started.
+     */
+    public static class SampledSeries {
+        private final long[] window;
+        private int next;
+        private int size;
+        private final FixedBucketHistogram distribution;
+
+        SampledSeries(int windowSize, double[] bounds) {
+            this.window = new long[windowSize];
+            this.distribution = new FixedBucketHistogram(bounds);
+        }
+
+        /**
+         * @param value             sampled value, kept in the window
+         * @param distributionValue value recorded in the distribution, skipped when NaN
+         */
+        void record(long value, double distributionValue) {
+            synchronized (this) {
+                window[next] = value;
+                next = (next + 1) % window.length;
+                size = Math.min(size + 1, window.length);
+            }
+            if (!Double.isNaN(distributionValue)) {
+                distribution.observe(distributionValue);
+            }
+        }
+
+        /**
+         * @return min, max and average of the samples in the window, {@code null} when nothing was sampled yet
+         */
+        public synchronized double[] windowStats() {
+            if (size == 0) {
+                return null;
+            }
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                long v = window[i];
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                sum += v;
+            }
+            return new double[]{min, max, sum / size};
+        }
+
+        public FixedBucketHistogram getDistribution() {
+            return distribution;
+        }
+    }
+}
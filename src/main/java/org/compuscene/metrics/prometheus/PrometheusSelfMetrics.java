@@ -0,0 +1,139 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Node level instrumentation of the exporter itself.
+ * <p>
+ * Unlike {@link PrometheusMetricsCatalog}, which is rebuilt for every scrape, a single instance of this class lives
+ * as long as the node does. Timings of the previous scrapes are therefore exposed by the current one.
+ */
+public class PrometheusSelfMetrics {
+
+    /**
+     * Internal requests the transport action sends to gather the statistics.
+     */
+    public enum Request {
+        CLUSTER_HEALTH,
+        NODES_STATS,
+        INDICES_STATS,
+        CLUSTER_STATE;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Phases of a scrape.
+     */
+    public enum Phase {
+        // all internal requests, from the first one sent to the last response received
+        COLLECT,
+        REGISTER,
+        UPDATE,
+        ENCODE,
+        TOTAL;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Reasons for a scrape not to produce any metrics. Every failing internal request is its own cause.
+     */
+    public enum Failure {
+        CLUSTER_HEALTH,
+        NODES_STATS,
+        INDICES_STATS,
+        CLUSTER_STATE,
+        ENCODE;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Request, FixedBucketHistogram> requests = new EnumMap<>(Request.class);
+    private final Map<Phase, FixedBucketHistogram> phases = new EnumMap<>(Phase.class);
+    private final Map<Failure, LongAdder> failures = new EnumMap<>(Failure.class);
+    private final LongAdder expositionBytes = new LongAdder();
+    private volatile Map<String, Integer> seriesPerFamily = Collections.emptyMap();
+
+    public PrometheusSelfMetrics() {
+        for (Request r : Request.values()) {
+            requests.put(r, new FixedBucketHistogram(FixedBucketHistogram.DURATION_SECONDS_BOUNDS));
+        }
+        for (Phase p : Phase.values()) {
+            phases.put(p, new FixedBucketHistogram(FixedBucketHistogram.DURATION_SECONDS_BOUNDS));
+        }
+        for (Failure f : Failure.values()) {
+            failures.put(f, new LongAdder());
+        }
+    }
+
+    public void observeRequest(Request request, long startNanos) {
+        requests.get(request).observeSince(startNanos);
+    }
+
+    public void observePhase(Phase phase, long startNanos) {
+        phases.get(phase).observeSince(startNanos);
+    }
+
+    public void recordFailure(Failure failure) {
+        failures.get(failure).increment();
+    }
+
+    /**
+     * Account for an encoded scrape response.
+     *
+     * @param bytes           size of the response body
+     * @param seriesPerFamily number of samples written for every metric family
+     */
+    public void recordExposition(long bytes, Map<String, Integer> seriesPerFamily) {
+        expositionBytes.add(bytes);
+        this.seriesPerFamily = seriesPerFamily;
+    }
+
+    public FixedBucketHistogram getRequestHistogram(Request request) {
+        return requests.get(request);
+    }
+
+    public FixedBucketHistogram getPhaseHistogram(Phase phase) {
+        return phases.get(phase);
+    }
+
+    public long getFailureCount(Failure failure) {
+        return failures.get(failure).sum();
+    }
+
+    public long getExpositionBytes() {
+        return expositionBytes.sum();
+    }
+
+    public Map<String, Integer> getSeriesPerFamily() {
+        return seriesPerFamily;
+    }
+}
@@ -20,6 +20,10 @@ package org.compuscene.metrics.prometheus;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.TimeValue;
+import java.net.URI;
+import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * A container to keep settings for prometheus up to date with cluster setting changes.
@@ -40,15 +44,158 @@ public class PrometheusSettings {
     public static final Setting<Boolean> PROMETHEUS_INDICES =
             Setting.boolSetting("prometheus.indices", true,
                     Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // How long an encoded scrape response is served to subsequent scrapers before the stats are collected again.
+    // Disabled by default, every scrape then gets fresh stats.
+    public static final Setting<TimeValue> PROMETHEUS_SNAPSHOT_TTL =
+            Setting.timeSetting("prometheus.snapshot.ttl", TimeValue.ZERO, TimeValue.ZERO,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Collect the stats as an internal user with the monitoring origin instead of the scraping user. Only then is the
+    // snapshot shared between scrapers, as every scraper gets the same metrics whatever its privileges.
+    public static final Setting<Boolean> PROMETHEUS_INTERNAL_USER =
+            Setting.boolSetting("prometheus.internal_user", false,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Actions timed by the action filter. Every action is a label value, the list bounds the number of series.
+    public static final Setting<List<String>> PROMETHEUS_ACTIONS =
+            Setting.stringListSetting("prometheus.actions", List.of(
+                    "indices:data/write/bulk",
+                    "indices:data/write/index",
+                    "indices:data/write/delete",
+                    "indices:data/write/update",
+                    "indices:data/read/search",
+                    "indices:data/read/msearch",
+                    "indices:data/read/get",
+                    "indices:data/read/mget",
+                    "indices:data/read/scroll",
+                    "indices:admin/refresh",
+                    "cluster:monitor/health",
+                    "cluster:monitor/nodes/stats"
+            ), Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Transport actions whose request and response size histograms are exported, wildcards allowed. Shard level actions
+    // are included, e.g. "indices:data/write/bulk[s][p]" for the primary of a bulk shard request.
+    public static final Setting<List<String>> PROMETHEUS_TRANSPORT_ACTIONS =
+            Setting.stringListSetting("prometheus.transport.actions", List.of(
+                    "indices:data/write/bulk*",
+                    "indices:data/read/search*",
+                    "indices:data/read/get*",
+                    "indices:data/read/mget*"
+            ), Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Sum up the stats of the backing indices of every data stream, and of the indices matching the rollup patterns.
+    public static final Setting<Boolean> PROMETHEUS_INDICES_ROLLUP =
+            Setting.boolSetting("prometheus.indices.rollup", false,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Patterns grouping the indices which are not part of a data stream, e.g. "(logs-.*)-[0-9.]+" to group daily indices.
+    public static final Setting<List<String>> PROMETHEUS_INDICES_ROLLUP_PATTERNS =
+            Setting.listSetting("prometheus.indices.rollup.patterns", List.of(), PrometheusSettings::validPattern,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Number of shard copies exported for each ranking criterion, by indexing rate, search rate, write load and store
+    // size.
+    // Zero disables the shard level metrics.
+    public static final Setting<Integer> PROMETHEUS_SHARDS_TOP_K =
+            Setting.intSetting("prometheus.shards.top_k", 0, 0, 1000,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Number of cluster state appliers and listeners exported, by cumulative time spent applying cluster states.
+    // Zero disables the per applier metrics.
+    public static final Setting<Integer> PROMETHEUS_CLUSTER_APPLIER_TOP_K =
+            Setting.intSetting("prometheus.cluster_applier.top_k", 10, 0, 1000,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Number of ingest processors exported, by time spent over the last one to two minutes, the others are summed up
+    // as the "other" processor of their pipeline. Minus one exports all the processors one by one.
+    public static final Setting<Integer> PROMETHEUS_INGEST_PROCESSORS_TOP_K =
+            Setting.intSetting("prometheus.ingest.processors.top_k", -1, -1, 10000,
+                    Setting.Property.Dynamic, Setting.Property.NodeScope);
+    // Record search and indexing latency histograms of every index allocated to the node.
+    // The recording listeners are added when an index is created on the node, hence a static setting.
+    public static final Setting<Boolean> PROMETHEUS_INDICES_HISTOGRAMS =
+            Setting.boolSetting("prometheus.indices.histograms", true, Setting.Property.NodeScope);
+    // Interval of the background sampler of thread pool queues, circuit breakers and indexing pressure.
+    // Samples are taken every 100ms to 1s in practice, zero disables the sampler.
+    public static final Setting<TimeValue> PROMETHEUS_SAMPLER_INTERVAL =
+            Setting.timeSetting("prometheus.sampler.interval", TimeValue.timeValueSeconds(1), TimeValue.ZERO,
+                    Setting.Property.NodeScope);
+    // Time covered by the min, max and average of the sampled values, should match the scrape interval.
+    public static final Setting<TimeValue> PROMETHEUS_SAMPLER_WINDOW =
+            Setting.timeSetting("prometheus.sampler.window", TimeValue.timeValueSeconds(15), TimeValue.timeValueMillis(1),
+                    Setting.Property.NodeScope);
+    // Interval of the background estimation of the page cache residency of the Lucene files, e.g. 1m. Disabled by
+    // default, zero or minus one disable it.
+    public static final Setting<TimeValue> PROMETHEUS_PAGE_CACHE_INTERVAL =
+            Setting.timeSetting("prometheus.page_cache.interval", TimeValue.MINUS_ONE, TimeValue.MINUS_ONE,
+                    Setting.Property.NodeScope);
+    // Number of 64KiB regions probed every interval, over all the files of the node whatever their number. More probes
+    // give a finer estimation, each probe costs a mapping and a residency check but no read.
+    public static final Setting<Integer> PROMETHEUS_PAGE_CACHE_PROBES =
+            Setting.intSetting("prometheus.page_cache.probes", 4096, 1, 1 << 20, Setting.Property.NodeScope);
+    // Receiver of the metrics pushed with the Prometheus remote write protocol, e.g. "http://prometheus:9090/api/v1/write".
+    // Every node pushes its own metrics, empty disables the push.
+    public static final Setting<String> PROMETHEUS_REMOTE_WRITE_URL =
+            new Setting<>("prometheus.remote_write.url", "", PrometheusSettings::validUrl, Setting.Property.NodeScope);
+    // Protocol of the push, "prometheus" remote write or "otlp" for an OpenTelemetry receiver, e.g.
+    // "http://otel-collector:4318/v1/metrics".
+    public static final Setting<RemoteWriteProtocol> PROMETHEUS_REMOTE_WRITE_PROTOCOL =
+            Setting.enumSetting(RemoteWriteProtocol.class, "prometheus.remote_write.protocol", RemoteWriteProtocol.PROMETHEUS,
+                    Setting.Property.NodeScope);
+    public static final Setting<TimeValue> PROMETHEUS_REMOTE_WRITE_INTERVAL =
+            Setting.timeSetting("prometheus.remote_write.interval", TimeValue.timeValueSeconds(30),
+                    TimeValue.timeValueSeconds(1), Setting.Property.NodeScope);
+    // Series are spread over the shards by the hash of their labels, every shard sends its batches in order.
+    public static final Setting<Integer> PROMETHEUS_REMOTE_WRITE_SHARDS =
+            Setting.intSetting("prometheus.remote_write.shards", 2, 1, 32, Setting.Property.NodeScope);
+    // Pushes waiting to be sent, the oldest one which is not being sent yet is dropped as a whole to make room for the
+    // next one while the receiver is unavailable.
+    public static final Setting<Integer> PROMETHEUS_REMOTE_WRITE_QUEUE_CAPACITY =
+            Setting.intSetting("prometheus.remote_write.queue_capacity", 10, 1, Setting.Property.NodeScope);
+    // Number of pushes a series can be missing from, e.g. after its index was deleted, before it is marked stale and
+    // forgotten. One marks it as soon as it is missing, like Prometheus does for scraped series.
+    public static final Setting<Integer> PROMETHEUS_REMOTE_WRITE_STALE_AFTER =
+            Setting.intSetting("prometheus.remote_write.stale_after", 1, 1, 100, Setting.Property.NodeScope);
+    public static final Setting<Integer> PROMETHEUS_REMOTE_WRITE_MAX_SAMPLES_PER_SEND =
+            Setting.intSetting("prometheus.remote_write.max_samples_per_send", 2000, 1, Setting.Property.NodeScope);
 
     private volatile boolean clusterSettings;
     private volatile boolean indices;
+    private volatile TimeValue snapshotTtl;
+    private volatile boolean internalUser;
+    private volatile int shardsTopK;
+    private volatile int clusterApplierTopK;
+    private volatile int ingestProcessorsTopK;
+    private volatile boolean indicesRollup;
+    private volatile List<String> transportActions;
 
     public PrometheusSettings(Settings settings, ClusterSettings clusterSettings) {
         setPrometheusClusterSettings(PROMETHEUS_CLUSTER_SETTINGS.get(settings));
         setPrometheusIndices(PROMETHEUS_INDICES.get(settings));
+        setPrometheusSnapshotTtl(PROMETHEUS_SNAPSHOT_TTL.get(settings));
+        setPrometheusInternalUser(PROMETHEUS_INTERNAL_USER.get(settings));
+        setPrometheusShardsTopK(PROMETHEUS_SHARDS_TOP_K.get(settings));
+        setPrometheusClusterApplierTopK(PROMETHEUS_CLUSTER_APPLIER_TOP_K.get(settings));
+        setPrometheusIngestProcessorsTopK(PROMETHEUS_INGEST_PROCESSORS_TOP_K.get(settings));
+        setPrometheusIndicesRollup(PROMETHEUS_INDICES_ROLLUP.get(settings));
+        setPrometheusTransportActions(PROMETHEUS_TRANSPORT_ACTIONS.get(settings));
         clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_CLUSTER_SETTINGS, this::setPrometheusClusterSettings);
         clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES, this::setPrometheusIndices);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_SNAPSHOT_TTL, this::setPrometheusSnapshotTtl);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INTERNAL_USER, this::setPrometheusInternalUser);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_SHARDS_TOP_K, this::setPrometheusShardsTopK);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_CLUSTER_APPLIER_TOP_K, this::setPrometheusClusterApplierTopK);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INGEST_PROCESSORS_TOP_K, this::setPrometheusIngestProcessorsTopK);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_INDICES_ROLLUP, this::setPrometheusIndicesRollup);
+        clusterSettings.addSettingsUpdateConsumer(PROMETHEUS_TRANSPORT_ACTIONS, this::setPrometheusTransportActions);
+    }
+
+    private static String validPattern(String regex) {
+        // Throws an IllegalArgumentException, rejecting the setting update, when the pattern is invalid.
+        Pattern.compile(regex);
+        return regex;
+    }
+
+    private static String validUrl(String url) {
+        if (url.isEmpty() == false) {
+            String scheme = URI.create(url).getScheme();
+            if ("http".equals(scheme) == false && "https".equals(scheme) == false) {
+                throw new IllegalArgumentException("remote write url [" + url + "] must be an http or https url");
+            }
+        }
+        return url;
     }
 
     private void setPrometheusClusterSettings(boolean flag) {
@@ -59,6 +206,34 @@ public class PrometheusSettings {
         this.indices = flag;
     }
 
+    private void setPrometheusSnapshotTtl(TimeValue ttl) {
+        this.snapshotTtl = ttl;
+    }
+
+    private void setPrometheusInternalUser(boolean flag) {
+        this.internalUser = flag;
+    }
+
+    private void setPrometheusShardsTopK(int k) {
+        this.shardsTopK = k;
+    }
+
+    private void setPrometheusClusterApplierTopK(int k) {
+        this.clusterApplierTopK = k;
+    }
+
+    private void setPrometheusIngestProcessorsTopK(int k) {
+        this.ingestProcessorsTopK = k;
+    }
+
+    private void setPrometheusIndicesRollup(boolean flag) {
+        this.indicesRollup = flag;
+    }
+
+    private void setPrometheusTransportActions(List<String> actions) {
+        this.transportActions = actions;
+    }
+
     public boolean getPrometheusClusterSettings() {
         return this.clusterSettings;
     }
@@ -66,4 +241,32 @@ public class PrometheusSettings {
     public boolean getPrometheusIndices() {
         return this.indices;
     }
+
+    public TimeValue getPrometheusSnapshotTtl() {
+        return this.snapshotTtl;
+    }
+
+    public boolean getPrometheusInternalUser() {
+        return this.internalUser;
+    }
+
+    public int getPrometheusShardsTopK() {
+        return this.shardsTopK;
+    }
+
+    public int getPrometheusClusterApplierTopK() {
+        return this.clusterApplierTopK;
+    }
+
+    public int getPrometheusIngestProcessorsTopK() {
+        return this.ingestProcessorsTopK;
+    }
+
+    public boolean getPrometheusIndicesRollup() {
+        return this.indicesRollup;
+    }
+
+    public List<String> getPrometheusTransportActions() {
+        return this.transportActions;
+    }
 }
@@ -0,0 +1,226 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import io.prometheus.client.Collector;
+
+/**
+ * Encoder of metric samples to Prometheus remote write 1.0 requests.
+ * <p>
+ * Every sample becomes a time series of a single sample, with its labels sorted by name as required by the protocol.
+ * Series are spread over shards by the hash of their labels, so that the samples of a series are always sent in order
+ * by the same shard, and the series of every shard are cut into batches of a bounded number of samples. Each batch is
+ * a {@code WriteRequest} protobuf message, compressed with snappy. The protobuf encoding is written by hand, the
+ * messages are simple enough not to need a protobuf runtime:
+ * <pre>
+ * message WriteRequest { repeated TimeSeries timeseries = 1; }
+ * message TimeSeries { repeated Label labels = 1; repeated Sample samples = 2; }
+ * message Label { string name = 1; string value = 2; }
+ * message Sample { double value = 1; int64 timestamp = 2; }
+ * </pre>
+ */
+final class RemoteWriteEncoder {
+
+    static final Map<String, String> HEADERS = Map.of(
+            "Content-Type", "application/x-protobuf",
+            "Content-Encoding", "snappy",
+            "X-Prometheus-Remote-Write-Version", "0.1.0");
+
+    private static final String NAME_LABEL = "__name__";
+
+    private RemoteWriteEncoder() {
+    }
+
+    /**
+     * Encode the samples of the given families, all stamped with the same timestamp.
+     *
+     * @param shards     number of shards the series are spread over
+     * @param maxSamples maximum number of samples of a batch
+     * @return the batches of every shard
+     */
+    static List<List<RemoteWriteSender.Batch>> encode(List<Collector.MetricFamilySamples> families, long timestampMs,
+                                                      int shards, int maxSamples) {
+        Buffer[] requests = new Buffer[shards];
+        int[] counts = new int[shards];
+        List<List<RemoteWriteSender.Batch>> batches = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            requests[shard] = new Buffer(1 << 16);
+            batches.add(new ArrayList<>());
+        }
+        Buffer series = new Buffer(1024);
+        Buffer message = new Buffer(256);
+        for (Collector.MetricFamilySamples family : families) {
+            String createdName = family.name + "_created";
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                // Creation timestamps are not part of the text format 0.0.4 either.
+                if (sample.name.equals(createdName)) {
+                    continue;
+                }
+                int hash = encodeSeries(sample, timestampMs, series, message);
+                int shard = Math.floorMod(hash, shards);
+                requests[shard].writeTag(1, 2);
+                requests[shard].writeBytes(series);
+                if (++counts[shard] == maxSamples) {
+                    batches.get(shard).add(compress(requests[shard], counts[shard]));
+                    requests[shard].size = 0;
+                    counts[shard] = 0;
+                }
+            }
+        }
+        for (int shard = 0; shard < shards; shard++) {
+            if (counts[shard] > 0) {
+                batches.get(shard).add(compress(requests[shard], counts[shard]));
+            }
+        }
+        return batches;
+    }
+
+    private static RemoteWriteSender.Batch compress(Buffer request, int samples) {
+        return new RemoteWriteSender.Batch(Snappy.compress(request.bytes, request.size), samples);
+    }
+
+    /**
+     * Write the {@code TimeSeries} message of a sample to the series buffer.
+     *
+     * @return the hash of the labels of the series
+     */
+    private static int encodeSeries(Collector.MetricFamilySamples.Sample sample, long timestampMs, Buffer series,
+                                    Buffer message) {
+        // The metric name is the "__name__" label, the last one before sorting.
+        int labelCount = sample.labelNames.size();
+        Integer[] order = new Integer[labelCount + 1];
+        for (int i = 0; i <= labelCount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing((Integer i) -> i == labelCount ? NAME_LABEL : sample.labelNames.get(i)));
+
+        series.size = 0;
+        int hash = 0;
+        for (int i : order) {
+            String name = i == labelCount ? NAME_LABEL : sample.labelNames.get(i);
+            String value = i == labelCount ? sample.name : sample.labelValues.get(i);
+            writeLabel(series, message, name, value);
+            hash = 31 * (31 * hash + name.hashCode()) + value.hashCode();
+        }
+        message.size = 0;
+        message.writeTag(1, 1);
+        message.writeDouble(sample.value);
+        message.writeTag(2, 0);
+        message.writeVarint(sample.timestampMs != null ? sample.timestampMs : timestampMs);
+        series.writeTag(2, 2);
+        series.writeBytes(message);
+        return hash;
+    }
+
+    private static void writeLabel(Buffer series, Buffer message, String name, String value) {
+        message.size = 0;
+        message.writeTag(1, 2);
+        message.writeString(name);
+        message.writeTag(2, 2);
+        message.writeString(value);
+        series.writeTag(1, 2);
+        series.writeBytes(message);
+    }
+
+    /**
+     * A growable buffer with the protobuf wire encodings we need.
+     */
+    static final class Buffer {
+        private byte[] bytes;
+        private int size;
+
+        Buffer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void writeTag(int field, int wireType) {
+            writeVarint((field << 3) | wireType);
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7fL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeFixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                bytes[size++] = (byte) (value >>> (8 * i));
+            }
+        }
+
+        void writeDouble(double value) {
+            writeFixed64(Double.doubleToRawLongBits(value));
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+
+        /**
+         * Write the content of another buffer as a length delimited field value.
+         */
+        void writeBytes(Buffer other) {
+            writeVarint(other.size);
+            append(other);
+        }
+
+        /**
+         * Append the content of another buffer, e.g. fields already encoded for the same message.
+         */
+        void append(Buffer other) {
+            ensure(other.size);
+            System.arraycopy(other.bytes, 0, bytes, size, other.size);
+            size += other.size;
+        }
+
+        void reset() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, size);
+        }
+    }
+}
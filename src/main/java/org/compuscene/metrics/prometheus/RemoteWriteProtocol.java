@@ -0,0 +1,72 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.util.List;
+import java.util.Map;
+import io.prometheus.client.Collector;
+
+/**
+ * Protocols of the metrics push.
+ */
+public enum RemoteWriteProtocol {
+    /**
+     * Prometheus remote write 1.0, every series carries all its labels.
+     */
+    PROMETHEUS(RemoteWriteEncoder.HEADERS) {
+        @Override
+        List<List<RemoteWriteSender.Batch>> encode(PrometheusMetricsCatalog catalog,
+                                                   List<Collector.MetricFamilySamples> families, long startMs,
+                                                   long timestampMs, int shards, int maxSamples) {
+            return RemoteWriteEncoder.encode(families, timestampMs, shards, maxSamples);
+        }
+    },
+    /**
+     * OTLP/HTTP with protobuf encoding, the cluster and node labels are resource attributes written once per batch.
+     */
+    OTLP(OtlpEncoder.HEADERS) {
+        @Override
+        List<List<RemoteWriteSender.Batch>> encode(PrometheusMetricsCatalog catalog,
+                                                   List<Collector.MetricFamilySamples> families, long startMs,
+                                                   long timestampMs, int shards, int maxSamples) {
+            Map<String, String> resource = Map.of(
+                    "cluster", catalog.getClusterName(),
+                    "node", catalog.getNodeName(),
+                    "nodeid", catalog.getNodeId());
+            return OtlpEncoder.encode(families, resource, startMs, timestampMs, shards, maxSamples);
+        }
+    };
+
+    private final Map<String, String> headers;
+
+    RemoteWriteProtocol(Map<String, String> headers) {
+        this.headers = headers;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Encode the families collected by the catalog to the batches of every shard.
+     *
+     * @param startMs time since which the counters are counting
+     */
+    abstract List<List<RemoteWriteSender.Batch>> encode(PrometheusMetricsCatalog catalog,
+                                                        List<Collector.MetricFamilySamples> families, long startMs,
+                                                        long timestampMs, int shards, int maxSamples);
+}
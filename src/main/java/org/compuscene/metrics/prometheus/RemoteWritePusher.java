@@ -0,0 +1,126 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.NodePrometheusMetricsAction;
+import org.elasticsearch.action.NodePrometheusMetricsRequest;
+import org.elasticsearch.action.NodePrometheusMetricsResponse;
+import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.client.internal.OriginSettingClient;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.threadpool.Scheduler;
+import org.elasticsearch.threadpool.ThreadPool;
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import io.prometheus.client.Collector;
+
+/**
+ * Periodic push of the metrics of the node with the Prometheus remote write or the OTLP protocol.
+ * <p>
+ * Every push runs the same collection as a scrape of the REST endpoint, then hands the encoded batches to the
+ * sender as a whole. A push is skipped while the previous collection is still running. With remote write, the series which
+ * are gone since the previous pushes are marked stale.
+ * <p>
+ * A push is not run on behalf of any user. Like the collection of a scrape, it runs as the internal user of the
+ * {@link NodePrometheusMetricsAction#ORIGIN} origin: the thread context of the scheduler is stashed and only the origin
+ * is set, so that secured clusters authorize the collection, and the context is restored once it completes.
+ */
+public class RemoteWritePusher implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(RemoteWritePusher.class);
+
+    private final Client client;
+    private final ThreadPool threadPool;
+    private final PrometheusMetricsSources sources;
+    private final PrometheusSettings settings;
+    private final RemoteWriteSender sender;
+    private final RemoteWriteProtocol protocol;
+    private final TimeValue interval;
+    private final int maxSamples;
+    private final StaleSeriesTracker staleSeries;
+    private final AtomicBoolean collecting = new AtomicBoolean();
+    private volatile Scheduler.Cancellable scheduled;
+
+    public RemoteWritePusher(Client client,
+                             ThreadPool threadPool,
+                             PrometheusMetricsSources sources,
+                             PrometheusSettings settings,
+                             RemoteWriteSender sender,
+                             RemoteWriteProtocol protocol,
+                             TimeValue interval,
+                             int maxSamples,
+                             int staleAfter) {
+        this.client = new OriginSettingClient(client, NodePrometheusMetricsAction.ORIGIN);
+        this.threadPool = threadPool;
+        this.sources = sources;
+        this.settings = settings;
+        this.sender = sender;
+        this.protocol = protocol;
+        this.interval = interval;
+        this.maxSamples = maxSamples;
+        // OTLP receivers expire the series they did not receive for a while on their own.
+        this.staleSeries = protocol == RemoteWriteProtocol.PROMETHEUS ? new StaleSeriesTracker(staleAfter) : null;
+    }
+
+    public void start() {
+        scheduled = threadPool.scheduleWithFixedDelay(this::push, interval, threadPool.generic());
+    }
+
+    void push() {
+        if (collecting.compareAndSet(false, true) == false) {
+            logger.debug("Skipping remote write push, the previous collection is still running");
+            return;
+        }
+        long timestampMs = threadPool.absoluteTimeInMillis();
+        client.execute(NodePrometheusMetricsAction.INSTANCE, new NodePrometheusMetricsRequest(), ActionListener.runAfter(
+                ActionListener.wrap(
+                        response -> send(response, timestampMs),
+                        e -> logger.warn("Failed to collect the metrics to push with remote write", e)
+                ),
+                () -> collecting.set(false)));
+    }
+
+    private void send(NodePrometheusMetricsResponse response, long timestampMs) {
+        PrometheusMetricsCatalog catalog = sources.newCatalog(response);
+        PrometheusMetricsCollector collector = sources.newCollector(catalog, settings);
+        collector.registerMetrics();
+        collector.updateMetrics(response.getClusterHealth(), response.getNodeStats(), response.getIndicesStats(),
+                response.getClusterStatsData());
+        List<Collector.MetricFamilySamples> families = catalog.collect();
+        if (staleSeries != null) {
+            families = staleSeries.track(families);
+        }
+        List<List<RemoteWriteSender.Batch>> batches = protocol.encode(catalog, families, JvmInfo.jvmInfo().getStartTime(),
+                timestampMs, sender.getShards(), maxSamples);
+        sender.offer(batches);
+    }
+
+    @Override
+    public void close() {
+        Scheduler.Cancellable scheduled = this.scheduled;
+        if (scheduled != null) {
+            scheduled.cancel();
+        }
+        sender.close();
+    }
+}
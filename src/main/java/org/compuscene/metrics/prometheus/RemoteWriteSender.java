@@ -0,0 +1,319 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import java.io.Closeable;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sender of pushed batches to a Prometheus remote write or OTLP receiver.
+ * <p>
+ * Every shard has a queue of batches and sends them one at a time, in order, while the shards send in parallel. The
+ * batches of a push are queued together, and only a bounded number of pushes are pending: once the receiver falls
+ * behind, the oldest push none of the batches of which is being sent yet is dropped as a whole. Batches failing with a
+ * network error, a 5xx or a 429 status are retried with an exponential backoff, other failures are dropped.
+ * <p>
+ * Requests are sent asynchronously, no thread waits for a response or for a retry.
+ */
+public class RemoteWriteSender implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(RemoteWriteSender.class);
+
+    static final int MAX_ATTEMPTS = 6;
+    static final long MIN_BACKOFF_MILLIS = 100;
+    static final long MAX_BACKOFF_MILLIS = 10_000;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * Outcome of the samples handed to the sender.
+     */
+    public enum Result {
+        SENT,
+        FAILED,
+        DROPPED;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final URI url;
+    private final Map<String, String> headers;
+    private final HttpClient httpClient;
+    private final Executor executor;
+    private final Shard[] shards;
+    private final int capacity;
+    // Pushes with batches still queued or being sent, oldest first.
+    private final Deque<Push> pending = new ArrayDeque<>();
+    private final LongAdder[] samples = new LongAdder[Result.values().length];
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder droppedPushes = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * @param headers       headers of the protocol of the batches
+     * @param queueCapacity number of pushes which can be pending
+     * @param executor      runs the response handling and the retries
+     */
+    public RemoteWriteSender(URI url, Map<String, String> headers, int shards, int queueCapacity, Executor executor) {
+        this.url = url;
+        this.headers = headers;
+        this.executor = executor;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(TIMEOUT)
+                .executor(executor)
+                .build();
+        this.capacity = queueCapacity;
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard();
+        }
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = new LongAdder();
+        }
+    }
+
+    public int getShards() {
+        return shards.length;
+    }
+
+    /**
+     * Queue the batches of a push, one list per shard. When as many pushes as the capacity are already pending, the
+     * oldest one which is not being sent yet is dropped to make room, or the given push when they all are.
+     *
+     * @return whether the push was queued
+     */
+    boolean offer(List<List<Batch>> batches) {
+        Push push = new Push(batches);
+        if (push.remaining.get() == 0) {
+            return true;
+        }
+        synchronized (pending) {
+            if (closed) {
+                drop(push);
+                return false;
+            }
+            if (pending.size() >= capacity) {
+                Push stale = null;
+                for (Push p : pending) {
+                    if (p.state.compareAndSet(Push.QUEUED, Push.DROPPED)) {
+                        stale = p;
+                        break;
+                    }
+                }
+                if (stale == null) {
+                    push.state.set(Push.DROPPED);
+                    drop(push);
+                    return false;
+                }
+                pending.remove(stale);
+                for (Shard shard : shards) {
+                    Push dropped = stale;
+                    shard.queue.removeIf(batch -> batch.push == dropped);
+                }
+                drop(stale);
+            }
+            pending.add(push);
+            for (int shard = 0; shard < batches.size(); shard++) {
+                shards[shard].queue.addAll(batches.get(shard));
+            }
+        }
+        for (Shard shard : shards) {
+            sendNext(shard);
+        }
+        return true;
+    }
+
+    private void drop(Push push) {
+        samples[Result.DROPPED.ordinal()].add(push.samples);
+        droppedPushes.increment();
+        logger.debug("Dropped a remote write push of {} samples, the receiver at [{}] is falling behind", push.samples, url);
+    }
+
+    private void sendNext(Shard shard) {
+        if (closed || shard.sending.compareAndSet(false, true) == false) {
+            return;
+        }
+        Batch batch = shard.queue.poll();
+        // The push may have been dropped since the batch was polled, its samples are then already counted.
+        while (batch != null && batch.push.state.compareAndSet(Push.QUEUED, Push.SENDING) == false
+                && batch.push.state.get() == Push.DROPPED) {
+            batch = shard.queue.poll();
+        }
+        if (batch == null) {
+            shard.sending.set(false);
+            // A batch may have been queued after the poll but before the flag was reset.
+            if (shard.queue.isEmpty() == false) {
+                sendNext(shard);
+            }
+            return;
+        }
+        send(shard, batch, 1);
+    }
+
+    private void send(Shard shard, Batch batch, int attempt) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(url)
+                .timeout(TIMEOUT)
+                .header("User-Agent", "elasticsearch-prometheus-exporter")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(batch.getBody()));
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            request.header(header.getKey(), header.getValue());
+        }
+        httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.discarding())
+                .whenCompleteAsync((response, e) -> onResponse(shard, batch, attempt,
+                        e == null ? response.statusCode() : -1, e), executor);
+    }
+
+    private void onResponse(Shard shard, Batch batch, int attempt, int status, Throwable e) {
+        if (status >= 200 && status < 300) {
+            samples[Result.SENT.ordinal()].add(batch.getSamples());
+        } else if ((e != null || status >= 500 || status == 429) && attempt < MAX_ATTEMPTS && closed == false) {
+            retries.increment();
+            long backoff = backoffMillis(attempt);
+            logger.debug("Remote write to [{}] failed with status [{}], retrying in {}ms", url, status, backoff, e);
+            CompletableFuture.runAsync(() -> send(shard, batch, attempt + 1),
+                    CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, executor));
+            return;
+        } else {
+            samples[Result.FAILED.ordinal()].add(batch.getSamples());
+            logger.warn("Remote write of {} samples to [{}] failed with status [{}]", batch.getSamples(), url, status, e);
+        }
+        if (batch.push.remaining.decrementAndGet() == 0) {
+            synchronized (pending) {
+                pending.remove(batch.push);
+            }
+        }
+        shard.sending.set(false);
+        sendNext(shard);
+    }
+
+    static long backoffMillis(int attempt) {
+        return Math.min(MAX_BACKOFF_MILLIS, MIN_BACKOFF_MILLIS << Math.min(attempt - 1, 20));
+    }
+
+    /**
+     * Number of samples with the given outcome since the node started.
+     */
+    public long getSamples(Result result) {
+        return samples[result.ordinal()].sum();
+    }
+
+    /**
+     * Number of requests sent again after a failure.
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Number of pushes dropped as a whole since the node started.
+     */
+    public long getDroppedPushes() {
+        return droppedPushes.sum();
+    }
+
+    /**
+     * Number of batches waiting to be sent by a shard, the batch being sent excluded.
+     */
+    public int getQueued(int shard) {
+        return shards[shard].queue.size();
+    }
+
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+            pending.clear();
+            for (Shard shard : shards) {
+                shard.queue.clear();
+            }
+        }
+        httpClient.shutdownNow();
+    }
+
+    /**
+     * An encoded and compressed request body.
+     */
+    static final class Batch {
+        private final byte[] body;
+        private final int samples;
+        private Push push;
+
+        Batch(byte[] body, int samples) {
+            this.body = body;
+            this.samples = samples;
+        }
+
+        byte[] getBody() {
+            return body;
+        }
+
+        int getSamples() {
+            return samples;
+        }
+    }
+
+    /**
+     * The batches of a single collection, over all the shards.
+     */
+    private static final class Push {
+        private static final int QUEUED = 0;
+        private static final int SENDING = 1;
+        private static final int DROPPED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+        private final AtomicInteger remaining = new AtomicInteger();
+        private final long samples;
+
+        private Push(List<List<Batch>> batches) {
+            long samples = 0;
+            for (List<Batch> shard : batches) {
+                for (Batch batch : shard) {
+                    batch.push = this;
+                    samples += batch.getSamples();
+                    remaining.incrementAndGet();
+                }
+            }
+            this.samples = samples;
+        }
+    }
+
+    private static final class Shard {
+        private final Queue<Batch> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+    }
+}
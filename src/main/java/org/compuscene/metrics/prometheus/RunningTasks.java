@@ -0,0 +1,112 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.tasks.CancellableTask;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskManager;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Count and age of the tasks running on this node, by action.
+ * <p>
+ * The tasks are read from the node local {@link TaskManager} and aggregated in a single pass. Unlike the list tasks
+ * API, no task info, status or description is built and no request is sent, so this stays cheap with thousands of
+ * concurrent tasks.
+ */
+public class RunningTasks {
+
+    /**
+     * Bucket upper bounds, in seconds, from 10 milliseconds to about 45 minutes.
+     */
+    public static final double[] AGE_BOUNDS = FixedBucketHistogram.exponentialBounds(0.01, 4, 10);
+
+    private final Map<String, ActionTasks> actions = new TreeMap<>();
+    private final FixedBucketHistogram ages = new FixedBucketHistogram(AGE_BOUNDS);
+
+    /**
+     * Aggregate the tasks currently registered with the task manager.
+     */
+    public static RunningTasks of(TaskManager taskManager) {
+        return of(taskManager.getTasks().values(), System.nanoTime());
+    }
+
+    static RunningTasks of(Iterable<Task> tasks, long nowNanos) {
+        RunningTasks running = new RunningTasks();
+        for (Task task : tasks) {
+            // Tasks may start after nowNanos was read, count them with no age.
+            double age = Math.max(0, nowNanos - task.getStartTimeNanos()) / 1E9;
+            running.ages.observe(age);
+            ActionTasks action = running.actions.computeIfAbsent(task.getAction(), a -> new ActionTasks());
+            action.running++;
+            action.maxAge = Math.max(action.maxAge, age);
+            if (task instanceof CancellableTask) {
+                action.cancellable++;
+                if (((CancellableTask) task).isCancelled()) {
+                    action.cancelled++;
+                }
+            }
+        }
+        return running;
+    }
+
+    /**
+     * Tasks of every action with at least one running task, sorted by action name.
+     */
+    public Map<String, ActionTasks> getActions() {
+        return Collections.unmodifiableMap(actions);
+    }
+
+    /**
+     * Age distribution of all the running tasks, in seconds.
+     */
+    public FixedBucketHistogram getAges() {
+        return ages;
+    }
+
+    /**
+     * Running tasks of a single action.
+     */
+    public static class ActionTasks {
+        private long running;
+        private long cancellable;
+        private long cancelled;
+        private double maxAge;
+
+        public long getRunning() {
+            return running;
+        }
+
+        public long getCancellable() {
+            return cancellable;
+        }
+
+        public long getCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Age of the oldest running task, in seconds.
+         */
+        public double getMaxAge() {
+            return maxAge;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.action.admin.indices.stats.ShardStats;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Selection of the hottest shard copies of the cluster, to expose skew hidden by the per index metrics.
+ * <p>
+ * The indexing and search counters of the shard copies are exported as they are, rates are left to the queries. The
+ * copies are still ranked by rate: the counters of every shard copy are kept as a baseline which is renewed once per
+ * {@link #RANKING_WINDOW_NANOS}, whatever the number of scrapers and pushes reading the stats, and the ranking rates
+ * are computed against the baseline, over one to two windows. For every {@link Criterion} only the top K shard copies
+ * are kept, using a bounded heap, and the union of these is exported.
+ */
+public class ShardTopK {
+
+    /**
+     * Ranking criteria of the shard copies.
+     */
+    public enum Criterion {
+        INDEXING(ShardRow::getIndexingRate),
+        SEARCH(ShardRow::getSearchRate),
+        STORE(ShardRow::getStoreBytes),
+        WRITE_LOAD(ShardRow::getWriteLoad);
+
+        private final ToDoubleFunction<ShardRow> value;
+
+        Criterion(ToDoubleFunction<ShardRow> value) {
+            this.value = value;
+        }
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Comparator<ShardRow> ORDER = Comparator.comparing(ShardRow::getIndex)
+            .thenComparingInt(ShardRow::getShard)
+            .thenComparing(ShardRow::isPrimary, Comparator.reverseOrder())
+            .thenComparing(ShardRow::getNode);
+
+    static final long RANKING_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final UnaryOperator<String> nodeNames;
+    // Counters the ranking rates are computed against, and the next ones, by allocation id of the shard copy.
+    private Map<String, Counters> baseline = Map.of();
+    private Map<String, Counters> next;
+    private long nextNanos;
+
+    /**
+     * @param nodeNames resolves the name of a node from its id
+     */
+    public ShardTopK(UnaryOperator<String> nodeNames) {
+        this.nodeNames = nodeNames;
+    }
+
+    /**
+     * Rank the shard copies and select the hottest ones.
+     *
+     * @param shards stats of the shard copies of the cluster
+     * @param k      number of shard copies kept for each criterion
+     * @return the selected shard copies, sorted by index, shard number and primary first
+     */
+    public List<ShardRow> select(ShardStats[] shards, int k) {
+        return select(shards, k, System.nanoTime());
+    }
+
+    synchronized List<ShardRow> select(ShardStats[] shards, int k, long nowNanos) {
+        renewBaseline(nowNanos);
+        List<ShardRow> rows = new ArrayList<>(shards.length);
+        for (ShardStats shardStats : shards) {
+            ShardRouting routing = shardStats.getShardRouting();
+            CommonStats stats = shardStats.getStats();
+            if (routing.allocationId() == null || stats.getIndexing() == null || stats.getSearch() == null) {
+                continue;
+            }
+            long indexCount = stats.getIndexing().getTotal().getIndexCount();
+            long queryCount = stats.getSearch().getTotal().getQueryCount();
+            Counters counters = counters(routing.allocationId().getId(), indexCount, queryCount, nowNanos);
+            rows.add(new ShardRow(
+                    routing.getIndexName(),
+                    routing.id(),
+                    routing.primary(),
+                    nodeNames.apply(routing.currentNodeId()),
+                    indexCount,
+                    queryCount,
+                    counters.indexingRate,
+                    counters.searchRate,
+                    stats.getIndexing().getTotal().getWriteLoad(),
+                    stats.getStore() == null ? 0 : stats.getStore().sizeInBytes(),
+                    stats.getDocs() == null ? 0 : stats.getDocs().getCount()
+            ));
+        }
+        return union(rows, k);
+    }
+
+    /**
+     * The union of the top K shard copies of every criterion, sorted by index, shard number and primary first.
+     */
+    static List<ShardRow> union(List<ShardRow> rows, int k) {
+        Set<ShardRow> selected = new LinkedHashSet<>();
+        for (Criterion criterion : Criterion.values()) {
+            selected.addAll(top(rows, k, criterion.value));
+        }
+        List<ShardRow> sorted = new ArrayList<>(selected);
+        sorted.sort(ORDER);
+        return sorted;
+    }
+
+    /**
+     * Once the next counters are a window old, make them the baseline of the ranking rates and start new ones.
+     */
+    void renewBaseline(long nowNanos) {
+        if (next == null || nowNanos - nextNanos >= RANKING_WINDOW_NANOS) {
+            if (next != null) {
+                baseline = next;
+            }
+            next = new HashMap<>();
+            nextNanos = nowNanos;
+        }
+    }
+
+    Counters counters(String allocationId, long indexCount, long queryCount, long nowNanos) {
+        Counters counters = new Counters(indexCount, queryCount, nowNanos);
+        Counters last = baseline.get(allocationId);
+        if (last != null) {
+            counters.rates(last);
+        }
+        // Shard copies which are gone are forgotten with the baseline they were last seen in.
+        next.putIfAbsent(allocationId, counters);
+        return counters;
+    }
+
+    static <T> List<T> top(List<T> rows, int k, ToDoubleFunction<T> value) {
+        if (k <= 0) {
+            return List.of();
+        }
+        // Min heap of the K largest values seen so far, its head is the first to go.
+        PriorityQueue<T> heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(value));
+        for (T row : rows) {
+            if (heap.size() < k) {
+                heap.add(row);
+            } else if (value.applyAsDouble(row) > value.applyAsDouble(heap.peek())) {
+                heap.poll();
+                heap.add(row);
+            }
+        }
+        return new ArrayList<>(heap);
+    }
+
+    static final class Counters {
+        private final long indexCount;
+        private final long queryCount;
+        private final long nanos;
+        private double indexingRate;
+        private double searchRate;
+
+        private Counters(long indexCount, long queryCount, long nanos) {
+            this.indexCount = indexCount;
+            this.queryCount = queryCount;
+            this.nanos = nanos;
+        }
+
+        private void rates(Counters last) {
+            long elapsed = nanos - last.nanos;
+            if (elapsed <= 0) {
+                return;
+            }
+            // Counters go back to zero when a shard is recovered again, which reads as no activity.
+            indexingRate = Math.max(0, indexCount - last.indexCount) * 1E9 / elapsed;
+            searchRate = Math.max(0, queryCount - last.queryCount) * 1E9 / elapsed;
+        }
+
+        double getIndexingRate() {
+            return indexingRate;
+        }
+    }
+
+    /**
+     * Stats of a single shard copy.
+     */
+    public static class ShardRow {
+        private final String index;
+        private final int shard;
+        private final boolean primary;
+        private final String node;
+        private final long indexCount;
+        private final long queryCount;
+        private final double indexingRate;
+        private final double searchRate;
+        private final double writeLoad;
+        private final long storeBytes;
+        private final long docs;
+
+        ShardRow(String index, int shard, boolean primary, String node, long indexCount, long queryCount,
+                 double indexingRate, double searchRate, double writeLoad, long storeBytes, long docs) {
+            this.index = index;
+            this.shard = shard;
+            this.primary = primary;
+            this.node = node;
+            this.indexCount = indexCount;
+            this.queryCount = queryCount;
+            this.indexingRate = indexingRate;
+            this.searchRate = searchRate;
+            this.writeLoad = writeLoad;
+            this.storeBytes = storeBytes;
+            this.docs = docs;
+        }
+
+        public String getIndex() {
+            return index;
+        }
+
+        public int getShard() {
+            return shard;
+        }
+
+        public boolean isPrimary() {
+            return primary;
+        }
+
+        public String getNode() {
+            return node;
+        }
+
+        /**
+         * Documents indexed by the shard copy since it started.
+         */
+        public long getIndexCount() {
+            return indexCount;
+        }
+
+        /**
+         * Search queries executed by the shard copy since it started.
+         */
+        public long getQueryCount() {
+            return queryCount;
+        }
+
+        /**
+         * Documents indexed per second since the ranking baseline, only used to rank the shard copies.
+         */
+        double getIndexingRate() {
+            return indexingRate;
+        }
+
+        /**
+         * Search queries per second since the ranking baseline, only used to rank the shard copies.
+         */
+        double getSearchRate() {
+            return searchRate;
+        }
+
+        /**
+         * Average number of indexing threads busy with the shard copy since it started, as used by the allocation
+         * forecasts.
+         */
+        public double getWriteLoad() {
+            return writeLoad;
+        }
+
+        public long getStoreBytes() {
+            return storeBytes;
+        }
+
+        public long getDocs() {
+            return docs;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.util.Arrays;
+
+/**
+ * Compressor to the raw, unframed, snappy block format expected by the Prometheus remote write protocol.
+ * <p>
+ * The input is split in blocks of 64KiB. Within a block, repeated sequences of at least 4 bytes are found with a hash
+ * table of the last position of every 4 bytes sequence and written as copies, everything else is written as literals.
+ * This is the greedy matching of the reference implementation without its heuristics to skip incompressible data,
+ * which the metric names and labels are not.
+ */
+final class Snappy {
+
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final int HASH_BITS = 14;
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_COPY = 64;
+
+    private Snappy() {
+    }
+
+    static byte[] compress(byte[] input, int length) {
+        // Worst case of the format, see MaxEncodedLen of the reference implementation.
+        byte[] out = new byte[32 + length + length / 6];
+        int pos = writeVarint(out, 0, length);
+        int[] table = new int[1 << HASH_BITS];
+        for (int blockStart = 0; blockStart < length; blockStart += BLOCK_SIZE) {
+            pos = compressBlock(input, blockStart, Math.min(blockStart + BLOCK_SIZE, length), out, pos, table);
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    private static int compressBlock(byte[] input, int start, int end, byte[] out, int pos, int[] table) {
+        // Offsets of copies stay within the block, so they always fit in two bytes.
+        Arrays.fill(table, -1);
+        int literalStart = start;
+        int i = start;
+        while (i + MIN_MATCH <= end) {
+            int value = readInt(input, i);
+            int hash = (value * 0x1e35a7bd) >>> (32 - HASH_BITS);
+            int candidate = table[hash];
+            table[hash] = i;
+            if (candidate < 0 || readInt(input, candidate) != value) {
+                i++;
+                continue;
+            }
+            int matchLength = MIN_MATCH;
+            while (i + matchLength < end && input[candidate + matchLength] == input[i + matchLength]) {
+                matchLength++;
+            }
+            pos = writeLiteral(input, literalStart, i - literalStart, out, pos);
+            pos = writeCopy(i - candidate, matchLength, out, pos);
+            i += matchLength;
+            literalStart = i;
+        }
+        return writeLiteral(input, literalStart, end - literalStart, out, pos);
+    }
+
+    private static int writeLiteral(byte[] input, int offset, int length, byte[] out, int pos) {
+        if (length == 0) {
+            return pos;
+        }
+        int n = length - 1;
+        if (n < 60) {
+            out[pos++] = (byte) (n << 2);
+        } else if (n < 1 << 8) {
+            out[pos++] = (byte) (60 << 2);
+            out[pos++] = (byte) n;
+        } else {
+            // Blocks are at most 64KiB long, the length always fits in two bytes.
+            out[pos++] = (byte) (61 << 2);
+            out[pos++] = (byte) n;
+            out[pos++] = (byte) (n >>> 8);
+        }
+        System.arraycopy(input, offset, out, pos, length);
+        return pos + length;
+    }
+
+    private static int writeCopy(int offset, int length, byte[] out, int pos) {
+        // Copies with a two bytes offset hold up to 64 bytes, longer matches are split and the last part is kept
+        // at least 4 bytes long.
+        while (length >= MAX_COPY + MIN_MATCH) {
+            pos = writeCopy2(offset, MAX_COPY, out, pos);
+            length -= MAX_COPY;
+        }
+        if (length > MAX_COPY) {
+            pos = writeCopy2(offset, 60, out, pos);
+            length -= 60;
+        }
+        return writeCopy2(offset, length, out, pos);
+    }
+
+    private static int writeCopy2(int offset, int length, byte[] out, int pos) {
+        out[pos++] = (byte) (((length - 1) << 2) | 2);
+        out[pos++] = (byte) offset;
+        out[pos++] = (byte) (offset >>> 8);
+        return pos;
+    }
+
+    private static int readInt(byte[] input, int i) {
+        return (input[i] & 0xff) | (input[i + 1] & 0xff) << 8 | (input[i + 2] & 0xff) << 16 | (input[i + 3] & 0xff) << 24;
+    }
+
+    private static int writeVarint(byte[] out, int pos, int value) {
+        while ((value & ~0x7f) != 0) {
+            out[pos++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out[pos++] = (byte) value;
+        return pos;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.compuscene.metrics.prometheus;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import io.prometheus.client.Collector;
+
+/**
+ * Tracker of the series pushed by the previous collections, to mark the series which are gone as stale.
+ * <p>
+ * A remote write receiver returns the last sample of a series for minutes after it was pushed, so the series of a
+ * deleted index, a removed ingest pipeline or a departed node would linger. Prometheus writes a staleness marker, a
+ * special NaN, when a scraped series disappears, this does the same for pushed series once they have been missing
+ * from a number of collections, and then forgets them.
+ * <p>
+ * Every collection is a generation. The series are kept in access order, touching a series moves it to the end, so
+ * the series which were not touched for long enough are found at the head without looking at the others.
+ */
+final class StaleSeriesTracker {
+
+    static final double STALE_NAN = Double.longBitsToDouble(0x7ff0000000000002L);
+
+    private final int staleAfter;
+    private final LinkedHashMap<Series, Series> series = new LinkedHashMap<>(1024, 0.75f, true);
+    private long generation;
+
+    /**
+     * @param staleAfter number of generations a series can be missing from before it is marked stale
+     */
+    StaleSeriesTracker(int staleAfter) {
+        this.staleAfter = staleAfter;
+    }
+
+    /**
+     * Touch the series of a new generation.
+     *
+     * @return the given families, followed by the staleness markers of the series which are gone, if any
+     */
+    List<Collector.MetricFamilySamples> track(List<Collector.MetricFamilySamples> families) {
+        generation++;
+        for (Collector.MetricFamilySamples family : families) {
+            String createdName = family.name + "_created";
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                if (sample.name.equals(createdName)) {
+                    continue;
+                }
+                Series key = new Series(sample);
+                Series tracked = series.get(key);
+                if (tracked == null) {
+                    series.put(key, key);
+                    tracked = key;
+                }
+                tracked.generation = generation;
+            }
+        }
+
+        List<Collector.MetricFamilySamples.Sample> stale = new ArrayList<>();
+        Iterator<Series> iterator = series.values().iterator();
+        while (iterator.hasNext()) {
+            Series next = iterator.next();
+            if (next.generation > generation - staleAfter) {
+                break;
+            }
+            stale.add(new Collector.MetricFamilySamples.Sample(next.name, next.labelNames, next.labelValues, STALE_NAN));
+            iterator.remove();
+        }
+        if (stale.isEmpty()) {
+            return families;
+        }
+        List<Collector.MetricFamilySamples> marked = new ArrayList<>(families.size() + 1);
+        marked.addAll(families);
+        marked.add(new Collector.MetricFamilySamples("stale", Collector.Type.UNKNOWN, "Staleness markers", stale));
+        return marked;
+    }
+
+    int size() {
+        return series.size();
+    }
+
+    private static final class Series {
+        private final String name;
+        private final List<String> labelNames;
+        private final List<String> labelValues;
+        private final int hash;
+        private long generation;
+
+        private Series(Collector.MetricFamilySamples.Sample sample) {
+            this.name = sample.name;
+            this.labelNames = sample.labelNames;
+            this.labelValues = sample.labelValues;
+            this.hash = 31 * (31 * name.hashCode() + labelNames.hashCode()) + labelValues.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Series other = (Series) o;
+            return hash == other.hash && name.equals(other.name) && labelNames.equals(other.labelNames)
+                    && labelValues.equals(other.labelValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import io.prometheus.client.Collector;
+
+/**
+ * Writer of the Prometheus text format 0.0.4 which keeps the encoded parts of the exposition across scrapes.
+ * <p>
+ * The {@code # HELP}/{@code # TYPE} header of every family and the {@code name{label="value",...} } prefix of every
+ * series hardly ever change between two scrapes, yet {@link io.prometheus.client.exporter.common.TextFormat}
+ * escapes and encodes them again each time. This encoder caches them as UTF-8 bytes, so that only the sample values
+ * are rendered for every scrape. Entries not used by the latest scrape are dropped once it is written.
+ * <p>
+ * A single instance lives as long as the node and may be used by concurrent scrapes.
+ */
+public class TextExpositionEncoder {
+
+    private static final byte[] INF = "+Inf".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NEG_INF = "-Inf".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAN = "NaN".getBytes(StandardCharsets.UTF_8);
+
+    // Double.toString switches to the computerized scientific notation outside of this range
+    private static final double PLAIN_MIN = 1E-3;
+    private static final double PLAIN_MAX = 1E7;
+    // Doubles are all whole numbers from here on, and integers are no longer exact beyond 2^53
+    private static final double WHOLE_MAX = 9007199254740992d;
+    private static final int MAX_FRACTION_DIGITS = 6;
+    private static final double[] POWERS_OF_TEN = {1, 1E1, 1E2, 1E3, 1E4, 1E5, 1E6};
+
+    private final Map<String, Header> headers = new ConcurrentHashMap<>();
+    private final Map<String, Map<List<String>, Series>> series = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+
+    /**
+     * Write the given metric families in the text format 0.0.4.
+     *
+     * @return number of samples written for every family, each sample counted once
+     */
+    public Map<String, Integer> write(OutputStream out, Iterable<Collector.MetricFamilySamples> families)
+            throws IOException {
+        long generation = generations.incrementAndGet();
+        Map<String, Integer> seriesCounts = new LinkedHashMap<>();
+        Map<String, Collector.MetricFamilySamples> omFamilies = new TreeMap<>();
+        byte[] scratch = new byte[32];
+
+        writeFamilies(out, families, generation, seriesCounts, omFamilies, scratch);
+        // OpenMetrics specific samples are written as gauges at the end, just like TextFormat does.
+        if (!omFamilies.isEmpty()) {
+            writeFamilies(out, omFamilies.values(), generation, seriesCounts, new TreeMap<>(), scratch);
+        }
+
+        evict(generation);
+        return seriesCounts;
+    }
+
+    private void writeFamilies(OutputStream out, Iterable<Collector.MetricFamilySamples> families, long generation,
+                               Map<String, Integer> seriesCounts,
+                               Map<String, Collector.MetricFamilySamples> omFamilies,
+                               byte[] scratch) throws IOException {
+        for (Collector.MetricFamilySamples family : families) {
+            out.write(header(family, generation));
+
+            String createdName = family.name + "_created";
+            String gcountName = family.name + "_gcount";
+            String gsumName = family.name + "_gsum";
+            // OpenMetrics specific samples are counted with the family they are written in.
+            int written = 0;
+            for (Collector.MetricFamilySamples.Sample sample : family.samples) {
+                if (sample.name.equals(createdName) || sample.name.equals(gcountName) || sample.name.equals(gsumName)) {
+                    omFamilies.computeIfAbsent(sample.name, name -> new Collector.MetricFamilySamples(
+                            name, Collector.Type.GAUGE, family.help, new ArrayList<>())).samples.add(sample);
+                    continue;
+                }
+                out.write(seriesPrefix(sample, generation));
+                int len = formatDouble(sample.value, scratch);
+                if (len < 0) {
+                    out.write(Collector.doubleToGoString(sample.value).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    out.write(scratch, 0, len);
+                }
+                if (sample.timestampMs != null) {
+                    out.write(' ');
+                    out.write(Long.toString(sample.timestampMs).getBytes(StandardCharsets.UTF_8));
+                }
+                out.write('\n');
+                written++;
+            }
+            seriesCounts.merge(family.name, written, Integer::sum);
+        }
+    }
+
+    private byte[] header(Collector.MetricFamilySamples family, long generation) {
+        Header header = headers.get(family.name);
+        if (header == null || header.type != family.type || !header.help.equals(family.help)) {
+            header = new Header(family.type, family.help, encodeHeader(family));
+            headers.put(family.name, header);
+        }
+        header.generation = generation;
+        return header.bytes;
+    }
+
+    private byte[] seriesPrefix(Collector.MetricFamilySamples.Sample sample, long generation) {
+        Map<List<String>, Series> byLabelValues = series.computeIfAbsent(sample.name, k -> new ConcurrentHashMap<>());
+        Series s = byLabelValues.get(sample.labelValues);
+        if (s == null || !s.labelNames.equals(sample.labelNames)) {
+            s = new Series(sample.labelNames, encodeSeriesPrefix(sample));
+            byLabelValues.put(sample.labelValues, s);
+        }
+        s.generation = generation;
+        return s.bytes;
+    }
+
+    private void evict(long generation) {
+        headers.values().removeIf(h -> h.generation < generation);
+        for (Iterator<Map<List<String>, Series>> it = series.values().iterator(); it.hasNext();) {
+            Map<List<String>, Series> byLabelValues = it.next();
+            byLabelValues.values().removeIf(s -> s.generation < generation);
+            if (byLabelValues.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    private static byte[] encodeHeader(Collector.MetricFamilySamples family) {
+        String name = family.name;
+        if (family.type == Collector.Type.COUNTER) {
+            name += "_total";
+        } else if (family.type == Collector.Type.INFO) {
+            name += "_info";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("# HELP ").append(name).append(' ');
+        for (int i = 0; i < family.help.length(); i++) {
+            char c = family.help.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        sb.append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(typeString(family.type)).append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] encodeSeriesPrefix(Collector.MetricFamilySamples.Sample sample) {
+        StringBuilder sb = new StringBuilder(sample.name);
+        if (!sample.labelNames.isEmpty()) {
+            sb.append('{');
+            for (int i = 0; i < sample.labelNames.size(); i++) {
+                sb.append(sample.labelNames.get(i)).append("=\"");
+                String value = sample.labelValues.get(i);
+                for (int j = 0; j < value.length(); j++) {
+                    char c = value.charAt(j);
+                    switch (c) {
+                        case '\\':
+                            sb.append("\\\\");
+                            break;
+                        case '\"':
+                            sb.append("\\\"");
+                            break;
+                        case '\n':
+                            sb.append("\\n");
+                            break;
+                        default:
+                            sb.append(c);
+                    }
+                }
+                sb.append("\",");
+            }
+            sb.append('}');
+        }
+        sb.append(' ');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String typeString(Collector.Type type) {
+        switch (type) {
+            case GAUGE:
+            case STATE_SET:
+            case INFO:
+                return "gauge";
+            case COUNTER:
+                return "counter";
+            case SUMMARY:
+                return "summary";
+            case HISTOGRAM:
+            case GAUGE_HISTOGRAM:
+                return "histogram";
+            default:
+                return "untyped";
+        }
+    }
+
+    /**
+     * Format a sample value as ASCII into the given buffer, without allocating.
+     * <p>
+     * Whole numbers, the bulk of the values we export, are written as their digits followed by {@code .0}.
+     * Other values in the range where {@link Double#toString(double)} uses the plain notation are written with the
+     * fewest fraction digits which still parse back to the very same double. Both match the shortest round trip
+     * representation of {@link Double#toString(double)}, except that large whole numbers are not written in the
+     * scientific notation.
+     *
+     * @param value  value to format
+     * @param buffer buffer of at least 32 bytes
+     * @return number of bytes written, or -1 when the value must be formatted by {@link Double#toString(double)}
+     */
+    static int formatDouble(double value, byte[] buffer) {
+        if (Double.isNaN(value)) {
+            return copy(NAN, buffer);
+        }
+        if (value == Double.POSITIVE_INFINITY) {
+            return copy(INF, buffer);
+        }
+        if (value == Double.NEGATIVE_INFINITY) {
+            return copy(NEG_INF, buffer);
+        }
+
+        int pos = 0;
+        double abs = Math.abs(value);
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+            buffer[pos++] = '-';
+        }
+        if (abs < WHOLE_MAX && abs == Math.rint(abs)) {
+            pos = writeLong((long) abs, buffer, pos);
+            buffer[pos++] = '.';
+            buffer[pos++] = '0';
+            return pos;
+        }
+        if (abs < PLAIN_MIN || abs >= PLAIN_MAX) {
+            return -1;
+        }
+        for (int digits = 1; digits <= MAX_FRACTION_DIGITS; digits++) {
+            double scale = POWERS_OF_TEN[digits];
+            long scaled = Math.round(abs * scale);
+            // Division of two exactly representable numbers is correctly rounded, this is the parsed value.
+            if (scaled / scale == abs) {
+                long integer = scaled / (long) scale;
+                long fraction = scaled % (long) scale;
+                pos = writeLong(integer, buffer, pos);
+                buffer[pos++] = '.';
+                for (long p = (long) scale / 10; p > fraction && p > 1; p /= 10) {
+                    buffer[pos++] = '0';
+                }
+                return writeLong(fraction, buffer, pos);
+            }
+        }
+        return -1;
+    }
+
+    private static int writeLong(long value, byte[] buffer, int pos) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+
+    private static int copy(byte[] bytes, byte[] buffer) {
+        System.arraycopy(bytes, 0, buffer, 0, bytes.length);
+        return bytes.length;
+    }
+
+    private static final class Header {
+        private final Collector.Type type;
+        private final String help;
+        private final byte[] bytes;
+        private volatile long generation;
+
+        private Header(Collector.Type type, String help, byte[] bytes) {
+            this.type = type;
+            this.help = help;
+            this.bytes = bytes;
+        }
+    }
+
+    private static final class Series {
+        private final List<String> labelNames;
+        private final byte[] bytes;
+        private volatile long generation;
+
+        private Series(List<String> labelNames, byte[] bytes) {
+            this.labelNames = labelNames;
+            this.bytes = bytes;
+        }
+    }
+}
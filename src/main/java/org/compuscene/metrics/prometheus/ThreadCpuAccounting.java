@@ -0,0 +1,153 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CPU time used by the threads of this node, grouped by thread pool.
+ * <p>
+ * Every sample reads the CPU time of the live threads and adds the delta since the previous sample to the total of
+ * their pool. The previous readings are kept in arrays sorted by thread id, which are merged with the sorted ids of
+ * the live threads, so a sample costs one CPU time reading per thread and no boxing. Thread names are only read for
+ * the threads not seen before. The CPU used by a thread between its last sample and its end is not accounted for.
+ */
+class ThreadCpuAccounting {
+
+    /**
+     * Pool of the threads which are not part of an Elasticsearch thread pool.
+     */
+    static final String OTHER = "other";
+
+    private static final long[] EMPTY_IDS = new long[0];
+
+    private final ThreadMXBean threads;
+    private final Map<String, LongAdder> cpuNanosByPool = new ConcurrentHashMap<>();
+
+    // Sorted ids of the threads seen by the previous sample, with their CPU time and pool total.
+    private long[] ids = EMPTY_IDS;
+    private long[] cpuNanos = EMPTY_IDS;
+    private LongAdder[] pools = new LongAdder[0];
+
+    ThreadCpuAccounting(ThreadMXBean threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Can the CPU time of the threads be read at all on this JVM.
+     */
+    static boolean isSupported(ThreadMXBean threads) {
+        return threads.isThreadCpuTimeSupported() && threads.isThreadCpuTimeEnabled();
+    }
+
+    /**
+     * Account for the CPU used since the previous sample. Not thread safe, only the sampler calls it.
+     */
+    void sample() {
+        long[] liveIds = threads.getAllThreadIds();
+        Arrays.sort(liveIds);
+        long[] liveCpuNanos = new long[liveIds.length];
+        LongAdder[] livePools = new LongAdder[liveIds.length];
+        long[] newIds = new long[liveIds.length];
+        int newCount = 0;
+
+        int previous = 0;
+        for (int i = 0; i < liveIds.length; i++) {
+            while (previous < ids.length && ids[previous] < liveIds[i]) {
+                previous++;
+            }
+            if (previous < ids.length && ids[previous] == liveIds[i]) {
+                livePools[i] = pools[previous];
+                liveCpuNanos[i] = cpuNanos[previous];
+            } else {
+                newIds[newCount++] = liveIds[i];
+            }
+        }
+        if (newCount > 0) {
+            resolvePools(liveIds, livePools, Arrays.copyOf(newIds, newCount));
+        }
+
+        int live = 0;
+        for (int i = 0; i < liveIds.length; i++) {
+            long cpu = threads.getThreadCpuTime(liveIds[i]);
+            if (cpu < 0 || livePools[i] == null) {
+                // The thread ended in the meantime.
+                continue;
+            }
+            // New threads start from zero, they did not exist or were not accounted for before.
+            if (cpu > liveCpuNanos[i]) {
+                livePools[i].add(cpu - liveCpuNanos[i]);
+            }
+            liveIds[live] = liveIds[i];
+            liveCpuNanos[live] = cpu;
+            livePools[live] = livePools[i];
+            live++;
+        }
+        ids = Arrays.copyOf(liveIds, live);
+        cpuNanos = Arrays.copyOf(liveCpuNanos, live);
+        pools = Arrays.copyOf(livePools, live);
+    }
+
+    private void resolvePools(long[] liveIds, LongAdder[] livePools, long[] newIds) {
+        ThreadInfo[] infos = threads.getThreadInfo(newIds);
+        for (int i = 0; i < newIds.length; i++) {
+            if (infos[i] == null) {
+                continue;
+            }
+            int idx = Arrays.binarySearch(liveIds, newIds[i]);
+            livePools[idx] = cpuNanosByPool.computeIfAbsent(poolName(infos[i].getThreadName()), p -> new LongAdder());
+        }
+    }
+
+    /**
+     * Thread pool of a thread, from a name such as {@code elasticsearch[node-1][write][T#3]}.
+     */
+    static String poolName(String threadName) {
+        if (threadName.startsWith("elasticsearch[") == false) {
+            return OTHER;
+        }
+        if (threadName.contains("Lucene Merge Thread")) {
+            return "lucene_merge";
+        }
+        // The node name may contain brackets, the pool is the last group before the thread number.
+        int end = threadName.lastIndexOf("][T#");
+        if (end < 0) {
+            return OTHER;
+        }
+        int start = threadName.lastIndexOf('[', end - 1);
+        return start < 0 || start + 1 >= end ? OTHER : threadName.substring(start + 1, end);
+    }
+
+    /**
+     * CPU time used by the threads of every pool, in seconds, sorted by pool name.
+     */
+    Map<String, Double> getCpuSeconds() {
+        Map<String, Double> seconds = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : cpuNanosByPool.entrySet()) {
+            seconds.put(e.getKey(), e.getValue().sum() / 1E9);
+        }
+        return Collections.unmodifiableMap(seconds);
+    }
+}
@@ -23,6 +23,9 @@ public class NodePrometheusMetricsAction extends ActionType<NodePrometheusMetric
 
     public static final NodePrometheusMetricsAction INSTANCE = new NodePrometheusMetricsAction();
     public static final String NAME = "cluster:monitor/prometheus/metrics";
+    // Origin of the requests collecting the metrics. On a secured cluster, the requests of a known origin are run by
+    // an internal user, so that the collected stats do not depend on the privileges of whoever asked for the metrics.
+    public static final String ORIGIN = "monitoring";
 
     private NodePrometheusMetricsAction() {
         super(NAME);
@@ -19,6 +19,7 @@ package org.elasticsearch.action;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.compuscene.metrics.prometheus.PrometheusSelfMetrics;
 import org.compuscene.metrics.prometheus.PrometheusSettings;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthRequest;
@@ -32,6 +33,7 @@ import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.HandledTransportAction;
 import org.elasticsearch.client.internal.Client;
+import org.elasticsearch.client.internal.OriginSettingClient;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
@@ -46,14 +48,22 @@ import org.elasticsearch.transport.TransportService;
  * It performs several requests within the cluster to gather "cluster health", "nodes stats", "indices stats"
  * and "cluster state" (i.e. cluster settings) info. Some of those requests are optional depending on plugin
  * settings.
+ * <p>
+ * The action itself is authorized against the privileges of the caller, and so are the requests it performs. Only
+ * when the internal user setting is enabled are they run with the {@link NodePrometheusMetricsAction#ORIGIN} origin
+ * instead. The response is then the same for every caller, and can thus be handed out again to the following callers
+ * until it is older than the snapshot TTL.
  */
 public class TransportNodePrometheusMetricsAction extends HandledTransportAction<NodePrometheusMetricsRequest,
         NodePrometheusMetricsResponse> {
     private final Client client;
+    private final Client internalClient;
     private final Settings settings;
     private final ClusterSettings clusterSettings;
     private final PrometheusSettings prometheusSettings;
+    private final PrometheusSelfMetrics selfMetrics;
     private final Logger logger = LogManager.getLogger(getClass());
+    private volatile CachedResponse cachedResponse;
 
     @Inject
     public TransportNodePrometheusMetricsAction(
@@ -61,7 +71,8 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
             Client client,
             TransportService transportService,
             ActionFilters actionFilters,
-            ClusterSettings clusterSettings
+            ClusterSettings clusterSettings,
+            PrometheusSelfMetrics selfMetrics
     ) {
         super(
                 NodePrometheusMetricsAction.NAME,
@@ -71,8 +82,10 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
                 EsExecutors.DIRECT_EXECUTOR_SERVICE
         );
         this.client = client;
+        this.internalClient = new OriginSettingClient(client, NodePrometheusMetricsAction.ORIGIN);
         this.settings = settings;
         this.clusterSettings = clusterSettings;
+        this.selfMetrics = selfMetrics;
         this.prometheusSettings = new PrometheusSettings(
                 settings,
                 clusterSettings
@@ -85,9 +98,25 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
             NodePrometheusMetricsRequest request,
             ActionListener<NodePrometheusMetricsResponse> listener
     ) {
+        // A response collected as the calling user is never handed out to another caller.
+        CachedResponse cached = prometheusSettings.getPrometheusInternalUser() ? cachedResponse : null;
+        if (cached != null && System.nanoTime() - cached.createdNanos < prometheusSettings.getPrometheusSnapshotTtl().nanos()) {
+            listener.onResponse(cached.response);
+            return;
+        }
         new AsyncAction(listener).start();
     }
 
+    private static final class CachedResponse {
+        private final NodePrometheusMetricsResponse response;
+        private final long createdNanos;
+
+        private CachedResponse(NodePrometheusMetricsResponse response, long createdNanos) {
+            this.response = response;
+            this.createdNanos = createdNanos;
+        }
+    }
+
     private class AsyncAction {
 
         private final ActionListener<NodePrometheusMetricsResponse> listener;
@@ -105,6 +134,13 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
         // read the state of prometheus dynamic settings only once at the beginning of the async request
         private final boolean isPrometheusIndices = prometheusSettings.getPrometheusIndices();
         private final boolean isPrometheusClusterSettings = prometheusSettings.getPrometheusClusterSettings();
+        private final boolean isPrometheusInternalUser = prometheusSettings.getPrometheusInternalUser();
+        private final Client client = isPrometheusInternalUser
+                ? internalClient : TransportNodePrometheusMetricsAction.this.client;
+
+        // System.nanoTime() readings used to time the whole collection and the request currently in flight
+        private long collectStartNanos;
+        private long requestStartNanos;
 
         // All the requests are executed in sequential non-blocking order.
         // It is implemented by wrapping each individual request with ActionListener
@@ -134,24 +170,31 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
         }
 
         private void gatherRequests() {
-            listener.onResponse(buildResponse(
+            selfMetrics.observePhase(PrometheusSelfMetrics.Phase.COLLECT, collectStartNanos);
+            NodePrometheusMetricsResponse response = buildResponse(
                     clusterHealthResponse,
                     nodesStatsResponse,
                     indicesStatsResponse,
                     clusterStateResponse
-            ));
+            );
+            cachedResponse = isPrometheusInternalUser && prometheusSettings.getPrometheusSnapshotTtl().nanos() > 0
+                    ? new CachedResponse(response, collectStartNanos) : null;
+            listener.onResponse(response);
         }
 
         private final ActionListener<ClusterStateResponse> clusterStateResponseActionListener =
                 new ActionListener<>() {
                     @Override
                     public void onResponse(ClusterStateResponse response) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.CLUSTER_STATE, requestStartNanos);
                         clusterStateResponse = response;
                         gatherRequests();
                     }
 
                     @Override
                     public void onFailure(Exception e) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.CLUSTER_STATE, requestStartNanos);
+                        selfMetrics.recordFailure(PrometheusSelfMetrics.Failure.CLUSTER_STATE);
                         listener.onFailure(new ElasticsearchException(
                                 "Cluster state request failed",
                                 e
@@ -163,19 +206,15 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
                 new ActionListener<>() {
                     @Override
                     public void onResponse(IndicesStatsResponse response) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.INDICES_STATS, requestStartNanos);
                         indicesStatsResponse = response;
-                        if (isPrometheusClusterSettings) {
-                            client.admin().cluster().state(
-                                    clusterStateRequest,
-                                    clusterStateResponseActionListener
-                            );
-                        } else {
-                            gatherRequests();
-                        }
+                        requestClusterState();
                     }
 
                     @Override
                     public void onFailure(Exception e) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.INDICES_STATS, requestStartNanos);
+                        selfMetrics.recordFailure(PrometheusSelfMetrics.Failure.INDICES_STATS);
                         listener.onFailure(new ElasticsearchException(
                                 "Indices stats request failed",
                                 e
@@ -183,23 +222,39 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
                     }
                 };
 
+        private void requestClusterState() {
+            if (isPrometheusClusterSettings) {
+                requestStartNanos = System.nanoTime();
+                client.admin().cluster().state(
+                        clusterStateRequest,
+                        clusterStateResponseActionListener
+                );
+            } else {
+                gatherRequests();
+            }
+        }
+
         private final ActionListener<NodesStatsResponse> nodesStatsResponseActionListener =
                 new ActionListener<>() {
                     @Override
                     public void onResponse(NodesStatsResponse nodeStats) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.NODES_STATS, requestStartNanos);
                         nodesStatsResponse = nodeStats;
                         if (isPrometheusIndices) {
+                            requestStartNanos = System.nanoTime();
                             client.admin().indices().stats(
                                     indicesStatsRequest,
                                     indicesStatsResponseActionListener
                             );
                         } else {
-                            indicesStatsResponseActionListener.onResponse(null);
+                            requestClusterState();
                         }
                     }
 
                     @Override
                     public void onFailure(Exception e) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.NODES_STATS, requestStartNanos);
+                        selfMetrics.recordFailure(PrometheusSelfMetrics.Failure.NODES_STATS);
                         listener.onFailure(new ElasticsearchException(
                                 "Nodes stats request failed",
                                 e
@@ -211,7 +266,9 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
                 new ActionListener<>() {
                     @Override
                     public void onResponse(ClusterHealthResponse response) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.CLUSTER_HEALTH, requestStartNanos);
                         clusterHealthResponse = response;
+                        requestStartNanos = System.nanoTime();
                         client.admin().cluster().nodesStats(
                                 nodesStatsRequest,
                                 nodesStatsResponseActionListener
@@ -220,6 +277,8 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
 
                     @Override
                     public void onFailure(Exception e) {
+                        selfMetrics.observeRequest(PrometheusSelfMetrics.Request.CLUSTER_HEALTH, requestStartNanos);
+                        selfMetrics.recordFailure(PrometheusSelfMetrics.Failure.CLUSTER_HEALTH);
                         listener.onFailure(new ElasticsearchException(
                                 "Cluster health request failed",
                                 e
@@ -228,6 +287,8 @@ public class TransportNodePrometheusMetricsAction extends HandledTransportAction
                 };
 
         private void start() {
+            collectStartNanos = System.nanoTime();
+            requestStartNanos = collectStartNanos;
             client.admin().cluster().health(
                     healthRequest,
                     clusterHealthResponseActionListener
@@ -20,20 +20,47 @@ package org.elasticsearch.plugin.prometheus;
 import static java.util.Collections.singletonList;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.compuscene.metrics.prometheus.ActionLatencyFilter;
+import org.compuscene.metrics.prometheus.DiskWatermarkHeadroom;
+import org.compuscene.metrics.prometheus.IndexOperationHistograms;
+import org.compuscene.metrics.prometheus.IndexRollup;
+import org.compuscene.metrics.prometheus.IngestProcessorTopK;
+import org.compuscene.metrics.prometheus.PageCacheSampler;
+import org.compuscene.metrics.prometheus.PrometheusMetricsSources;
+import org.compuscene.metrics.prometheus.PrometheusSampler;
+import org.compuscene.metrics.prometheus.PrometheusSelfMetrics;
 import org.compuscene.metrics.prometheus.PrometheusSettings;
+import org.compuscene.metrics.prometheus.RemoteWriteProtocol;
+import org.compuscene.metrics.prometheus.RemoteWritePusher;
+import org.compuscene.metrics.prometheus.RemoteWriteSender;
+import org.compuscene.metrics.prometheus.ShardTopK;
+import org.compuscene.metrics.prometheus.TextExpositionEncoder;
 import org.elasticsearch.action.NodePrometheusMetricsAction;
 import org.elasticsearch.action.TransportNodePrometheusMetricsAction;
+import org.elasticsearch.action.support.ActionFilter;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.DataStream;
+import org.elasticsearch.cluster.metadata.IndexAbstraction;
+import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.cluster.project.ProjectResolver;
+import org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.*;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.features.NodeFeature;
+import org.elasticsearch.index.IndexModule;
 import org.elasticsearch.plugins.ActionPlugin;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.rest.RestHandler;
 import org.elasticsearch.rest.prometheus.RestPrometheusMetricsAction;
+import java.io.IOException;
+import java.net.URI;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -44,6 +71,14 @@ public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
     private static final Logger logger = LogManager.getLogger(PrometheusExporterPlugin.class);
 
     private ClusterSettings clusterSettings;
+    private TextExpositionEncoder encoder;
+    private PrometheusSampler sampler;
+    private PageCacheSampler pageCacheSampler;
+    private IndexOperationHistograms indexOperationHistograms;
+    private PrometheusMetricsSources sources;
+    private RemoteWritePusher remoteWritePusher;
+    // Action filters are asked for before the components are created.
+    private final ActionLatencyFilter actionLatencyFilter = new ActionLatencyFilter();
 
     public PrometheusExporterPlugin() {
         logger.info("starting Prometheus exporter plugin");
@@ -52,7 +87,119 @@ public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
     @Override
     public Collection<?> createComponents(PluginServices services) {
         this.clusterSettings = services.clusterService().getClusterSettings();
-        return Collections.emptyList();
+        PrometheusSelfMetrics selfMetrics = new PrometheusSelfMetrics();
+        this.encoder = new TextExpositionEncoder();
+        ClusterService clusterService = services.clusterService();
+        ShardTopK shardTopK = new ShardTopK(nodeId -> {
+            DiscoveryNode node = clusterService.state().nodes().get(nodeId);
+            return node == null ? nodeId : node.getName();
+        });
+        ProjectResolver projectResolver = services.projectResolver();
+        IndexRollup indexRollup = new IndexRollup(() -> {
+            // A single lookup of the project of the stats is used for the whole collection.
+            ClusterState state = clusterService.state();
+            if (projectResolver.hasProject(state) == false) {
+                return index -> null;
+            }
+            Map<String, IndexAbstraction> lookup = projectResolver.getProjectMetadata(state).getIndicesLookup();
+            return index -> {
+                IndexAbstraction indexAbstraction = lookup.get(index);
+                DataStream dataStream = indexAbstraction == null ? null : indexAbstraction.getParentDataStream();
+                return dataStream == null ? null : dataStream.getName();
+            };
+        });
+
+        Settings settings = services.environment().settings();
+        actionLatencyFilter.setActions(PrometheusSettings.PROMETHEUS_ACTIONS.get(settings));
+        clusterSettings.addSettingsUpdateConsumer(PrometheusSettings.PROMETHEUS_ACTIONS, actionLatencyFilter::setActions);
+        indexRollup.setPatterns(PrometheusSettings.PROMETHEUS_INDICES_ROLLUP_PATTERNS.get(settings));
+        clusterSettings.addSettingsUpdateConsumer(PrometheusSettings.PROMETHEUS_INDICES_ROLLUP_PATTERNS,
+                indexRollup::setPatterns);
+        if (PrometheusSettings.PROMETHEUS_INDICES_HISTOGRAMS.get(settings)) {
+            this.indexOperationHistograms = new IndexOperationHistograms(services.indicesService()::hasIndex);
+        }
+        TimeValue samplerInterval = PrometheusSettings.PROMETHEUS_SAMPLER_INTERVAL.get(settings);
+        if (samplerInterval.nanos() > 0) {
+            this.sampler = new PrometheusSampler(
+                    services.threadPool(),
+                    services.indicesService().getCircuitBreakerService(),
+                    services.indexingPressure(),
+                    samplerInterval,
+                    PrometheusSettings.PROMETHEUS_SAMPLER_WINDOW.get(settings)
+            );
+            sampler.start();
+        }
+        TimeValue pageCacheInterval = PrometheusSettings.PROMETHEUS_PAGE_CACHE_INTERVAL.get(settings);
+        if (pageCacheInterval.nanos() > 0) {
+            this.pageCacheSampler = new PageCacheSampler(
+                    services.indicesService(),
+                    services.threadPool(),
+                    pageCacheInterval,
+                    PrometheusSettings.PROMETHEUS_PAGE_CACHE_PROBES.get(settings)
+            );
+            pageCacheSampler.start();
+        }
+        RemoteWriteSender remoteWriteSender = null;
+        String remoteWriteUrl = PrometheusSettings.PROMETHEUS_REMOTE_WRITE_URL.get(settings);
+        RemoteWriteProtocol remoteWriteProtocol = PrometheusSettings.PROMETHEUS_REMOTE_WRITE_PROTOCOL.get(settings);
+        if (remoteWriteUrl.isEmpty() == false) {
+            remoteWriteSender = new RemoteWriteSender(
+                    URI.create(remoteWriteUrl),
+                    remoteWriteProtocol.getHeaders(),
+                    PrometheusSettings.PROMETHEUS_REMOTE_WRITE_SHARDS.get(settings),
+                    PrometheusSettings.PROMETHEUS_REMOTE_WRITE_QUEUE_CAPACITY.get(settings),
+                    services.threadPool().generic()
+            );
+        }
+        this.sources = new PrometheusMetricsSources(
+                selfMetrics,
+                sampler,
+                indexOperationHistograms,
+                actionLatencyFilter,
+                services.taskManager(),
+                services.threadPool(),
+                clusterService,
+                shardTopK,
+                new IngestProcessorTopK(),
+                indexRollup,
+                remoteWriteSender,
+                new DiskWatermarkHeadroom(
+                        clusterService,
+                        services.allocationService().getClusterInfoService(),
+                        new DiskThresholdSettings(settings, clusterSettings)
+                ),
+                pageCacheSampler
+        );
+        if (remoteWriteSender != null) {
+            this.remoteWritePusher = new RemoteWritePusher(
+                    services.client(),
+                    services.threadPool(),
+                    sources,
+                    new PrometheusSettings(settings, clusterSettings),
+                    remoteWriteSender,
+                    remoteWriteProtocol,
+                    PrometheusSettings.PROMETHEUS_REMOTE_WRITE_INTERVAL.get(settings),
+                    PrometheusSettings.PROMETHEUS_REMOTE_WRITE_MAX_SAMPLES_PER_SEND.get(settings),
+                    PrometheusSettings.PROMETHEUS_REMOTE_WRITE_STALE_AFTER.get(settings)
+            );
+            remoteWritePusher.start();
+        }
+        // Returned components are bound by Guice, this makes them available to the transport action.
+        return Collections.singletonList(selfMetrics);
+    }
+
+    @Override
+    public void onIndexModule(IndexModule indexModule) {
+        // Index modules are only created once the node is started, after the components.
+        // Histograms are not created at all when disabled, leaving indexing and search untouched.
+        if (indexOperationHistograms != null) {
+            indexOperationHistograms.onIndexModule(indexModule);
+        }
+    }
+
+    @Override
+    public Collection<ActionFilter> getActionFilters() {
+        return singletonList(actionLatencyFilter);
     }
 
     @Override
@@ -74,7 +221,9 @@ public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
         return singletonList(
                 new RestPrometheusMetricsAction(
                         restHandlersServices.settings(),
-                        clusterSettings
+                        clusterSettings,
+                        sources,
+                        encoder
                 )
         );
     }
@@ -83,8 +232,42 @@ public class PrometheusExporterPlugin extends Plugin implements ActionPlugin {
     public List<Setting<?>> getSettings() {
         List<Setting<?>> settings = Arrays.asList(
                 PrometheusSettings.PROMETHEUS_CLUSTER_SETTINGS,
-                PrometheusSettings.PROMETHEUS_INDICES
+                PrometheusSettings.PROMETHEUS_INDICES,
+                PrometheusSettings.PROMETHEUS_SNAPSHOT_TTL,
+                PrometheusSettings.PROMETHEUS_INTERNAL_USER,
+                PrometheusSettings.PROMETHEUS_SHARDS_TOP_K,
+                PrometheusSettings.PROMETHEUS_CLUSTER_APPLIER_TOP_K,
+                PrometheusSettings.PROMETHEUS_INGEST_PROCESSORS_TOP_K,
+                PrometheusSettings.PROMETHEUS_INDICES_ROLLUP,
+                PrometheusSettings.PROMETHEUS_INDICES_ROLLUP_PATTERNS,
+                PrometheusSettings.PROMETHEUS_INDICES_HISTOGRAMS,
+                PrometheusSettings.PROMETHEUS_ACTIONS,
+                PrometheusSettings.PROMETHEUS_TRANSPORT_ACTIONS,
+                PrometheusSettings.PROMETHEUS_SAMPLER_INTERVAL,
+                PrometheusSettings.PROMETHEUS_SAMPLER_WINDOW,
+                PrometheusSettings.PROMETHEUS_PAGE_CACHE_INTERVAL,
+                PrometheusSettings.PROMETHEUS_PAGE_CACHE_PROBES,
+                PrometheusSettings.PROMETHEUS_REMOTE_WRITE_URL,
+                PrometheusSettings.PROMETHEUS_REMOTE_WRITE_PROTOCOL,
+                PrometheusSettings.PROMETHEUS_REMOTE_WRITE_INTERVAL,
+                PrometheusSettings.PROMETHEUS_REMOTE_WRITE_SHARDS,
+                PrometheusSettings.PROMETHEUS_REMOTE_WRITE_QUEUE_CAPACITY,
+                PrometheusSettings.PROMETHEUS_REMOTE_WRITE_MAX_SAMPLES_PER_SEND,
+                PrometheusSettings.PROMETHEUS_REMOTE_WRITE_STALE_AFTER
         );
         return Collections.unmodifiableList(settings);
     }
+
+    @Override
+    public void close() throws IOException {
+        if (sampler != null) {
+            sampler.close();
+        }
+        if (pageCacheSampler != null) {
+            pageCacheSampler.close();
+        }
+        if (remoteWritePusher != null) {
+            remoteWritePusher.close();
+        }
+    }
 }
@@ -21,18 +21,28 @@ import static org.elasticsearch.action.NodePrometheusMetricsAction.INSTANCE;
 import static org.elasticsearch.rest.RestRequest.Method.GET;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.compuscene.metrics.prometheus.ExpositionSnapshot;
 import org.compuscene.metrics.prometheus.PrometheusMetricsCatalog;
 import org.compuscene.metrics.prometheus.PrometheusMetricsCollector;
+import org.compuscene.metrics.prometheus.PrometheusMetricsSources;
+import org.compuscene.metrics.prometheus.PrometheusSelfMetrics;
 import org.compuscene.metrics.prometheus.PrometheusSettings;
+import org.compuscene.metrics.prometheus.TextExpositionEncoder;
 import org.elasticsearch.action.NodePrometheusMetricsRequest;
 import org.elasticsearch.action.NodePrometheusMetricsResponse;
 import org.elasticsearch.client.internal.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.rest.*;
 import org.elasticsearch.rest.action.RestResponseListener;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import io.prometheus.client.exporter.common.TextFormat;
 
 /**
  * REST action class for Prometheus Exporter plugin.
@@ -40,10 +50,20 @@ import java.util.List;
 public class RestPrometheusMetricsAction extends BaseRestHandler {
 
     private final PrometheusSettings prometheusSettings;
+    private final PrometheusMetricsSources sources;
+    private final PrometheusSelfMetrics selfMetrics;
+    private final TextExpositionEncoder encoder;
+    // Latest snapshot for every content type, along with the response it was encoded from. The transport action hands
+    // out the same response until it is older than the snapshot TTL, which is then encoded only once.
+    private final Map<String, EncodedResponse> snapshots = new ConcurrentHashMap<>();
     private final Logger logger = LogManager.getLogger(getClass());
 
-    public RestPrometheusMetricsAction(Settings settings, ClusterSettings clusterSettings) {
+    public RestPrometheusMetricsAction(Settings settings, ClusterSettings clusterSettings,
+                                       PrometheusMetricsSources sources, TextExpositionEncoder encoder) {
         this.prometheusSettings = new PrometheusSettings(settings, clusterSettings);
+        this.sources = sources;
+        this.selfMetrics = sources.getSelfMetrics();
+        this.encoder = encoder;
     }
 
     @Override
@@ -69,13 +89,23 @@ public class RestPrometheusMetricsAction extends BaseRestHandler {
         if (logger.isTraceEnabled()) {
             logger.trace("Request accept header {}", acceptHeader != null ? acceptHeader : "NONE");
         }
+        String contentType = TextFormat.chooseContentType(acceptHeader);
+        String ifNoneMatch = request.header("If-None-Match");
+        boolean gzip = ExpositionSnapshot.acceptsGzip(request.header("Accept-Encoding"));
+
+        long startNanos = System.nanoTime();
         NodePrometheusMetricsRequest metricsRequest = new NodePrometheusMetricsRequest();
 
+        // Every request goes through the transport action, so that it is authorized even when served from a snapshot.
         return channel -> client.execute(INSTANCE, metricsRequest,
                 new RestResponseListener<>(channel) {
 
                     @Override
                     public RestResponse buildResponse(NodePrometheusMetricsResponse response) throws Exception {
+                        EncodedResponse encoded = snapshots.get(contentType);
+                        if (encoded != null && encoded.response == response) {
+                            return RestPrometheusMetricsAction.this.buildResponse(encoded.snapshot, ifNoneMatch, gzip);
+                        }
                         String clusterName = response.getClusterHealth().getClusterName();
                         String nodeName = response.getNodeStats().getNode().getName();
                         String nodeId = response.getNodeStats().getNode().getId();
@@ -86,23 +116,70 @@ public class RestPrometheusMetricsAction extends BaseRestHandler {
                                     nodeName
                             );
                         }
-                        PrometheusMetricsCatalog catalog = new PrometheusMetricsCatalog(
-                                clusterName, nodeName, nodeId, "es_");
-                        PrometheusMetricsCollector collector = new PrometheusMetricsCollector(
-                                catalog,
-                                prometheusSettings.getPrometheusIndices(),
-                                prometheusSettings.getPrometheusClusterSettings()
-                        );
+                        PrometheusMetricsCatalog catalog = sources.newCatalog(response);
+                        PrometheusMetricsCollector collector = sources.newCollector(catalog, prometheusSettings);
+                        long phaseStartNanos = System.nanoTime();
                         collector.registerMetrics();
+                        selfMetrics.observePhase(PrometheusSelfMetrics.Phase.REGISTER, phaseStartNanos);
+
+                        phaseStartNanos = System.nanoTime();
                         collector.updateMetrics(
                                 response.getClusterHealth(),
                                 response.getNodeStats(),
                                 response.getIndicesStats(),
                                 response.getClusterStatsData()
                         );
-                        String contentType = catalog.getContentType(acceptHeader);
-                        return new RestResponse(RestStatus.OK, contentType, catalog.toTextFormat(contentType));
+                        selfMetrics.observePhase(PrometheusSelfMetrics.Phase.UPDATE, phaseStartNanos);
+
+                        phaseStartNanos = System.nanoTime();
+                        BytesStreamOutput body = new BytesStreamOutput();
+                        try {
+                            catalog.writeTo(contentType, body, encoder);
+                        } catch (Exception e) {
+                            selfMetrics.recordFailure(PrometheusSelfMetrics.Failure.ENCODE);
+                            throw e;
+                        }
+                        selfMetrics.observePhase(PrometheusSelfMetrics.Phase.ENCODE, phaseStartNanos);
+                        selfMetrics.recordExposition(body.size(), catalog.getLastSeriesCounts());
+
+                        ExpositionSnapshot snapshot = new ExpositionSnapshot(contentType, body.bytes());
+                        if (prometheusSettings.getPrometheusSnapshotTtl().nanos() > 0) {
+                            snapshots.put(contentType, new EncodedResponse(response, snapshot));
+                        } else {
+                            snapshots.remove(contentType);
+                        }
+                        RestResponse restResponse = RestPrometheusMetricsAction.this.buildResponse(
+                                snapshot, ifNoneMatch, gzip);
+                        selfMetrics.observePhase(PrometheusSelfMetrics.Phase.TOTAL, startNanos);
+                        return restResponse;
                     }
                 });
     }
+
+    private RestResponse buildResponse(ExpositionSnapshot snapshot, String ifNoneMatch, boolean gzip)
+            throws IOException {
+        RestResponse response;
+        if (snapshot.matches(ifNoneMatch)) {
+            response = new RestResponse(RestStatus.NOT_MODIFIED, snapshot.getContentType(), BytesArray.EMPTY);
+        } else if (gzip) {
+            // The HTTP layer leaves responses which already have a content encoding alone.
+            response = new RestResponse(RestStatus.OK, snapshot.getContentType(), snapshot.getGzipBody());
+            response.addHeader("Content-Encoding", "gzip");
+        } else {
+            response = new RestResponse(RestStatus.OK, snapshot.getContentType(), snapshot.getBody());
+        }
+        response.addHeader("ETag", snapshot.getETag());
+        response.addHeader("Vary", "Accept-Encoding");
+        return response;
+    }
+
+    private static final class EncodedResponse {
+        private final NodePrometheusMetricsResponse response;
+        private final ExpositionSnapshot snapshot;
+
+        private EncodedResponse(NodePrometheusMetricsResponse response, ExpositionSnapshot snapshot) {
+            this.response = response;
+            this.snapshot = snapshot;
+        }
+    }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.support.ActionFilterChain;
+import org.junit.Test;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+public class ActionLatencyFilterTests {
+
+    private static final String SEARCH = "indices:data/read/search";
+
+    @Test
+    public void testOnlyAllowListedActionsAreTimed() {
+        ActionLatencyFilter filter = new ActionLatencyFilter();
+        filter.setActions(List.of(SEARCH));
+        ActionLatencyFilter.ActionStats stats = filter.getActions().get(SEARCH);
+        AtomicInteger responses = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+        ActionListener<ActionResponse> listener = ActionListener.wrap(r -> responses.incrementAndGet(),
+                e -> failures.incrementAndGet());
+
+        // Other actions get the listener as it is.
+        AtomicReference<ActionListener<ActionResponse>> proceeded = new AtomicReference<>();
+        filter.apply(null, "indices:data/write/bulk", new TestRequest(), listener, respond(proceeded::set));
+        assertSame(listener, proceeded.get());
+        assertEquals(List.of(SEARCH), List.copyOf(filter.getActions().keySet()));
+
+        filter.apply(null, SEARCH, new TestRequest(), listener, respond(l -> {
+            assertEquals(1, stats.getCurrent());
+            l.onResponse(ActionResponse.Empty.INSTANCE);
+        }));
+        filter.apply(null, SEARCH, new TestRequest(), listener, respond(l -> l.onFailure(new IllegalStateException())));
+        assertEquals(0, stats.getCurrent());
+        assertEquals(2, count(stats));
+        assertEquals(1, responses.get());
+        assertEquals(1, failures.get());
+    }
+
+    @Test
+    public void testInFlightExecutionEndsWhenTheChainThrows() {
+        ActionLatencyFilter filter = new ActionLatencyFilter();
+        filter.setActions(List.of(SEARCH));
+        ActionLatencyFilter.ActionStats stats = filter.getActions().get(SEARCH);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        filter.apply(null, SEARCH, new TestRequest(), ActionListener.wrap(r -> {}, failure::set),
+                respond(l -> {
+                    throw new IllegalStateException("rejected");
+                }));
+        assertEquals(0, stats.getCurrent());
+        assertEquals(1, count(stats));
+        assertTrue(failure.get() instanceof IllegalStateException);
+    }
+
+    private static ActionFilterChain<TestRequest, ActionResponse> respond(Consumer<ActionListener<ActionResponse>> response) {
+        return (task, action, request, listener) -> response.accept(listener);
+    }
+
+    private static long count(ActionLatencyFilter.ActionStats stats) {
+        long[] counts = stats.getTime().getCumulativeCounts();
+        return counts[counts.length - 1];
+    }
+
+    private static class TestRequest extends ActionRequest {
+        @Override
+        public ActionRequestValidationException validate() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.elasticsearch.cluster.service.ClusterApplierRecordingService.Stats;
+import org.junit.Test;
+import java.util.List;
+import java.util.Map;
+
+public class ClusterApplierRecordingsTests {
+
+    @Test
+    public void testTopByTime() {
+        Stats stats = new Stats(Map.of(
+                "connecting to new nodes", new Stats.Recording(10, 5),
+                "org.elasticsearch.indices.cluster.IndicesClusterStateService@1b2c3d", new Stats.Recording(10, 900),
+                "org.elasticsearch.Foo$$Lambda/0x00007f3c1c4a6b10@5c8e1a2", new Stats.Recording(10, 300),
+                "org.elasticsearch.Foo$$Lambda/0x00007f3c1c4a6c20@77aa01", new Stats.Recording(4, 400),
+                "applying settings", new Stats.Recording(10, 1)));
+
+        List<ClusterApplierRecordings.Recording> top = ClusterApplierRecordings.top(stats, 2);
+        assertEquals(4, top.size());
+        // Instances of the same lambda are summed up.
+        assertEquals(ClusterApplierRecordings.COMPONENT_KIND, top.get(0).getKind());
+        assertEquals("org.elasticsearch.Foo$$Lambda", top.get(0).getName());
+        assertEquals(14, top.get(0).getCount());
+        assertEquals(700, top.get(0).getMillis());
+        assertEquals("org.elasticsearch.indices.cluster.IndicesClusterStateService", top.get(1).getName());
+        assertEquals(900, top.get(1).getMillis());
+        // The steps of the applier thread are kept whatever their time.
+        assertEquals(ClusterApplierRecordings.STEP_KIND, top.get(2).getKind());
+        assertEquals("applying settings", top.get(2).getName());
+        assertEquals(10, top.get(2).getCount());
+        assertEquals(1, top.get(2).getMillis());
+        assertEquals("connecting to new nodes", top.get(3).getName());
+        assertEquals(5, top.get(3).getMillis());
+    }
+}
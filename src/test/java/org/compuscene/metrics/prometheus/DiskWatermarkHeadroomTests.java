@@ -0,0 +1,61 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.elasticsearch.cluster.DiskUsage;
+import org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.RelativeByteSizeValue;
+import org.junit.Test;
+
+public class DiskWatermarkHeadroomTests {
+
+    private static final long GB = 1L << 30;
+
+    @Test
+    public void testHeadroom() {
+        DiskUsage usage = new DiskUsage("id", "node-1", "/data", 100 * GB, 20 * GB);
+
+        // Watermarks of 85%, 90% and 95%, below their max headroom on a 100GB disk.
+        DiskWatermarkHeadroom.NodeHeadroom headroom = DiskWatermarkHeadroom.headroom(usage, 2 * GB,
+                settings("85%", "90%", "95%", ByteSizeValue.ofGb(50)));
+        assertEquals("node-1", headroom.getNode());
+        assertEquals(2 * GB, headroom.getUnaccountedBytes());
+        assertEquals(3 * GB, headroom.getLowBytes());
+        assertEquals(8 * GB, headroom.getHighBytes());
+        assertEquals(13 * GB, headroom.getFloodStageBytes());
+
+        // The max headroom caps the free bytes required by a percentage.
+        headroom = DiskWatermarkHeadroom.headroom(usage, 0, settings("85%", "90%", "95%", ByteSizeValue.ofGb(4)));
+        assertEquals(16 * GB, headroom.getLowBytes());
+
+        // Absolute watermarks are the free bytes left.
+        headroom = DiskWatermarkHeadroom.headroom(usage, 0, settings("30gb", "10gb", "5gb", ByteSizeValue.MINUS_ONE));
+        assertEquals(-10 * GB, headroom.getLowBytes());
+        assertEquals(10 * GB, headroom.getHighBytes());
+        assertEquals(15 * GB, headroom.getFloodStageBytes());
+    }
+
+    private static DiskThresholdSettings settings(String low, String high, String floodStage, ByteSizeValue maxHeadroom) {
+        return new DiskThresholdSettings(
+                RelativeByteSizeValue.parseRelativeByteSizeValue(low, "low"), maxHeadroom,
+                RelativeByteSizeValue.parseRelativeByteSizeValue(high, "high"), maxHeadroom,
+                RelativeByteSizeValue.parseRelativeByteSizeValue(floodStage, "flood_stage"), maxHeadroom,
+                RelativeByteSizeValue.parseRelativeByteSizeValue("95%", "frozen"), maxHeadroom);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import org.elasticsearch.common.network.HandlingTimeTracker;
+import org.junit.Test;
+
+public class ExponentialBucketsTests {
+
+    @Test
+    public void testCumulative() {
+        HandlingTimeTracker tracker = new HandlingTimeTracker();
+        tracker.addObservation(0);
+        tracker.addObservation(1);
+        tracker.addObservation(3);
+        tracker.addObservation(Long.MAX_VALUE);
+
+        double[] bounds = ExponentialBuckets.HANDLING_TIME_SECONDS;
+        assertEquals(0.001, bounds[0], 0);
+        assertEquals(0.002, bounds[1], 0);
+        long[] counts = new long[bounds.length + 1];
+        assertSame(counts, ExponentialBuckets.cumulative(bounds, tracker.getSnapshot(), counts));
+        // Values below 1ms, below 2ms, below 4ms, and one over the last bound.
+        assertEquals(1, counts[0]);
+        assertEquals(2, counts[1]);
+        assertEquals(3, counts[2]);
+        assertEquals(3, counts[bounds.length - 1]);
+        assertEquals(4, counts[bounds.length]);
+
+        assertNull(ExponentialBuckets.cumulative(bounds, new long[0], counts));
+        assertArrayEquals(new double[]{8, 16}, ExponentialBuckets.bounds(new int[]{8, 16}, 1), 0);
+    }
+}
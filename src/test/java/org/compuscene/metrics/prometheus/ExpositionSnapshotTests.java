@@ -0,0 +1,66 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+public class ExpositionSnapshotTests {
+
+    private static final String BODY = "# HELP es_test Test\n# TYPE es_test gauge\nes_test 1.0\n";
+
+    @Test
+    public void testGzipBodyIsComputedOnce() throws Exception {
+        ExpositionSnapshot snapshot = new ExpositionSnapshot("\"1-1\"", "text/plain", new BytesArray(BODY));
+        assertSame(snapshot.getGzipBody(), snapshot.getGzipBody());
+        try (GZIPInputStream in = new GZIPInputStream(snapshot.getGzipBody().streamInput())) {
+            assertEquals(BODY, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testIfNoneMatch() {
+        ExpositionSnapshot snapshot = new ExpositionSnapshot("\"1-2\"", "text/plain", new BytesArray(BODY));
+        assertTrue(snapshot.matches("\"1-2\""));
+        assertTrue(snapshot.matches("\"1-1\", W/\"1-2\""));
+        assertTrue(snapshot.matches("*"));
+        assertFalse(snapshot.matches("\"1-1\""));
+        assertFalse(snapshot.matches(null));
+
+        // The entity tag follows the content.
+        ExpositionSnapshot same = new ExpositionSnapshot("text/plain", new BytesArray(BODY));
+        assertEquals(same.getETag(), new ExpositionSnapshot("text/plain", new BytesArray(BODY)).getETag());
+        assertTrue(same.matches(same.getETag()));
+        assertFalse(new ExpositionSnapshot("text/plain", new BytesArray(BODY + "es_other 1.0\n")).matches(same.getETag()));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(ExpositionSnapshot.acceptsGzip("gzip"));
+        assertTrue(ExpositionSnapshot.acceptsGzip("deflate, gzip;q=0.5"));
+        assertTrue(ExpositionSnapshot.acceptsGzip("*"));
+        assertFalse(ExpositionSnapshot.acceptsGzip("gzip;q=0"));
+        assertFalse(ExpositionSnapshot.acceptsGzip("identity"));
+        assertFalse(ExpositionSnapshot.acceptsGzip(null));
+    }
+}
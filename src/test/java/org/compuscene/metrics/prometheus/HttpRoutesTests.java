@@ -0,0 +1,59 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.elasticsearch.http.HttpRouteStats;
+import org.junit.Test;
+import java.util.Map;
+
+public class HttpRoutesTests {
+
+    @Test
+    public void testNormalize() {
+        assertEquals("_bulk", HttpRoutes.normalize("/_bulk"));
+        assertEquals("_bulk", HttpRoutes.normalize("/{index}/_bulk"));
+        assertEquals("_nodes/stats", HttpRoutes.normalize("/_nodes/{nodeId}/stats/{metric}"));
+        assertEquals("/", HttpRoutes.normalize("/"));
+        assertEquals("/", HttpRoutes.normalize("/{index}"));
+    }
+
+    @Test
+    public void testGroup() {
+        int sizes = ExponentialBuckets.HTTP_SIZE_BYTES.length + 1;
+        int times = ExponentialBuckets.HANDLING_TIME_SECONDS.length + 1;
+        Map<String, HttpRoutes.Endpoint> endpoints = HttpRoutes.group(Map.of(
+                "/_bulk", stats(1, 100, sizes, times),
+                "/{index}/_bulk", stats(2, 50, sizes, times),
+                "/_search", HttpRouteStats.EMPTY));
+
+        // Routes never called are left out.
+        assertEquals(1, endpoints.size());
+        HttpRoutes.Endpoint bulk = endpoints.get("_bulk");
+        assertEquals(150, bulk.getRequestSize());
+        assertEquals(3, bulk.getRequestSizes()[1]);
+        assertEquals(3, bulk.getResponseTimes()[0]);
+    }
+
+    private static HttpRouteStats stats(long count, long size, int sizes, int times) {
+        long[] sizeHistogram = new long[sizes];
+        sizeHistogram[1] = count;
+        long[] timeHistogram = new long[times];
+        timeHistogram[0] = count;
+        return new HttpRouteStats(count, size, sizeHistogram, count, size, sizeHistogram, timeHistogram);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
+import org.elasticsearch.index.shard.DocsStats;
+import org.junit.Test;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+public class IndexRollupTests {
+
+    @Test
+    public void testGroupOf() {
+        IndexRollup rollup = new IndexRollup(() -> index -> index.startsWith(".ds-metrics-") ? "metrics" : null);
+        rollup.setPatterns(List.of("(logs-.*)-\\d{4}\\.\\d{2}\\.\\d{2}", "audit-.*"));
+
+        // Data streams come first, then the first matching pattern.
+        UnaryOperator<String> groupOf = rollup.grouping();
+        assertEquals("metrics", groupOf.apply(".ds-metrics-2026.10.19-000001"));
+        assertEquals("logs-app", groupOf.apply("logs-app-2026.10.19"));
+        assertEquals("audit-.*", groupOf.apply("audit-2026"));
+        assertEquals("logs-app", groupOf.apply("logs-app"));
+
+        // A grouping keeps the patterns it started with, new patterns apply to the next one.
+        rollup.setPatterns(List.of());
+        assertEquals("logs-app", groupOf.apply("logs-app-2026.10.19"));
+        assertEquals("logs-app-2026.10.19", rollup.grouping().apply("logs-app-2026.10.19"));
+    }
+
+    @Test
+    public void testIndexMissingFromHealth() {
+        // Indices created between the health and the stats requests are only in the stats.
+        IndexRollup.Group group = new IndexRollup.Group();
+        group.add(null, stats(5), stats(4));
+        group.add(null, stats(3), stats(3));
+        assertFalse(group.hasHealth());
+        assertEquals(2, group.getIndices());
+        assertEquals(0, group.getShards());
+        assertEquals(8, group.getTotal().getDocs().getCount());
+        assertEquals(7, group.getPrimaries().getDocs().getCount());
+    }
+
+    private static CommonStats stats(long docs) {
+        CommonStats stats = new CommonStats();
+        stats.docs = new DocsStats(docs, 0, 0);
+        return stats;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+public class IngestProcessorTopKTests {
+
+    @Test
+    public void testOtherProcessorsAreSummedUp() {
+        List<IngestProcessorTopK.ProcessorRow> processors = List.of(
+                row("logs", 0, "set", 10),
+                row("logs", 1, "set", 50),
+                row("logs", 2, "grok", 40),
+                row("logs", 3, "rename", 5),
+                row("metrics", 0, "date", 20));
+        List<IngestProcessorTopK.ProcessorRow> rows = new IngestProcessorTopK().select(processors, 2, 0);
+
+        assertEquals(Map.of("logs/set", 50L, "logs/grok", 40L, "logs/other", 15L, "metrics/other", 20L), times(rows));
+        assertEquals(List.of(2L, 1L), rows.subList(2, 4).stream().map(IngestProcessorTopK.ProcessorRow::getCount).toList());
+        // Minus one exports every processor one by one.
+        assertEquals(processors, new IngestProcessorTopK().select(processors, -1, 0));
+    }
+
+    @Test
+    public void testRankingOnRecentTimeWithStableSelection() {
+        IngestProcessorTopK topK = new IngestProcessorTopK();
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long window = ShardTopK.RANKING_WINDOW_NANOS;
+        // The grok processor was hot when the node started, the date processor is getting hot.
+        assertEquals(Map.of("logs/grok", 1000L, "logs/other", 10L),
+                times(topK.select(List.of(row("logs", 0, "grok", 1000), row("logs", 1, "date", 10)), 1, 0)));
+        // Within the window, the selection does not change whatever the counters.
+        assertEquals(Map.of("logs/grok", 1000L, "logs/other", 500L),
+                times(topK.select(List.of(row("logs", 0, "grok", 1000), row("logs", 1, "date", 500)), 1, second)));
+        // Once the baseline is renewed, the processors are ranked on the time spent since.
+        assertEquals(Map.of("logs/date", 900L, "logs/other", 1001L),
+                times(topK.select(List.of(row("logs", 0, "grok", 1001), row("logs", 1, "date", 900)), 1, window)));
+    }
+
+    private static IngestProcessorTopK.ProcessorRow row(String pipeline, int position, String processor, long timeMillis) {
+        return new IngestProcessorTopK.ProcessorRow(pipeline, position, processor, 1, timeMillis, 0, 0);
+    }
+
+    private static Map<String, Long> times(List<IngestProcessorTopK.ProcessorRow> rows) {
+        return rows.stream().collect(Collectors.toMap(r -> r.getPipeline() + "/" + r.getProcessor(),
+                IngestProcessorTopK.ProcessorRow::getTimeMillis));
+    }
+}
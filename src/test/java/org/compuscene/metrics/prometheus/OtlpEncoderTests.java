@@ -0,0 +1,171 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import io.prometheus.client.Collector;
+
+public class OtlpEncoderTests {
+
+    private static final Map<String, String> RESOURCE = Map.of("cluster", "test", "node", "node-1");
+
+    @Test
+    public void testEncode() throws IOException {
+        List<String> nodeLabels = List.of("cluster", "node", "pool");
+        List<Collector.MetricFamilySamples> families = List.of(
+                new Collector.MetricFamilySamples("es_threadpool_cpu_seconds", "seconds", Collector.Type.COUNTER, "cpu",
+                        List.of(
+                            sample("es_threadpool_cpu_seconds_total", nodeLabels, List.of("test", "node-1", "write"), 3),
+                            sample("es_threadpool_cpu_seconds_created", nodeLabels, List.of("test", "node-1", "write"), 1))),
+                new Collector.MetricFamilySamples("es_cluster_nodes_number", Collector.Type.GAUGE, "nodes", List.of(
+                        // A label with another value than the resource attribute is kept.
+                        sample("es_cluster_nodes_number", List.of("cluster", "node"), List.of("test", "node-2"), 2))),
+                new Collector.MetricFamilySamples("es_action_time", Collector.Type.HISTOGRAM, "time", List.of(
+                        sample("es_action_time_bucket", List.of("le"), List.of("0.1"), 1),
+                        sample("es_action_time_bucket", List.of("le"), List.of("1.0"), 3),
+                        sample("es_action_time_bucket", List.of("le"), List.of("+Inf"), 4),
+                        sample("es_action_time_count", List.of(), List.of(), 4),
+                        sample("es_action_time_sum", List.of(), List.of(), 2.5))));
+
+        List<List<RemoteWriteSender.Batch>> batches = OtlpEncoder.encode(families, RESOURCE, 1_000L, 2_000L, 1, 100);
+        assertEquals(1, batches.get(0).size());
+        assertEquals(3, batches.get(0).get(0).getSamples());
+        byte[] request;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(batches.get(0).get(0).getBody()))) {
+            request = in.readAllBytes();
+        }
+
+        RemoteWriteEncoderTests.Reader reader = new RemoteWriteEncoderTests.Reader(request, 0, request.length);
+        assertEquals((1 << 3) | 2, reader.varint());
+        RemoteWriteEncoderTests.Reader resourceMetrics = reader.message();
+        assertEquals((1 << 3) | 2, resourceMetrics.varint());
+        assertEquals(RESOURCE, keyValues(resourceMetrics.message(), 1));
+        assertEquals((2 << 3) | 2, resourceMetrics.varint());
+        RemoteWriteEncoderTests.Reader scopeMetrics = resourceMetrics.message();
+        assertEquals((1 << 3) | 2, scopeMetrics.varint());
+        scopeMetrics.message();
+
+        Map<String, RemoteWriteEncoderTests.Reader> metrics = new HashMap<>();
+        Map<String, Long> kinds = new HashMap<>();
+        while (scopeMetrics.hasNext()) {
+            assertEquals((2 << 3) | 2, scopeMetrics.varint());
+            RemoteWriteEncoderTests.Reader metric = scopeMetrics.message();
+            assertEquals((1 << 3) | 2, metric.varint());
+            String name = metric.string();
+            assertEquals((2 << 3) | 2, metric.varint());
+            metric.string();
+            long tag = metric.varint();
+            if (tag == ((3 << 3) | 2)) {
+                assertEquals("s", metric.string());
+                tag = metric.varint();
+            }
+            kinds.put(name, tag >>> 3);
+            metrics.put(name, metric.message());
+        }
+        assertEquals(Map.of("es_threadpool_cpu_seconds", 7L, "es_cluster_nodes_number", 5L, "es_action_time", 9L), kinds);
+
+        // Sum: one cumulative monotonic data point, the created sample skipped, the resource labels dropped.
+        RemoteWriteEncoderTests.Reader sum = metrics.get("es_threadpool_cpu_seconds");
+        assertEquals((1 << 3) | 2, sum.varint());
+        RemoteWriteEncoderTests.Reader point = sum.message();
+        assertEquals((2 << 3) | 1, point.varint());
+        assertEquals(1_000_000_000L, point.fixed64());
+        assertEquals((3 << 3) | 1, point.varint());
+        assertEquals(2_000_000_000L, point.fixed64());
+        assertEquals((4 << 3) | 1, point.varint());
+        assertEquals(3.0, Double.longBitsToDouble(point.fixed64()), 0);
+        assertEquals(Map.of("pool", "write"), keyValues(point, 7));
+        assertEquals(List.of(2L << 3, 2L, 3L << 3, 1L), List.of(sum.varint(), sum.varint(), sum.varint(), sum.varint()));
+
+        RemoteWriteEncoderTests.Reader gauge = metrics.get("es_cluster_nodes_number");
+        assertEquals((1 << 3) | 2, gauge.varint());
+        point = gauge.message();
+        assertEquals((3 << 3) | 1, point.varint());
+        point.fixed64();
+        assertEquals((4 << 3) | 1, point.varint());
+        assertEquals(2.0, Double.longBitsToDouble(point.fixed64()), 0);
+        assertEquals(Map.of("node", "node-2"), keyValues(point, 7));
+
+        // Histogram: bucket counts are not cumulative and the +Inf bound is implicit.
+        RemoteWriteEncoderTests.Reader histogram = metrics.get("es_action_time");
+        assertEquals((1 << 3) | 2, histogram.varint());
+        point = histogram.message();
+        point.varint();
+        point.fixed64();
+        point.varint();
+        point.fixed64();
+        assertEquals((4 << 3) | 1, point.varint());
+        assertEquals(4L, point.fixed64());
+        assertEquals((5 << 3) | 1, point.varint());
+        assertEquals(2.5, Double.longBitsToDouble(point.fixed64()), 0);
+        assertEquals((6 << 3) | 2, point.varint());
+        RemoteWriteEncoderTests.Reader buckets = point.message();
+        assertEquals(List.of(1L, 2L, 1L), List.of(buckets.fixed64(), buckets.fixed64(), buckets.fixed64()));
+        assertEquals((7 << 3) | 2, point.varint());
+        RemoteWriteEncoderTests.Reader bounds = point.message();
+        assertEquals(0.1, Double.longBitsToDouble(bounds.fixed64()), 0);
+        assertEquals(1.0, Double.longBitsToDouble(bounds.fixed64()), 0);
+        assertEquals(false, bounds.hasNext());
+        assertEquals(false, point.hasNext());
+    }
+
+    @Test
+    public void testBatches() {
+        List<Collector.MetricFamilySamples.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            samples.add(sample("es_index_doc_number", List.of("index"), List.of("index-" + i), i));
+        }
+        List<Collector.MetricFamilySamples> families = List.of(
+                new Collector.MetricFamilySamples("es_index_doc_number", Collector.Type.GAUGE, "docs", samples));
+        int total = 0;
+        for (List<RemoteWriteSender.Batch> shard : OtlpEncoder.encode(families, RESOURCE, 0L, 1L, 2, 10)) {
+            for (RemoteWriteSender.Batch batch : shard) {
+                total += batch.getSamples();
+                assertEquals(true, batch.getSamples() <= 10);
+            }
+        }
+        assertEquals(25, total);
+    }
+
+    private static Collector.MetricFamilySamples.Sample sample(String name, List<String> labelNames,
+                                                               List<String> labelValues, double value) {
+        return new Collector.MetricFamilySamples.Sample(name, labelNames, labelValues, value);
+    }
+
+    private static Map<String, String> keyValues(RemoteWriteEncoderTests.Reader reader, int field) {
+        Map<String, String> keyValues = new HashMap<>();
+        while (reader.hasNext()) {
+            assertEquals((field << 3) | 2, reader.varint());
+            RemoteWriteEncoderTests.Reader keyValue = reader.message();
+            assertEquals((1 << 3) | 2, keyValue.varint());
+            String key = keyValue.string();
+            assertEquals((2 << 3) | 2, keyValue.varint());
+            RemoteWriteEncoderTests.Reader value = keyValue.message();
+            assertEquals((1 << 3) | 2, value.varint());
+            keyValues.put(key, value.string());
+        }
+        return keyValues;
+    }
+}
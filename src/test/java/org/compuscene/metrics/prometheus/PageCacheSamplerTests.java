@@ -0,0 +1,87 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NoLockFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class PageCacheSamplerTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testProbesAreSpreadByFileSize() {
+        assertEquals("tim", PageCacheSampler.fileType("_0_Lucene912_0.tim"));
+        assertEquals("dvd", PageCacheSampler.fileType("_1_Lucene90_0.DVD"));
+        assertEquals("segments", PageCacheSampler.fileType("segments_4"));
+        assertEquals(PageCacheSampler.OTHER_TYPE, PageCacheSampler.fileType("recovery.abc.tmp~"));
+
+        int region = PageCacheSampler.REGION_BYTES;
+        // Two files of 8 regions and a probe every 4 regions, shifted by the phase.
+        assertArrayEquals(new long[]{0, 4L * region}, PageCacheSampler.probeOffsets(0, 8L * region, 4L * region, 0));
+        assertArrayEquals(new long[]{0, 4L * region}, PageCacheSampler.probeOffsets(8L * region, 8L * region, 4L * region, 0));
+        assertArrayEquals(new long[]{2L * region, 6L * region},
+                PageCacheSampler.probeOffsets(0, 8L * region, 4L * region, 0.5));
+        // A small file between two probes is not probed this round.
+        assertEquals(0, PageCacheSampler.probeOffsets(1, 10, 4L * region, 0.5).length);
+        // The last region ends at the end of the file.
+        assertArrayEquals(new long[]{2L * region - 1},
+                PageCacheSampler.probeOffsets(0, 3L * region - 1, 3L * region - 1, 0.99));
+    }
+
+    @Test
+    public void testProbesAreBoundedOverAllFiles() {
+        // Many more small files than probes, and a large one.
+        long[] sizes = new long[10_001];
+        Arrays.fill(sizes, 10);
+        sizes[5000] = 1000L * PageCacheSampler.REGION_BYTES;
+        long totalBytes = Arrays.stream(sizes).sum();
+        int probes = 256;
+        for (double phase : new double[]{0, 0.3, 0.99}) {
+            int total = 0;
+            long start = 0;
+            for (long size : sizes) {
+                total += PageCacheSampler.probeOffsets(start, size, (double) totalBytes / probes, phase).length;
+                start += size;
+            }
+            assertEquals(probes, total);
+        }
+    }
+
+    @Test
+    public void testJustWrittenFileIsResident() throws Exception {
+        Path path = folder.newFile("_0.vec").toPath();
+        byte[] bytes = new byte[4 * PageCacheSampler.REGION_BYTES + 100];
+        Files.write(path, bytes);
+        try (MMapDirectory directory = new MMapDirectory(path.getParent(), NoLockFactory.INSTANCE);
+             IndexInput input = directory.openInput("_0.vec", IOContext.READONCE)) {
+            long[] offsets = PageCacheSampler.probeOffsets(0, bytes.length, bytes.length / 5.0, 0.3);
+            assertEquals(5, PageCacheSampler.loadedRegions(input, bytes.length, offsets));
+        }
+    }
+}
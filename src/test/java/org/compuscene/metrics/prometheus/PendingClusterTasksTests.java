@@ -0,0 +1,62 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.elasticsearch.cluster.service.PendingClusterTask;
+import org.elasticsearch.common.Priority;
+import org.elasticsearch.xcontent.Text;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PendingClusterTasksTests {
+
+    @Test
+    public void testSourcesAreNormalizedAndBounded() {
+        List<PendingClusterTask> tasks = new ArrayList<>();
+        tasks.add(task(Priority.HIGH, "put-mapping [logs/abc][_doc]", 2_000));
+        tasks.add(task(Priority.HIGH, "put-mapping [metrics/def][_doc]", 500));
+        // Sources with as many tasks are ranked by name.
+        tasks.add(task(Priority.URGENT, "shard-started StartedShardEntry{shardId [[logs][0]]}", 10));
+        tasks.add(task(Priority.NORMAL, "cluster_reroute(reroute after starting shards)", 10));
+        tasks.add(task(Priority.NORMAL, "[weird]", 10));
+        for (int i = 0; i < 2 * PendingClusterTasks.MAX_SOURCES; i++) {
+            tasks.add(task(Priority.LOW, "source-" + i, 10));
+        }
+
+        PendingClusterTasks pending = PendingClusterTasks.of(tasks);
+        // The unknown source and the least frequent ones are counted together.
+        assertEquals(PendingClusterTasks.MAX_SOURCES - 1, pending.getSources().size());
+        PendingClusterTasks.SourceTasks other = pending.getSources().get(PendingClusterTasks.OTHER_SOURCE);
+        assertEquals(1, other.getPending(Priority.NORMAL));
+        assertEquals(2 * PendingClusterTasks.MAX_SOURCES - 25, other.getPending(Priority.LOW));
+        PendingClusterTasks.SourceTasks putMapping = pending.getSources().get("put-mapping");
+        assertEquals(2, putMapping.getPending(Priority.HIGH));
+        assertEquals(2.0, putMapping.getMaxTimeInQueue(), 0);
+        assertEquals(1, pending.getSources().get("shard-started").getPending(Priority.URGENT));
+        long[] timesInQueue = pending.getTimesInQueue().getCumulativeCounts();
+        assertEquals(tasks.size(), timesInQueue[timesInQueue.length - 1]);
+
+        assertEquals("cluster_reroute", PendingClusterTasks.normalize("cluster_reroute(reroute after starting shards)"));
+        assertEquals(PendingClusterTasks.OTHER_SOURCE, PendingClusterTasks.normalize("[weird]"));
+    }
+
+    private static PendingClusterTask task(Priority priority, String source, long timeInQueueMillis) {
+        return new PendingClusterTask(0, priority, new Text(source), timeInQueueMillis, false);
+    }
+}
@@ -16,8 +16,13 @@
 
 package org.compuscene.metrics.prometheus;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
+import java.util.List;
+import io.prometheus.client.exporter.common.TextFormat;
 
 public class PrometheusMetricsCatalogTests {
 
@@ -64,4 +69,62 @@ public class PrometheusMetricsCatalogTests {
         catalog.registerNodeCounter("test_zero", "Test zero counter");
         catalog.setNodeCounter("test_zero", 0.0);
     }
+
+    @Test
+    public void testNodeHistogramIsRenderedWithCumulativeBuckets() throws Exception {
+        FixedBucketHistogram histogram = new FixedBucketHistogram(0.1, 1);
+        histogram.observe(0.05);
+        histogram.observe(0.1);
+        histogram.observe(0.5);
+        histogram.observe(5);
+
+        catalog.registerNodeHistogramUnit("test_histogram", "seconds", "Test histogram", "phase");
+        catalog.setNodeHistogram("test_histogram", histogram, "update");
+
+        String text = catalog.toTextFormat(TextFormat.CONTENT_TYPE_004);
+        String labels = "cluster=\"test-cluster\",node=\"test-node\",nodeid=\"test-id\",phase=\"update\",";
+        assertTrue(text.contains("# TYPE es_test_histogram_seconds histogram\n"));
+        assertTrue(text.contains("es_test_histogram_seconds_bucket{" + labels + "le=\"0.1\",} 2.0\n"));
+        assertTrue(text.contains("es_test_histogram_seconds_bucket{" + labels + "le=\"1.0\",} 3.0\n"));
+        assertTrue(text.contains("es_test_histogram_seconds_bucket{" + labels + "le=\"+Inf\",} 4.0\n"));
+        assertTrue(text.contains("es_test_histogram_seconds_count{" + labels + "} 4.0\n"));
+        assertTrue(text.contains("es_test_histogram_seconds_sum{" + labels + "} 5.65\n"));
+        assertEquals(Integer.valueOf(5), catalog.getLastSeriesCounts().get("es_test_histogram_seconds"));
+    }
+
+    @Test
+    public void testUnknownHistogramSumIsLeftOut() throws Exception {
+        catalog.registerNodeHistogramUnit("test_handling_time", "seconds", "Test histogram without sum");
+        catalog.setNodeHistogram("test_handling_time", new double[]{0.001, 0.002}, new long[]{1, 3, 4}, Double.NaN);
+
+        String text = catalog.toTextFormat(TextFormat.CONTENT_TYPE_004);
+        String labels = "cluster=\"test-cluster\",node=\"test-node\",nodeid=\"test-id\",";
+        assertTrue(text.contains("es_test_handling_time_seconds_bucket{" + labels + "le=\"+Inf\",} 4.0\n"));
+        assertTrue(text.contains("es_test_handling_time_seconds_count{" + labels + "} 4.0\n"));
+        assertFalse(text.contains("es_test_handling_time_seconds_sum"));
+    }
+
+    @Test
+    public void testClusterCallbackFamiliesReadTheCurrentRows() throws Exception {
+        catalog.registerClusterSource("rows", (String[] row) -> new String[]{row[0]}, "index");
+        catalog.registerClusterCallbackGauge("test_callback_gauge", "Test callback gauge", "rows",
+                (String[] row) -> Double.parseDouble(row[1]));
+        catalog.registerClusterCallbackCounter("test_callback", "Test callback counter", "rows",
+                (String[] row) -> Double.parseDouble(row[1]));
+
+        catalog.setSource("rows", List.<String[]>of(new String[]{"a", "1"}, new String[]{"b", "-2"}));
+        String text = catalog.toTextFormat(TextFormat.CONTENT_TYPE_004);
+        assertTrue(text.contains("es_test_callback_gauge{cluster=\"test-cluster\",index=\"a\",} 1.0\n"));
+        assertTrue(text.contains("es_test_callback_gauge{cluster=\"test-cluster\",index=\"b\",} -2.0\n"));
+        assertTrue(text.contains("es_test_callback_total{cluster=\"test-cluster\",index=\"a\",} 1.0\n"));
+        // like the simpleclient counters
+        assertTrue(text.contains("es_test_callback_created{cluster=\"test-cluster\",index=\"a\",} "));
+        // negative counter values are skipped
+        assertFalse(text.contains("es_test_callback_total{cluster=\"test-cluster\",index=\"b\",}"));
+
+        catalog.setSource("rows", List.<String[]>of(new String[]{"a", "3"}));
+        text = catalog.toTextFormat(TextFormat.CONTENT_TYPE_004);
+        assertTrue(text.contains("es_test_callback_gauge{cluster=\"test-cluster\",index=\"a\",} 3.0\n"));
+        assertFalse(text.contains("index=\"b\""));
+    }
 }
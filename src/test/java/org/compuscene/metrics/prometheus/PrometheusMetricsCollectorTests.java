@@ -0,0 +1,43 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.elasticsearch.index.shard.DenseVectorStats;
+import org.junit.Test;
+import java.util.Map;
+
+public class PrometheusMetricsCollectorTests {
+
+    @Test
+    public void testDenseVectorOffHeapBytesByComponent() {
+        DenseVectorStats stats = new DenseVectorStats(10, Map.of(
+                "title_vector", Map.of("vec", 100L, "vex", 20L, "veq", 30L),
+                "body_vector", Map.of("vec", 50L, "veb", 5L, "cenivf", 7L, "clivf", 3L, "vemf", 1L)));
+        assertEquals(150, PrometheusMetricsCollector.denseVectorOffHeap(stats, "vectors"), 0);
+        assertEquals(20, PrometheusMetricsCollector.denseVectorOffHeap(stats, "graph"), 0);
+        assertEquals(35, PrometheusMetricsCollector.denseVectorOffHeap(stats, "quantized"), 0);
+        assertEquals(10, PrometheusMetricsCollector.denseVectorOffHeap(stats, "ivf"), 0);
+        // Extensions of formats not known yet are still accounted for.
+        assertEquals(1, PrometheusMetricsCollector.denseVectorOffHeap(stats, "other"), 0);
+
+        // No vector field, or no off-heap stats at all.
+        assertEquals(0, PrometheusMetricsCollector.denseVectorOffHeap(new DenseVectorStats(0, Map.of()), "vectors"), 0);
+        assertEquals(0, PrometheusMetricsCollector.denseVectorOffHeap(new DenseVectorStats(10), "vectors"), 0);
+        assertEquals(0, PrometheusMetricsCollector.denseVectorOffHeap(null, "other"), 0);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class PrometheusSamplerTests {
+
+    @Test
+    public void testOnlyTheLastWindowIsReported() {
+        PrometheusSampler.SampledSeries series = new PrometheusSampler.SampledSeries(3, new double[]{10, 100});
+        assertNull(series.windowStats());
+
+        series.record(50, 50);
+        series.record(1, Double.NaN);
+        assertArrayEquals(new double[]{1, 50, 25.5}, series.windowStats(), 0);
+
+        // The ring buffer wraps around, the first samples are out of the window.
+        for (long value = 2; value <= 6; value++) {
+            series.record(value, value);
+        }
+        assertArrayEquals(new double[]{4, 6, 5}, series.windowStats(), 0);
+        // The distribution keeps every sample but the skipped one.
+        assertArrayEquals(new long[]{5, 6, 6}, series.getDistribution().getCumulativeCounts());
+    }
+}
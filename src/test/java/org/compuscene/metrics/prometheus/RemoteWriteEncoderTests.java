@@ -0,0 +1,158 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import io.prometheus.client.Collector;
+
+public class RemoteWriteEncoderTests {
+
+    @Test
+    public void testEncode() {
+        List<Collector.MetricFamilySamples.Sample> samples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add(new Collector.MetricFamilySamples.Sample("es_index_doc_number", List.of("node", "index"),
+                    List.of("node-1", "index-" + i), i));
+        }
+        samples.add(new Collector.MetricFamilySamples.Sample("es_index_doc_number_created", List.of(), List.of(), 1));
+        List<Collector.MetricFamilySamples> families = List.of(new Collector.MetricFamilySamples(
+                "es_index_doc_number", Collector.Type.GAUGE, "help", samples));
+
+        List<List<RemoteWriteSender.Batch>> batches = RemoteWriteEncoder.encode(families, 1000L, 3, 2);
+        assertEquals(3, batches.size());
+        Map<String, Integer> shardOfIndex = new HashMap<>();
+        int total = 0;
+        for (int shard = 0; shard < batches.size(); shard++) {
+            for (RemoteWriteSender.Batch batch : batches.get(shard)) {
+                assertTrue(batch.getSamples() <= 2);
+                List<List<String>> series = decode(SnappyTests.uncompress(batch.getBody()));
+                assertEquals(batch.getSamples(), series.size());
+                for (List<String> labels : series) {
+                    // Labels sorted by name, the sample value and timestamp last.
+                    assertEquals(List.of("__name__", "es_index_doc_number", "index", labels.get(3), "node", "node-1"),
+                            labels.subList(0, 6));
+                    assertEquals("1000", labels.get(7));
+                    assertEquals(Double.parseDouble(labels.get(3).substring("index-".length())),
+                            Double.parseDouble(labels.get(6)), 0);
+                    shardOfIndex.put(labels.get(3), shard);
+                }
+                total += batch.getSamples();
+            }
+        }
+        // Every series once, the created sample skipped.
+        assertEquals(10, total);
+        assertEquals(10, shardOfIndex.size());
+
+        // The same series always go to the same shard.
+        List<List<RemoteWriteSender.Batch>> again = RemoteWriteEncoder.encode(families, 2000L, 3, 100);
+        for (int shard = 0; shard < again.size(); shard++) {
+            for (RemoteWriteSender.Batch batch : again.get(shard)) {
+                for (List<String> labels : decode(SnappyTests.uncompress(batch.getBody()))) {
+                    assertEquals(shardOfIndex.get(labels.get(3)).intValue(), shard);
+                }
+            }
+        }
+    }
+
+    /**
+     * Decode a {@code WriteRequest} to the label names and values of every series, followed by its sample.
+     */
+    private static List<List<String>> decode(byte[] request) {
+        List<List<String>> series = new ArrayList<>();
+        Reader reader = new Reader(request, 0, request.length);
+        while (reader.hasNext()) {
+            assertEquals((1 << 3) | 2, reader.varint());
+            Reader timeSeries = reader.message();
+            List<String> values = new ArrayList<>();
+            while (timeSeries.hasNext()) {
+                long tag = timeSeries.varint();
+                Reader message = timeSeries.message();
+                if (tag == ((1 << 3) | 2)) {
+                    assertEquals((1 << 3) | 2, message.varint());
+                    values.add(message.string());
+                    assertEquals((2 << 3) | 2, message.varint());
+                    values.add(message.string());
+                } else {
+                    assertEquals((2 << 3) | 2, tag);
+                    assertEquals((1 << 3) | 1, message.varint());
+                    values.add(String.valueOf(Double.longBitsToDouble(message.fixed64())));
+                    assertEquals(2 << 3, message.varint());
+                    values.add(String.valueOf(message.varint()));
+                }
+            }
+            series.add(values);
+        }
+        return series;
+    }
+
+    /**
+     * Reader of the protobuf wire encodings written by the encoders.
+     */
+    static final class Reader {
+        private final byte[] bytes;
+        private final int end;
+        private int pos;
+
+        Reader(byte[] bytes, int pos, int end) {
+            this.bytes = bytes;
+            this.pos = pos;
+            this.end = end;
+        }
+
+        boolean hasNext() {
+            return pos < end;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes[pos++];
+                value |= (long) (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        long fixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (long) (bytes[pos++] & 0xff) << (8 * i);
+            }
+            return value;
+        }
+
+        Reader message() {
+            int length = (int) varint();
+            Reader message = new Reader(bytes, pos, pos + length);
+            pos += length;
+            return message;
+        }
+
+        String string() {
+            Reader value = message();
+            return new String(bytes, value.pos, value.end - value.pos, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ActionType;
+import org.elasticsearch.action.NodePrometheusMetricsAction;
+import org.elasticsearch.client.internal.support.AbstractClient;
+import org.elasticsearch.cluster.project.DefaultProjectResolver;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RemoteWritePusherTests {
+
+    // Stands for the authentication of the user on whose behalf the thread runs, e.g. a REST request.
+    private static final String USER_HEADER = "_xpack_security_authentication";
+
+    @Test
+    public void testPushRunsAsTheMonitoringOriginOnly() {
+        ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        ThreadPool threadPool = new ThreadPool() {
+            @Override
+            public ThreadContext getThreadContext() {
+                return threadContext;
+            }
+
+            @Override
+            public long absoluteTimeInMillis() {
+                return 0;
+            }
+        };
+        List<String> executed = new ArrayList<>();
+        AbstractClient client = new AbstractClient(Settings.EMPTY, threadPool, DefaultProjectResolver.INSTANCE) {
+            @Override
+            protected <Request extends ActionRequest, Response extends ActionResponse> void doExecute(
+                    ActionType<Response> action, Request request, ActionListener<Response> listener) {
+                executed.add(action.name());
+                // Security replaces a missing user with the internal user of the origin.
+                assertNull(threadContext.getHeader(USER_HEADER));
+                assertEquals(NodePrometheusMetricsAction.ORIGIN,
+                        threadContext.getTransient(ThreadContext.ACTION_ORIGIN_TRANSIENT_NAME));
+            }
+        };
+        RemoteWritePusher pusher = new RemoteWritePusher(client, threadPool, null, null, null,
+                RemoteWriteProtocol.PROMETHEUS, TimeValue.timeValueSeconds(10), 100, 3);
+
+        threadContext.putHeader(USER_HEADER, "user");
+        pusher.push();
+
+        assertEquals(List.of(NodePrometheusMetricsAction.NAME), executed);
+        // The context of the caller is back once the collection is handed over.
+        assertEquals("user", threadContext.getHeader(USER_HEADER));
+        assertNull(threadContext.getTransient(ThreadContext.ACTION_ORIGIN_TRANSIENT_NAME));
+    }
+}
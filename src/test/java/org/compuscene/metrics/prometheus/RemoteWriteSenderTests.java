@@ -0,0 +1,118 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RemoteWriteSenderTests {
+
+    @Test
+    public void testRetryAfterServerError() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        List<String> encodings = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v1/write", exchange -> {
+            encodings.add(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            exchange.getRequestBody().readAllBytes();
+            // The first request fails, the receiver is then back.
+            exchange.sendResponseHeaders(requests.incrementAndGet() == 1 ? 500 : 204, -1);
+            exchange.close();
+        });
+        server.start();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        URI url = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + "/api/v1/write");
+        try (RemoteWriteSender sender = new RemoteWriteSender(url, RemoteWriteEncoder.HEADERS, 1, 1, executor)) {
+            assertTrue(sender.offer(List.of(List.of(new RemoteWriteSender.Batch(new byte[]{0}, 5)))));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sender.getSamples(RemoteWriteSender.Result.SENT) == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(5, sender.getSamples(RemoteWriteSender.Result.SENT));
+            assertEquals(1, sender.getRetries());
+            assertEquals(0, sender.getSamples(RemoteWriteSender.Result.FAILED));
+            assertEquals(List.of("snappy", "snappy"), encodings);
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStalePushIsDroppedAsAWhole() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch receiverBack = new CountDownLatch(1);
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/v1/write", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                // The receiver is stuck on the first batch until every push is queued.
+                receiverBack.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            requests.incrementAndGet();
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.start();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        URI url = URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                + "/api/v1/write");
+        try (RemoteWriteSender sender = new RemoteWriteSender(url, RemoteWriteEncoder.HEADERS, 1, 2, executor)) {
+            // More batches than pushes the queue can hold, none of them is dropped.
+            assertTrue(sender.offer(List.of(List.of(new RemoteWriteSender.Batch(new byte[]{0}, 1),
+                    new RemoteWriteSender.Batch(new byte[]{0}, 1), new RemoteWriteSender.Batch(new byte[]{0}, 1)))));
+            assertTrue(sender.offer(List.of(List.of(new RemoteWriteSender.Batch(new byte[]{0}, 2)))));
+            // The first push is being sent, the second one is stale and makes room for the third one.
+            assertTrue(sender.offer(List.of(List.of(new RemoteWriteSender.Batch(new byte[]{0}, 4)))));
+            assertEquals(1, sender.getDroppedPushes());
+            assertEquals(2, sender.getSamples(RemoteWriteSender.Result.DROPPED));
+            receiverBack.countDown();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (sender.getSamples(RemoteWriteSender.Result.SENT) < 7 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(7, sender.getSamples(RemoteWriteSender.Result.SENT));
+            assertEquals(4, requests.get());
+            assertEquals(0, sender.getQueued(0));
+        } finally {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBackoff() {
+        assertEquals(100, RemoteWriteSender.backoffMillis(1));
+        assertEquals(200, RemoteWriteSender.backoffMillis(2));
+        assertEquals(RemoteWriteSender.MAX_BACKOFF_MILLIS, RemoteWriteSender.backoffMillis(100));
+    }
+}
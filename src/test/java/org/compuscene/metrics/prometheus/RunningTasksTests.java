@@ -0,0 +1,63 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import org.elasticsearch.tasks.CancellableTask;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.junit.Test;
+import java.util.List;
+import java.util.Map;
+
+public class RunningTasksTests {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    public void testTasksAreAggregatedByAction() {
+        long now = System.nanoTime();
+        List<Task> tasks = List.of(
+                task(1, "indices:data/read/search", now - 2 * SECOND),
+                task(2, "indices:data/read/search", now - 30 * SECOND),
+                task(3, "cluster:monitor/nodes/stats", now),
+                new CancellableTask(4, "transport", "indices:data/read/search[phase/query]", "", TaskId.EMPTY_TASK_ID,
+                        Map.of()));
+
+        RunningTasks running = RunningTasks.of(tasks, now + SECOND);
+
+        assertEquals(List.of("cluster:monitor/nodes/stats", "indices:data/read/search",
+                "indices:data/read/search[phase/query]"), List.copyOf(running.getActions().keySet()));
+        RunningTasks.ActionTasks search = running.getActions().get("indices:data/read/search");
+        assertEquals(2, search.getRunning());
+        assertEquals(31, search.getMaxAge(), 0.001);
+        assertEquals(0, search.getCancellable());
+        RunningTasks.ActionTasks query = running.getActions().get("indices:data/read/search[phase/query]");
+        assertEquals(1, query.getCancellable());
+        assertEquals(0, query.getCancelled());
+
+        long[] counts = running.getAges().getCumulativeCounts();
+        assertEquals(4, counts[counts.length - 1]);
+        // Ages of 1s, 1s, 3s and 31s, in buckets of 0.64s, 2.56s, 10.24s and 40.96s.
+        assertArrayEquals(new long[]{0, 0, 0, 0, 2, 3, 4, 4, 4, 4, 4}, counts);
+    }
+
+    private static Task task(long id, String action, long startNanos) {
+        return new Task(id, "transport", action, "", TaskId.EMPTY_TASK_ID, 0, startNanos, Map.of());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+public class ShardTopKTests {
+
+    @Test
+    public void testTopKeepsTheLargestValues() {
+        List<ShardTopK.ShardRow> rows = new ArrayList<>();
+        for (int shard = 0; shard < 100; shard++) {
+            // Rates go up and down so that the largest ones are not the last seen.
+            double rate = (shard * 37) % 100;
+            rows.add(new ShardTopK.ShardRow("logs", shard, true, "node-1", 0, 0, rate, 0, 0, shard, 0));
+        }
+
+        List<ShardTopK.ShardRow> top = ShardTopK.top(rows, 3, ShardTopK.ShardRow::getIndexingRate);
+        Set<Double> rates = top.stream().map(ShardTopK.ShardRow::getIndexingRate).collect(Collectors.toSet());
+        assertEquals(Set.of(99.0, 98.0, 97.0), rates);
+
+        assertEquals(100, ShardTopK.top(rows, 1000, ShardTopK.ShardRow::getStoreBytes).size());
+        assertTrue(ShardTopK.top(rows, 0, ShardTopK.ShardRow::getStoreBytes).isEmpty());
+    }
+
+    @Test
+    public void testWriteLoadAlonePullsAShardIntoTheUnion() {
+        List<ShardTopK.ShardRow> rows = List.of(
+                new ShardTopK.ShardRow("logs", 0, true, "node-1", 0, 0, 100, 0, 0.1, 10, 0),
+                new ShardTopK.ShardRow("logs", 1, true, "node-1", 0, 0, 0, 100, 0.1, 10, 0),
+                new ShardTopK.ShardRow("logs", 2, true, "node-1", 0, 0, 0, 0, 0.1, 1000, 0),
+                // Busy with few large documents, it is neither indexing nor searching the most, nor the largest.
+                new ShardTopK.ShardRow("logs", 3, true, "node-2", 0, 0, 50, 0, 2.5, 10, 0),
+                new ShardTopK.ShardRow("logs", 4, true, "node-2", 0, 0, 0, 0, 0, 0, 0));
+
+        List<ShardTopK.ShardRow> union = ShardTopK.union(rows, 1);
+        assertEquals(List.of(0, 1, 2, 3), union.stream().map(ShardTopK.ShardRow::getShard).toList());
+        assertEquals(2.5, union.get(3).getWriteLoad(), 0);
+    }
+
+    @Test
+    public void testRankingRatesDoNotDependOnTheNumberOfReaders() {
+        ShardTopK topK = new ShardTopK(UnaryOperator.identity());
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long window = ShardTopK.RANKING_WINDOW_NANOS;
+        topK.renewBaseline(0);
+        topK.counters("a", 1000, 0, 0);
+        // Another scraper reading the stats right after does not move the baseline.
+        topK.renewBaseline(second);
+        assertEquals(0, topK.counters("a", 1001, 0, second).getIndexingRate(), 0);
+
+        topK.renewBaseline(window);
+        assertEquals(60_000 * 1E9 / window, topK.counters("a", 61_000, 0, window).getIndexingRate(), 1E-9);
+        topK.renewBaseline(window + second);
+        assertEquals(60_600 * 1E9 / (window + second), topK.counters("a", 61_600, 0, window + second).getIndexingRate(), 1E-9);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SnappyTests {
+
+    @Test
+    public void testRoundTrip() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("es_index_doc_number{cluster=\"test\",index=\"logs-").append(i % 7).append("\"} ")
+                    .append(i).append('\n');
+        }
+        byte[] repetitive = text.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = Snappy.compress(repetitive, repetitive.length);
+        assertTrue(compressed.length < repetitive.length / 4);
+        assertArrayEquals(repetitive, uncompress(compressed));
+
+        // Incompressible data spanning several blocks, and a length smaller than the array.
+        byte[] random = new byte[200_000];
+        new Random(42).nextBytes(random);
+        byte[] head = Arrays.copyOf(random, 150_000);
+        assertArrayEquals(head, uncompress(Snappy.compress(random, head.length)));
+
+        assertArrayEquals(new byte[0], uncompress(Snappy.compress(new byte[0], 0)));
+    }
+
+    /**
+     * Decoder of the snappy block format, the subset of elements written by the compressor.
+     */
+    static byte[] uncompress(byte[] in) {
+        int pos = 0;
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in[pos++] & 0xff;
+            length |= (b & 0x7f) << shift;
+            if (b < 0x80) {
+                break;
+            }
+        }
+        byte[] out = new byte[length];
+        int size = 0;
+        while (pos < in.length) {
+            int tag = in[pos++] & 0xff;
+            if ((tag & 3) == 0) {
+                int n = tag >>> 2;
+                if (n == 60) {
+                    n = in[pos++] & 0xff;
+                } else if (n == 61) {
+                    n = (in[pos++] & 0xff) | (in[pos++] & 0xff) << 8;
+                }
+                System.arraycopy(in, pos, out, size, n + 1);
+                pos += n + 1;
+                size += n + 1;
+            } else {
+                assertEquals(2, tag & 3);
+                int n = (tag >>> 2) + 1;
+                int offset = (in[pos++] & 0xff) | (in[pos++] & 0xff) << 8;
+                // Copies may overlap the bytes they produce, hence byte by byte.
+                for (int i = 0; i < n; i++, size++) {
+                    out[size] = out[size - offset];
+                }
+            }
+        }
+        assertEquals(length, size);
+        return out;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.List;
+import io.prometheus.client.Collector;
+
+public class StaleSeriesTrackerTests {
+
+    @Test
+    public void testTrack() {
+        StaleSeriesTracker tracker = new StaleSeriesTracker(2);
+        List<Collector.MetricFamilySamples> both = families("logs-1", "logs-2");
+        assertSame(both, tracker.track(both));
+        assertEquals(2, tracker.size());
+
+        // Missing once, still within the two generations.
+        List<Collector.MetricFamilySamples> one = families("logs-1");
+        assertSame(one, tracker.track(one));
+
+        // Missing twice, marked stale once and forgotten.
+        List<Collector.MetricFamilySamples> marked = tracker.track(families("logs-1"));
+        assertEquals(2, marked.size());
+        Collector.MetricFamilySamples.Sample stale = marked.get(1).samples.get(0);
+        assertEquals("es_index_doc_number", stale.name);
+        assertEquals(List.of("logs-2"), stale.labelValues);
+        assertEquals(Double.doubleToRawLongBits(StaleSeriesTracker.STALE_NAN), Double.doubleToRawLongBits(stale.value));
+        assertEquals(1, tracker.size());
+        assertEquals(1, tracker.track(families("logs-1")).size());
+
+        // A series coming back is tracked again.
+        tracker.track(families("logs-1", "logs-2"));
+        assertEquals(2, tracker.size());
+    }
+
+    private static List<Collector.MetricFamilySamples> families(String... indices) {
+        List<Collector.MetricFamilySamples.Sample> samples = new ArrayList<>();
+        for (String index : indices) {
+            samples.add(new Collector.MetricFamilySamples.Sample("es_index_doc_number", List.of("index"), List.of(index), 1));
+        }
+        return List.of(new Collector.MetricFamilySamples("es_index_doc_number", Collector.Type.GAUGE, "docs", samples));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.exporter.common.TextFormat;
+
+public class TextExpositionEncoderTests {
+
+    @Test
+    public void testOutputMatchesTextFormat() throws Exception {
+        CollectorRegistry registry = new CollectorRegistry();
+        Gauge gauge = Gauge.build().name("es_test_gauge").help("Test \\ gauge\nwith two lines")
+                .labelNames("index", "context").register(registry);
+        Counter counter = Counter.build().name("es_test_counter").help("Test counter")
+                .labelNames("index").register(registry);
+        gauge.labels("a\"quoted\\index\n", "total").set(1234);
+        gauge.labels("b", "primaries").set(-0.25);
+        gauge.labels("c", "total").set(Double.NaN);
+        counter.labels("a").inc(0.001);
+        counter.labels("b").inc(Double.POSITIVE_INFINITY);
+
+        TextExpositionEncoder encoder = new TextExpositionEncoder();
+        for (int i = 0; i < 2; i++) {
+            StringWriter expected = new StringWriter();
+            TextFormat.write004(expected, registry.metricFamilySamples());
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            Map<String, Integer> seriesCounts = encoder.write(actual, Collections.list(registry.metricFamilySamples()));
+            assertEquals(expected.toString(), actual.toString(StandardCharsets.UTF_8));
+            assertEquals(Map.of("es_test_gauge", 3, "es_test_counter", 2, "es_test_counter_created", 2), seriesCounts);
+            gauge.labels("b", "primaries").set(42.5);
+        }
+    }
+
+    @Test
+    public void testFormatDoubleMatchesDoubleToString() {
+        byte[] buffer = new byte[32];
+        Random random = new Random(0);
+        for (int i = 0; i < 100_000; i++) {
+            double[] values = {
+                random.nextInt(10_000_000),
+                random.nextInt(10_000_000) / 1000.0,
+                -random.nextInt(1000) / 100.0,
+                random.nextDouble() * 1000,
+                random.nextDouble() / 100
+            };
+            for (double value : values) {
+                int len = TextExpositionEncoder.formatDouble(value, buffer);
+                if (len >= 0) {
+                    assertEquals(Double.toString(value), new String(buffer, 0, len, StandardCharsets.US_ASCII));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLargeWholeNumbersAreWrittenWithoutExponent() {
+        byte[] buffer = new byte[32];
+        int len = TextExpositionEncoder.formatDouble(123456789012d, buffer);
+        assertEquals("123456789012.0", new String(buffer, 0, len, StandardCharsets.US_ASCII));
+        assertEquals(123456789012d, Double.parseDouble(new String(buffer, 0, len, StandardCharsets.US_ASCII)), 0);
+    }
+}
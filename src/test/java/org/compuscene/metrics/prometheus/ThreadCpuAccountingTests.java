@@ -0,0 +1,72 @@
+/*
+ * Copyright [2026] [Prometheus Exporter Contributors]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.compuscene.metrics.prometheus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+
+public class ThreadCpuAccountingTests {
+
+    @Test
+    public void testPoolName() {
+        assertEquals("write", ThreadCpuAccounting.poolName("elasticsearch[node-1][write][T#3]"));
+        assertEquals("search", ThreadCpuAccounting.poolName("elasticsearch[node[1]][search][T#12]"));
+        assertEquals("lucene_merge",
+                ThreadCpuAccounting.poolName("elasticsearch[node-1][[logs][0]: Lucene Merge Thread #4]"));
+        assertEquals(ThreadCpuAccounting.OTHER, ThreadCpuAccounting.poolName("elasticsearch[node-1][[timer]]"));
+        assertEquals(ThreadCpuAccounting.OTHER, ThreadCpuAccounting.poolName("Reference Handler"));
+    }
+
+    @Test
+    public void testCpuIsAccountedToThePool() throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(ThreadCpuAccounting.isSupported(threads));
+        ThreadCpuAccounting accounting = new ThreadCpuAccounting(threads);
+
+        CountDownLatch spun = new CountDownLatch(1);
+        CountDownLatch sampled = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            long end = System.nanoTime() + 50_000_000L;
+            long sink = 0;
+            while (System.nanoTime() < end) {
+                sink += Long.numberOfTrailingZeros(sink + end);
+            }
+            spun.countDown();
+            try {
+                sampled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "elasticsearch[node-1][test_pool][T#1]");
+        thread.start();
+        spun.await();
+        accounting.sample();
+        double first = accounting.getCpuSeconds().get("test_pool");
+        assertTrue("expected some CPU time but got " + first, first > 0.01);
+
+        // Sampling again does not count the same CPU time twice.
+        accounting.sample();
+        assertEquals(first, accounting.getCpuSeconds().get("test_pool"), 0.01);
+        sampled.countDown();
+        thread.join();
+    }
+}